@@ -0,0 +1,116 @@
+package pws.bench;
+
+import assembly.Assembly;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+import smalgebra.SMProposition;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Operations of the semantic algebra on the semantics of two random guards over the assembly of a
+ * model (see {@link SyntheticModels#named}). The operands are built once per trial; the results are
+ * returned, so that JMH consumes them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgebraBenchmark {
+    @Param({"synthetic", "crossroad"})
+    public String model;
+
+    @Param("4")
+    public int machines;
+
+    @Param("4")
+    public int states;
+
+    @Param("4")
+    public int transitions;
+
+    // Depth of the guards; the crossroad guards are two levels deep
+    @Param("3")
+    public int depth;
+
+    private Assembly assembly;
+    private SMProposition p;
+    private Semantics a;
+    private Semantics b;
+    private Semantics aCover;
+
+    @Setup
+    public void setUp() {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        int guardDepth = model.equals("crossroad") ? 2 : depth;
+        assembly = SyntheticModels.named(model, machines, states, transitions, guardDepth).getAssembly();
+        Random random = new Random(7L);
+        p = SyntheticModels.guard(assembly, guardDepth, random);
+        SMProposition q = SyntheticModels.guard(assembly, guardDepth, random);
+        a = p.toSemantics(assembly);
+        b = q.toSemantics(assembly);
+        aCover = a.simplifyCover(assembly);
+    }
+
+    @Benchmark
+    public Set<Configuration> generateUniverse() {
+        return assembly.generateUniverse();
+    }
+
+    @Benchmark
+    public Semantics toSemantics() {
+        return p.toSemantics(assembly);
+    }
+
+    @Benchmark
+    public Semantics and() {
+        return a.AND(b);
+    }
+
+    @Benchmark
+    public Semantics or() {
+        return a.OR(b);
+    }
+
+    @Benchmark
+    public Semantics not() {
+        return a.NOT(assembly);
+    }
+
+    @Benchmark
+    public Semantics notOfCover() {
+        return aCover.NOT(assembly);
+    }
+
+    @Benchmark
+    public Semantics diff() {
+        return a.DIFF(b, assembly);
+    }
+
+    @Benchmark
+    public boolean leq() {
+        return a.LEQ(b, assembly);
+    }
+
+    @Benchmark
+    public Semantics simplifyCover() {
+        return a.simplifyCover(assembly);
+    }
+}
@@ -0,0 +1,85 @@
+package pws.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pws.PWSStateMachine;
+import pws.PWSState;
+import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsMonitor;
+import pws.editor.semantics.SemanticsVisitor;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The semantics pipeline on a model (see {@link SyntheticModels#named}): the fixed point alone, the
+ * whole recalculation with and without the transition semantics cache of the previous runs, and the
+ * computation on a snapshot done by the editor. The parallel rounds run on the common ForkJoinPool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    @Param({"synthetic", "crossroad"})
+    public String model;
+
+    @Param("4")
+    public int machines;
+
+    @Param("4")
+    public int states;
+
+    @Param("4")
+    public int transitions;
+
+    @Param("3")
+    public int depth;
+
+    private PWSStateMachine machine;
+
+    @Setup
+    public void setUp() {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        machine = SyntheticModels.named(model, machines, states, transitions, depth);
+        machine.recalculateSemantics();
+    }
+
+    @Benchmark
+    public Map<PWSState, Semantics> computeAllStateSemantics() {
+        return SemanticsVisitor.computeAllStateSemantics(machine);
+    }
+
+    @Benchmark
+    public void recalculateSemantics(Blackhole blackhole) {
+        // Without the memo of the previous runs: the whole pipeline is measured
+        machine.getTransitionCache().clear();
+        machine.recalculateSemantics();
+        blackhole.consume(machine);
+    }
+
+    @Benchmark
+    public void recalculateSemanticsCached(Blackhole blackhole) {
+        machine.recalculateSemantics();
+        blackhole.consume(machine);
+    }
+
+    @Benchmark
+    public PWSStateMachine.SemanticsUpdate snapshotUpdate() {
+        return machine.snapshot().computeSemanticsUpdate(true, SemanticsMonitor.NONE);
+    }
+}
@@ -0,0 +1,202 @@
+package pws.bench;
+
+import assembly.Action;
+import assembly.Assembly;
+import machinery.State;
+import machinery.StateMachine;
+import machinery.Transition;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+import smalgebra.PropositionFactory;
+import smalgebra.SMProposition;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Models used by the benchmarks: synthetic assemblies and PWS machines whose size is set by a few
+ * parameters, and hand-written fixtures shaped like the models drawn in the editor.
+ *
+ * <p>Synthetic models are deterministic for a given seed. Component machine {@code mK} has states
+ * {@code s0..sN-1}, an initial transition to {@code s0} and a cycle {@code s0 -> s1 -> ... -> s0}
+ * on event {@code next}; the other transitions are drawn at random, half of them autonomous and
+ * half triggered by one of the events {@code e0..e2}.
+ */
+public final class SyntheticModels {
+
+    private SyntheticModels() {
+    }
+
+    /**
+     * Builds an assembly of {@code machines} component machines with {@code states} states each.
+     *
+     * @param transitions number of random transitions per machine, besides the initial one and the cycle
+     */
+    public static Assembly assembly(String assemblyId, int machines, int states, int transitions, Random random) {
+        Assembly assembly = new Assembly(assemblyId);
+        for (int k = 1; k <= machines; k++) {
+            StateMachine machine = new StateMachine("m" + k);
+            State[] own = new State[states];
+            for (int i = 0; i < states; i++) {
+                own[i] = new State("s" + i, new Point(80 * i, 60 * k));
+                machine.addState(own[i]);
+            }
+            machine.addTransition(new Transition(machine.getPseudoState(), own[0], true));
+            for (int i = 0; i < states; i++) {
+                machine.addTransition(new Transition(own[i], own[(i + 1) % states], false, "next"));
+            }
+            for (int i = 0; i < transitions; i++) {
+                State source = own[random.nextInt(states)];
+                State target = own[random.nextInt(states)];
+                machine.addTransition(random.nextBoolean()
+                        ? new Transition(source, target, true)
+                        : new Transition(source, target, false, "e" + random.nextInt(3)));
+            }
+            assembly.addStateMachine("m" + k, machine);
+        }
+        return assembly;
+    }
+
+    /**
+     * Builds a random guard of the given depth over the machines of the assembly: depth 0 is a
+     * BasicStateProposition, deeper levels are binary AND / OR nodes, negated one time in four.
+     */
+    public static SMProposition guard(Assembly assembly, int depth, Random random) {
+        if (depth == 0) {
+            List<String> machineIds = new ArrayList<>(assembly.getStateMachines().keySet());
+            String machineId = machineIds.get(random.nextInt(machineIds.size()));
+            // States 1..n of the machine's list: index 0 is the pseudostate
+            int states = assembly.getStateMachines().get(machineId).getStates().size() - 1;
+            return PropositionFactory.basic(machineId, "s" + random.nextInt(states));
+        }
+        SMProposition left = guard(assembly, depth - 1, random);
+        SMProposition right = guard(assembly, depth - 1, random);
+        SMProposition node = random.nextBoolean() ? PropositionFactory.and(left, right) : PropositionFactory.or(left, right);
+        return random.nextInt(4) == 0 ? PropositionFactory.not(node) : node;
+    }
+
+    /**
+     * Builds a PWS machine over a synthetic assembly.
+     *
+     * @param pwsStates      number of PWS states
+     * @param pwsTransitions number of random PWS transitions, besides the initial one; half of them are
+     *                       triggerable with one action, the others reactive with a guard of depth
+     *                       {@code guardDepth}
+     */
+    public static PWSStateMachine pwsMachine(int machines, int states, int transitions, int pwsStates,
+                                             int pwsTransitions, int guardDepth, long seed) {
+        Random random = new Random(seed);
+        PWSStateMachine pws = new PWSStateMachine("P");
+        Assembly synthetic = assembly(pws.getAssembly().getAssemblyId(), machines, states, transitions, random);
+        Assembly assembly = pws.getAssembly();
+        synthetic.getStateMachines().forEach(assembly::addStateMachine);
+        PWSState[] own = new PWSState[pwsStates];
+        for (int i = 0; i < pwsStates; i++) {
+            own[i] = new PWSState("S" + i, new Point(120 * i, 40), assembly);
+            pws.addState(own[i]);
+        }
+        pws.addTransition(new PWSTransition(pws.getPseudoState(), own[0], true, assembly));
+        for (int i = 0; i < pwsTransitions; i++) {
+            PWSState source = own[random.nextInt(pwsStates)];
+            PWSState target = own[random.nextInt(pwsStates)];
+            PWSTransition t;
+            if (random.nextBoolean()) {
+                t = new PWSTransition(source, target, false, "u" + i, assembly);
+                String machineId = "m" + (1 + random.nextInt(machines));
+                // One of the events the machine actually has
+                List<String> events = new ArrayList<>(new TreeSet<>(assembly.getStateMachines().get(machineId).getEvents()));
+                t.addAction(new Action(machineId, events.get(random.nextInt(events.size()))));
+            } else {
+                t = new PWSTransition(source, target, true, assembly);
+                t.setGuardProposition(guard(assembly, guardDepth, random));
+            }
+            pws.addTransition(t);
+        }
+        return pws;
+    }
+
+    /**
+     * The model a benchmark runs on, by its {@code @Param} name: {@code "crossroad"} for the fixture,
+     * {@code "synthetic"} for a PWS machine with {@code 2 * machines} states and {@code 4 * machines}
+     * transitions over a synthetic assembly.
+     */
+    public static PWSStateMachine named(String model, int machines, int states, int transitions, int guardDepth) {
+        switch (model) {
+            case "crossroad":
+                return crossroad();
+            case "synthetic":
+                return pwsMachine(machines, states, transitions, 2 * machines, 4 * machines, guardDepth, 42L);
+            default:
+                throw new IllegalArgumentException("Unknown model: " + model);
+        }
+    }
+
+    /**
+     * Crossroad fixture: two traffic lights (R, G, Y on event {@code next}) and a pedestrian button
+     * (Idle, Pressed), driven by a controller with a phase per direction and a pedestrian phase.
+     */
+    public static PWSStateMachine crossroad() {
+        PWSStateMachine pws = new PWSStateMachine("Incrocio");
+        Assembly assembly = pws.getAssembly();
+        assembly.addStateMachine("tl1", trafficLight("tl1"));
+        assembly.addStateMachine("tl2", trafficLight("tl2"));
+        StateMachine button = new StateMachine("btn");
+        State idle = new State("Idle", new Point(0, 0));
+        State pressed = new State("Pressed", new Point(100, 0));
+        button.addState(idle);
+        button.addState(pressed);
+        button.addTransition(new Transition(button.getPseudoState(), idle, true));
+        button.addTransition(new Transition(idle, pressed, false, "press"));
+        button.addTransition(new Transition(pressed, idle, false, "reset"));
+        assembly.addStateMachine("btn", button);
+
+        PWSState northSouth = new PWSState("NordSud", new Point(100, 100), assembly);
+        PWSState eastWest = new PWSState("EstOvest", new Point(300, 100), assembly);
+        PWSState pedestrians = new PWSState("Pedoni", new Point(200, 250), assembly);
+        pws.addState(northSouth);
+        pws.addState(eastWest);
+        pws.addState(pedestrians);
+        pws.addTransition(new PWSTransition(pws.getPseudoState(), northSouth, true, assembly));
+
+        PWSTransition toEastWest = new PWSTransition(northSouth, eastWest, false, "switch", assembly);
+        toEastWest.addAction(new Action("tl1", "next"));
+        toEastWest.addAction(new Action("tl2", "next"));
+        pws.addTransition(toEastWest);
+        PWSTransition toNorthSouth = new PWSTransition(eastWest, northSouth, false, "switch", assembly);
+        toNorthSouth.addAction(new Action("tl2", "next"));
+        toNorthSouth.addAction(new Action("tl1", "next"));
+        pws.addTransition(toNorthSouth);
+
+        SMProposition bothRed = PropositionFactory.and(PropositionFactory.basic("tl1", "R"), PropositionFactory.basic("tl2", "R"));
+        PWSTransition walk = new PWSTransition(eastWest, pedestrians, true, assembly);
+        walk.setGuardProposition(PropositionFactory.and(bothRed, PropositionFactory.basic("btn", "Pressed")));
+        walk.addAction(new Action("btn", "reset"));
+        pws.addTransition(walk);
+        PWSTransition resume = new PWSTransition(pedestrians, northSouth, false, "resume", assembly);
+        resume.addAction(new Action("tl1", "next"));
+        pws.addTransition(resume);
+        PWSTransition request = new PWSTransition(northSouth, northSouth, false, "request", assembly);
+        request.addAction(new Action("btn", "press"));
+        pws.addTransition(request);
+        return pws;
+    }
+
+    private static StateMachine trafficLight(String name) {
+        StateMachine light = new StateMachine(name);
+        State red = new State("R", new Point(0, 0));
+        State green = new State("G", new Point(100, 0));
+        State yellow = new State("Y", new Point(200, 0));
+        light.addState(red);
+        light.addState(green);
+        light.addState(yellow);
+        light.addTransition(new Transition(light.getPseudoState(), red, true));
+        light.addTransition(new Transition(red, green, false, "next"));
+        light.addTransition(new Transition(green, yellow, false, "next"));
+        light.addTransition(new Transition(yellow, red, true));
+        return light;
+    }
+}
@@ -0,0 +1,167 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import org.junit.jupiter.api.Test;
+import pws.bench.SyntheticModels;
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The cube algebra of CoverMinimizer behind Semantics.NOT, DIFF, LEQ and simplifyCover, against the
+ * enumerated universe: every result must denote exactly the configurations of the universe expected
+ * from the operands, whatever cubes were chosen to denote them.
+ */
+class CoverMinimizerTest {
+    private static final int TRIALS = 200;
+
+    @Test
+    void complementsCoversLikeTheUniverse() {
+        Random random = new Random(5L);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Assembly assembly = randomAssembly(trial, random);
+            Set<Configuration> universe = assembly.generateUniverse();
+            Semantics semantics = randomCover(assembly, random);
+            Set<Configuration> expected = new HashSet<>(universe);
+            expected.removeAll(expansion(semantics, universe));
+
+            Semantics not = semantics.NOT(assembly);
+            Semantics symbolic = semantics.complementSymbolic(assembly);
+
+            assertEquals(expected, expansion(not, universe), semantics + " in trial " + trial);
+            assertEquals(expected, expansion(symbolic, universe), semantics + " in trial " + trial);
+            assertAntichain(not);
+            assertEquals(expansion(semantics, universe), expansion(not.NOT(assembly), universe));
+        }
+    }
+
+    @Test
+    void complementsTheEmptyAndTheFullSemantics() {
+        Assembly assembly = SyntheticModels.assembly("A", 3, 3, 2, new Random(1L));
+        Set<Configuration> universe = assembly.generateUniverse();
+
+        assertEquals(universe, expansion(Semantics.bottom(assembly).NOT(assembly), universe));
+        assertTrue(Semantics.top(assembly).NOT(assembly).ISEMPTY());
+        assertTrue(Semantics.top(assembly).simplifyCover(assembly).NOT(assembly).ISEMPTY());
+        assertEquals(1, Semantics.top(assembly).simplifyCover(assembly).configurationCount());
+    }
+
+    @Test
+    void decidesDifferenceAndInclusionLikeTheUniverse() {
+        Random random = new Random(7L);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Assembly assembly = randomAssembly(trial, random);
+            Set<Configuration> universe = assembly.generateUniverse();
+            Semantics a = randomCover(assembly, random);
+            Semantics b = random.nextBoolean() ? randomCover(assembly, random) : a.OR(randomCover(assembly, random));
+            Set<Configuration> pa = expansion(a, universe);
+            Set<Configuration> pb = expansion(b, universe);
+            Set<Configuration> difference = new HashSet<>(pa);
+            difference.removeAll(pb);
+
+            assertEquals(difference, expansion(a.DIFF(b, assembly), universe), a + " \\ " + b + " in trial " + trial);
+            assertEquals(pb.containsAll(pa), a.LEQ(b, assembly), a + " <= " + b + " in trial " + trial);
+        }
+    }
+
+    @Test
+    void simplifiesCoversWithoutChangingTheirConfigurations() {
+        Random random = new Random(9L);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Assembly assembly = randomAssembly(trial, random);
+            Set<Configuration> universe = assembly.generateUniverse();
+            Semantics semantics = randomCover(assembly, random);
+
+            Semantics cover = semantics.simplifyCover(assembly);
+
+            assertEquals(expansion(semantics, universe), expansion(cover, universe), semantics + " in trial " + trial);
+            assertAntichain(cover);
+            assertTrue(cover.configurationCount() <= Math.max(semantics.configurationCount(), 1),
+                    semantics + " -> " + cover + " in trial " + trial);
+            // Irredundant: no cube is covered by the other ones
+            for (Configuration c : cover.getConfigurations()) {
+                Semantics others = Semantics.bottom(assembly);
+                for (Configuration d : cover.getConfigurations()) {
+                    if (d != c) {
+                        others.addConfiguration(d);
+                    }
+                }
+                assertFalse(c.toSemantics().LEQ(others, assembly), c + " is redundant in " + cover);
+            }
+        }
+    }
+
+    @Test
+    void returnsAnEquivalentCoverWhenTheBudgetIsExhausted() {
+        Random random = new Random(13L);
+        int lessCompact = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Assembly assembly = randomAssembly(trial, random);
+            Set<Configuration> universe = assembly.generateUniverse();
+            // Fully-specified configurations leave the most work to the minimiser
+            Semantics semantics = SyntheticModels.guard(assembly, 3, random).toSemantics(assembly);
+
+            Semantics exhausted = semantics.simplifyCover(assembly, 1 + random.nextInt(4));
+            Semantics full = semantics.simplifyCover(assembly);
+
+            assertEquals(expansion(semantics, universe), expansion(exhausted, universe), semantics + " in trial " + trial);
+            assertAntichain(exhausted);
+            if (exhausted.configurationCount() > full.configurationCount()) {
+                lessCompact++;
+            }
+        }
+        // The budget did run out on some inputs
+        assertTrue(lessCompact > 0);
+    }
+
+    private static Assembly randomAssembly(int trial, Random random) {
+        return SyntheticModels.assembly("A" + trial, 1 + random.nextInt(4), 1 + random.nextInt(3), 2, random);
+    }
+
+    // Cubes constraining a random subset of the machines; a few use a state outside the universe.
+    private static Semantics randomCover(Assembly assembly, Random random) {
+        Semantics semantics = Semantics.bottom(assembly);
+        for (int i = random.nextInt(6); i > 0; i--) {
+            List<BasicStateProposition> constraints = new ArrayList<>();
+            for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                List<StateInterface> states = entry.getValue().getStates();
+                String state = random.nextInt(20) == 0 ? "missing"
+                        : states.get(1 + random.nextInt(states.size() - 1)).getName();
+                constraints.add(new BasicStateProposition(entry.getKey(), state));
+            }
+            semantics.addConfiguration(Configuration.fromBasicStatePropositions(assembly.getAssemblyId(), constraints));
+        }
+        return semantics;
+    }
+
+    // The fully-specified configurations of the universe denoted by the Semantics.
+    private static Set<Configuration> expansion(Semantics semantics, Set<Configuration> universe) {
+        Set<Configuration> points = new HashSet<>();
+        for (Configuration c : universe) {
+            if (c.implies(semantics)) {
+                points.add(c);
+            }
+        }
+        return points;
+    }
+
+    private static void assertAntichain(Semantics semantics) {
+        for (Configuration c : semantics.getConfigurations()) {
+            for (Configuration d : semantics.getConfigurations()) {
+                assertFalse(c != d && c.implies(d), c + " implies " + d + " in " + semantics);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package serializer;
+
+import machinery.StateInterface;
+import machinery.TransitionInterface;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+import pws.editor.semantics.Semantics;
+
+import java.awt.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loading of a crossroad saved with "Salva Tutto" by the editor before the binary format (Java
+ * serialization of the machine followed by the bounds of the annotations), and round trip of the
+ * loaded model through the binary format.
+ *
+ * <p>The fixture {@code crossroad-legacy.pws} was written with the classes of that editor: three
+ * states and six transitions over two traffic lights and a button, with nested and, or and not
+ * guards, and the semantics computed by that editor. Since then the fixed point reads the
+ * semantics of the sources from the current round and an event fires from every source state, so
+ * the saved semantics is checked as it was written and not against a new computation.
+ */
+class BinaryModelSerializerTest {
+    private static Path legacyFile;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        legacyFile = Paths.get(BinaryModelSerializerTest.class.getResource("crossroad-legacy.pws").toURI());
+    }
+
+    @Test
+    void loadsTheModelAndTheLayoutOfAnEarlierEditor() throws Exception {
+        BinaryModelSerializer.LoadedModel loaded = BinaryModelSerializer.loadSerialized(legacyFile);
+        PWSStateMachine machine = loaded.getMachine();
+
+        assertEquals("Incrocio", machine.getName());
+        assertEquals(List.of("PseudoState", "NordSud", "EstOvest", "Pedoni"), names(machine));
+        assertEquals(List.of("btn", "tl1", "tl2"),
+                new ArrayList<>(new TreeSet<>(machine.getAssembly().getStateMachines().keySet())));
+        List<PWSTransition> transitions = transitions(machine);
+        assertEquals(6, transitions.size());
+        assertEquals("switch", transitions.get(1).getTriggerEvent());
+        assertEquals(2, transitions.get(1).getActionList().size());
+        assertNotNull(transitions.get(3).getGuardProposition());
+        assertNotNull(transitions.get(5).getGuardProposition());
+
+        ModelLayout layout = loaded.getLayout();
+        assertNotNull(layout);
+        assertNull(layout.getStateAnnotation(state(machine, "PseudoState")));
+        assertEquals(new Rectangle(10, 20, 150, 60), layout.getStateAnnotation(state(machine, "NordSud")));
+        assertEquals(new Rectangle(30, 60, 150, 60), layout.getStateAnnotation(state(machine, "Pedoni")));
+        assertEquals(new Rectangle(4, 5, 80, 20), layout.getGuardAnnotation(transitions.get(0)));
+        assertEquals(new Rectangle(6, 7, 80, 20), layout.getActionAnnotation(transitions.get(0)));
+        assertNull(layout.getSemanticsAnnotation(transitions.get(0)));
+        assertEquals(new Rectangle(9, 10, 120, 40), layout.getSemanticsAnnotation(transitions.get(1)));
+    }
+
+    @Test
+    void keepsTheSemanticsSavedByAnEarlierEditor() throws Exception {
+        PWSStateMachine machine = BinaryModelSerializer.loadSerialized(legacyFile).getMachine();
+
+        // As computed by that editor, which read the semantics of the sources from the previous run
+        // and fired only the first transition of an event
+        assertEquals(List.of("[(btn.Idle,tl1.R,tl2.R)]", "[(btn.Idle,tl1.R,tl2.R)]", "[]", "[]"),
+                describe(stateSemantics(machine)));
+        assertEquals(List.of("[(btn.Idle,tl1.R,tl2.R)]", "[(btn.Idle,tl1.G,tl2.G)]", "[]", "[]", "[]",
+                "[(btn.Pressed,tl1.R,tl2.R)]"), describe(transitionSemantics(machine)));
+
+        machine.recalculateSemantics();
+
+        assertEquals("[(btn.Idle,tl1.G,tl2.G), (btn.Idle,tl1.Y,tl2.Y), (btn.Pressed,tl1.G,tl2.G), (btn.Pressed,tl1.Y,tl2.Y)]",
+                describe(state(machine, "EstOvest").getStateSemantics()));
+        assertEquals("[tl1.Y⇒tl1.R, tl2.Y⇒tl2.R]", sorted(state(machine, "EstOvest").getReactiveSemantics()));
+    }
+
+    @Test
+    void roundTripsThroughTheBinaryFormat(@TempDir Path directory) throws Exception {
+        BinaryModelSerializer.LoadedModel legacy = BinaryModelSerializer.loadSerialized(legacyFile);
+        PWSStateMachine machine = legacy.getMachine();
+        Path file = directory.resolve("crossroad.pws");
+
+        BinaryModelSerializer.save(machine, legacy.getLayout(), file, true);
+        assertTrue(BinaryModelSerializer.isBinaryModel(file));
+        BinaryModelSerializer.LoadedModel loaded = BinaryModelSerializer.load(file);
+        PWSStateMachine copy = loaded.getMachine();
+
+        assertEquals(machine.getName(), copy.getName());
+        assertEquals(names(machine), names(copy));
+        assertEquals(stateSemantics(machine), stateSemantics(copy));
+        assertEquals(transitionSemantics(machine), transitionSemantics(copy));
+        List<PWSTransition> original = transitions(machine);
+        List<PWSTransition> read = transitions(copy);
+        assertEquals(original.size(), read.size());
+        for (int i = 0; i < original.size(); i++) {
+            PWSTransition t = original.get(i);
+            PWSTransition u = read.get(i);
+            assertEquals(t.getId(), u.getId());
+            assertEquals(t.getSource().getName(), u.getSource().getName());
+            assertEquals(t.getTarget().getName(), u.getTarget().getName());
+            assertEquals(t.isAutonomous(), u.isAutonomous());
+            assertEquals(t.getTriggerEvent(), u.getTriggerEvent());
+            assertEquals(t.getGuardProposition(), u.getGuardProposition());
+            assertEquals(t.getActionList(), u.getActionList());
+            assertEquals(legacy.getLayout().getGuardAnnotation(t), loaded.getLayout().getGuardAnnotation(u));
+            assertEquals(legacy.getLayout().getActionAnnotation(t), loaded.getLayout().getActionAnnotation(u));
+            assertEquals(legacy.getLayout().getSemanticsAnnotation(t), loaded.getLayout().getSemanticsAnnotation(u));
+        }
+        for (String name : names(machine)) {
+            assertEquals(legacy.getLayout().getStateAnnotation(state(machine, name)),
+                    loaded.getLayout().getStateAnnotation(state(copy, name)));
+        }
+
+        // The semantics computed now, exit zones included, is saved and read back as well
+        machine.recalculateSemantics();
+        Path recomputed = directory.resolve("crossroad-recomputed.pws");
+        BinaryModelSerializer.save(machine, null, recomputed, true);
+        BinaryModelSerializer.LoadedModel again = BinaryModelSerializer.load(recomputed);
+        assertNull(again.getLayout());
+        assertEquals(stateSemantics(machine), stateSemantics(again.getMachine()));
+        assertEquals(transitionSemantics(machine), transitionSemantics(again.getMachine()));
+        for (String name : names(machine)) {
+            assertEquals(sorted(state(machine, name).getReactiveSemantics()),
+                    sorted(state(again.getMachine(), name).getReactiveSemantics()));
+        }
+        copy.recalculateSemantics();
+        assertEquals(stateSemantics(machine), stateSemantics(copy));
+    }
+
+    private static List<String> names(PWSStateMachine machine) {
+        List<String> names = new ArrayList<>();
+        for (StateInterface s : machine.getStates()) {
+            names.add(s.getName());
+        }
+        return names;
+    }
+
+    private static PWSState state(PWSStateMachine machine, String name) {
+        for (StateInterface s : machine.getStates()) {
+            if (s.getName().equals(name)) {
+                return (PWSState) s;
+            }
+        }
+        throw new AssertionError("No state " + name);
+    }
+
+    private static List<PWSTransition> transitions(PWSStateMachine machine) {
+        List<PWSTransition> transitions = new ArrayList<>();
+        for (TransitionInterface t : machine.getTransitions()) {
+            transitions.add((PWSTransition) t);
+        }
+        return transitions;
+    }
+
+    private static List<Semantics> stateSemantics(PWSStateMachine machine) {
+        List<Semantics> semantics = new ArrayList<>();
+        for (StateInterface s : machine.getStates()) {
+            semantics.add(((PWSState) s).getStateSemantics());
+        }
+        return semantics;
+    }
+
+    private static List<String> describe(List<Semantics> semantics) {
+        List<String> descriptions = new ArrayList<>();
+        for (Semantics s : semantics) {
+            descriptions.add(describe(s));
+        }
+        return descriptions;
+    }
+
+    private static String describe(Semantics semantics) {
+        return sorted(semantics.getConfigurations());
+    }
+
+    private static String sorted(Collection<?> elements) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (Object e : elements) {
+            sorted.add(e.toString());
+        }
+        return sorted.toString();
+    }
+
+    private static List<Semantics> transitionSemantics(PWSStateMachine machine) {
+        List<Semantics> semantics = new ArrayList<>();
+        for (PWSTransition t : transitions(machine)) {
+            semantics.add(t.getTransitionSemantics());
+        }
+        return semantics;
+    }
+}
@@ -0,0 +1,222 @@
+package smalgebra;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SatSolver on formulas small enough to be checked against their truth table: random clauses and
+ * exactly-one groups, the pigeonhole formulas, and clauses added between calls to solve().
+ */
+class SatSolverTest {
+
+    @Test
+    void agreesWithTheTruthTableOnRandomFormulas() {
+        Random random = new Random(11L);
+        for (int trial = 0; trial < 400; trial++) {
+            int variables = 3 + random.nextInt(8);
+            List<int[]> clauses = randomClauses(variables, 2 + random.nextInt(4 * variables), random);
+            List<int[]> groups = new ArrayList<>();
+            for (int g = random.nextInt(3); g > 0; g--) {
+                groups.add(randomGroup(variables, random));
+            }
+            SatSolver solver = solver(variables, clauses, groups);
+
+            boolean satisfiable = solver.solve();
+
+            assertEquals(countModels(variables, clauses, groups) > 0, satisfiable, "trial " + trial);
+            if (satisfiable) {
+                assertTrue(satisfies(model(solver, variables), clauses, groups), "trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    void refutesThePigeonholeFormulas() {
+        for (int holes = 1; holes <= 6; holes++) {
+            assertFalse(pigeonhole(holes + 1, holes, false).solve(), holes + 1 + " pigeons in " + holes + " holes");
+            assertFalse(pigeonhole(holes + 1, holes, true).solve(), holes + 1 + " pigeons in " + holes + " holes, exactly-one");
+            assertTrue(pigeonhole(holes, holes, false).solve(), holes + " pigeons in " + holes + " holes");
+            assertTrue(pigeonhole(holes, holes, true).solve(), holes + " pigeons in " + holes + " holes, exactly-one");
+        }
+    }
+
+    @Test
+    void enumeratesEveryModelWithClausesAddedBetweenCalls() {
+        Random random = new Random(23L);
+        for (int trial = 0; trial < 100; trial++) {
+            int variables = 3 + random.nextInt(6);
+            List<int[]> clauses = randomClauses(variables, 1 + random.nextInt(2 * variables), random);
+            List<int[]> groups = new ArrayList<>();
+            if (random.nextBoolean()) {
+                groups.add(randomGroup(variables, random));
+            }
+            SatSolver solver = solver(variables, clauses, groups);
+
+            // Each model found is blocked by a new clause, until none is left
+            int models = 0;
+            while (solver.solve()) {
+                boolean[] model = model(solver, variables);
+                assertTrue(satisfies(model, clauses, groups), "trial " + trial);
+                int[] blocking = new int[variables];
+                for (int v = 1; v <= variables; v++) {
+                    blocking[v - 1] = model[v] ? -v : v;
+                }
+                solver.addClause(blocking);
+                models++;
+            }
+
+            assertEquals(countModels(variables, clauses, groups), models, "trial " + trial);
+            assertFalse(solver.solve());
+        }
+    }
+
+    @Test
+    void propagatesAgainTheFactsThatPredateAGroup() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVariable();
+        int b = solver.newVariable();
+        int c = solver.newVariable();
+        solver.addClause(a);
+        solver.addClause(b);
+        assertTrue(solver.solve());
+        assertTrue(solver.value(a) && solver.value(b));
+
+        // a and b are level-0 facts already propagated when the group is added
+        solver.addExactlyOne(a, b, c);
+        assertFalse(solver.solve());
+    }
+
+    @Test
+    void becomesUnsatisfiableAfterAConflictingUnitClause() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVariable();
+        int b = solver.newVariable();
+        solver.addClause(a, b);
+        solver.addClause(-a, b);
+        assertTrue(solver.solve());
+        assertTrue(solver.value(b));
+
+        solver.addClause(-b);
+        assertFalse(solver.solve());
+        assertThrows(IllegalStateException.class, () -> solver.value(a));
+    }
+
+    // Pigeon p in hole h is variable p * holes + h + 1.
+    private static SatSolver pigeonhole(int pigeons, int holes, boolean exactlyOne) {
+        SatSolver solver = new SatSolver();
+        for (int v = 0; v < pigeons * holes; v++) {
+            solver.newVariable();
+        }
+        for (int p = 0; p < pigeons; p++) {
+            int[] clause = new int[holes];
+            for (int h = 0; h < holes; h++) {
+                clause[h] = p * holes + h + 1;
+            }
+            if (exactlyOne) {
+                solver.addExactlyOne(clause);
+            } else {
+                solver.addClause(clause);
+            }
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p < pigeons; p++) {
+                for (int q = p + 1; q < pigeons; q++) {
+                    solver.addClause(-(p * holes + h + 1), -(q * holes + h + 1));
+                }
+            }
+        }
+        return solver;
+    }
+
+    private static SatSolver solver(int variables, List<int[]> clauses, List<int[]> groups) {
+        SatSolver solver = new SatSolver();
+        for (int v = 0; v < variables; v++) {
+            solver.newVariable();
+        }
+        for (int[] clause : clauses) {
+            solver.addClause(clause);
+        }
+        for (int[] group : groups) {
+            solver.addExactlyOne(group);
+        }
+        return solver;
+    }
+
+    private static List<int[]> randomClauses(int variables, int count, Random random) {
+        List<int[]> clauses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int[] clause = new int[1 + random.nextInt(3)];
+            for (int j = 0; j < clause.length; j++) {
+                int v = 1 + random.nextInt(variables);
+                clause[j] = random.nextBoolean() ? v : -v;
+            }
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    private static int[] randomGroup(int variables, Random random) {
+        List<Integer> all = new ArrayList<>();
+        for (int v = 1; v <= variables; v++) {
+            all.add(v);
+        }
+        Collections.shuffle(all, random);
+        int[] group = new int[2 + random.nextInt(variables - 1)];
+        for (int i = 0; i < group.length; i++) {
+            group[i] = all.get(i);
+        }
+        return group;
+    }
+
+    private static boolean[] model(SatSolver solver, int variables) {
+        boolean[] model = new boolean[variables + 1];
+        for (int v = 1; v <= variables; v++) {
+            model[v] = solver.value(v);
+        }
+        return model;
+    }
+
+    private static int countModels(int variables, List<int[]> clauses, List<int[]> groups) {
+        int count = 0;
+        boolean[] assignment = new boolean[variables + 1];
+        for (int bits = 0; bits < 1 << variables; bits++) {
+            for (int v = 1; v <= variables; v++) {
+                assignment[v] = (bits >> (v - 1) & 1) != 0;
+            }
+            if (satisfies(assignment, clauses, groups)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean satisfies(boolean[] assignment, List<int[]> clauses, List<int[]> groups) {
+        for (int[] clause : clauses) {
+            boolean satisfied = false;
+            for (int literal : clause) {
+                satisfied |= assignment[Math.abs(literal)] == literal > 0;
+            }
+            if (!satisfied) {
+                return false;
+            }
+        }
+        for (int[] group : groups) {
+            int ones = 0;
+            for (int v : group) {
+                if (assignment[v]) {
+                    ones++;
+                }
+            }
+            if (ones != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
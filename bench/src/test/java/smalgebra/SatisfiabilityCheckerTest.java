@@ -0,0 +1,113 @@
+package smalgebra;
+
+import assembly.Assembly;
+import assembly.AssemblyView;
+import machinery.State;
+import machinery.StateMachine;
+import org.junit.jupiter.api.Test;
+import pws.bench.SyntheticModels;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SatisfiabilityChecker against the enumeration of the universe: on small random assemblies the
+ * answers of isEmpty, implies and equivalent must be those obtained by evaluating the
+ * propositions on every concrete assembly.
+ */
+class SatisfiabilityCheckerTest {
+
+    @Test
+    void agreesWithTheUniverseOnRandomGuards() {
+        Random random = new Random(3L);
+        for (int trial = 0; trial < 150; trial++) {
+            Assembly assembly = SyntheticModels.assembly("A" + trial, 1 + random.nextInt(3), 1 + random.nextInt(3),
+                    2, random);
+            SatisfiabilityChecker checker = new SatisfiabilityChecker(assembly);
+            List<SMProposition> guards = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                guards.add(SyntheticModels.guard(assembly, random.nextInt(4), random));
+            }
+            guards.add(PropositionFactory.and(guards.get(0), PropositionFactory.not(guards.get(0))));
+            guards.add(PropositionFactory.or(guards.get(1), PropositionFactory.not(guards.get(1))));
+
+            for (SMProposition a : guards) {
+                boolean[] pa = evaluate(a, assembly);
+                assertEquals(isEmpty(pa), checker.isEmpty(a), a + " in trial " + trial);
+                assertEquals(!isEmpty(pa), checker.isSatisfiable(a), a + " in trial " + trial);
+                for (SMProposition b : guards) {
+                    boolean[] pb = evaluate(b, assembly);
+                    assertEquals(implies(pa, pb), checker.implies(a, b), a + " => " + b + " in trial " + trial);
+                    assertEquals(implies(pa, pb) && implies(pb, pa), checker.equivalent(a, b),
+                            a + " <=> " + b + " in trial " + trial);
+                }
+            }
+        }
+    }
+
+    @Test
+    void holdsOneStatePerMachine() {
+        Assembly assembly = SyntheticModels.assembly("A", 2, 3, 0, new Random(1L));
+        SatisfiabilityChecker checker = new SatisfiabilityChecker(assembly);
+        SMProposition s0 = PropositionFactory.basic("m1", "s0");
+        SMProposition s1 = PropositionFactory.basic("m1", "s1");
+        SMProposition s2 = PropositionFactory.basic("m1", "s2");
+
+        assertTrue(checker.isEmpty(PropositionFactory.and(s0, s1)));
+        assertTrue(checker.equivalent(PropositionFactory.not(s0), PropositionFactory.or(s1, s2)));
+        assertTrue(checker.implies(PropositionFactory.trueProposition(), PropositionFactory.or(PropositionFactory.or(s0, s1), s2)));
+        assertFalse(checker.implies(PropositionFactory.not(s0), s1));
+    }
+
+    @Test
+    void treatsStatesOutsideTheUniverseAsFalse() {
+        Assembly assembly = new Assembly("A");
+        StateMachine machine = new StateMachine("m1");
+        machine.addState(new State("on", new Point()));
+        machine.addState(new State("off", new Point()));
+        assembly.addStateMachine("m1", machine);
+        // A machine without states is left out of the universe
+        assembly.addStateMachine("m2", new StateMachine("m2"));
+        SatisfiabilityChecker checker = new SatisfiabilityChecker(assembly);
+
+        for (SMProposition p : List.of(PropositionFactory.basic("m1", "PseudoState"), PropositionFactory.basic("m1", "broken"),
+                PropositionFactory.basic("m2", "on"), PropositionFactory.basic("m3", "on"))) {
+            assertTrue(checker.isEmpty(p), p.toString());
+            assertEquals(isEmpty(evaluate(p, assembly)), checker.isEmpty(p), p.toString());
+            assertTrue(checker.equivalent(PropositionFactory.not(p), PropositionFactory.trueProposition()), p.toString());
+        }
+    }
+
+    // Truth value of the proposition on each concrete assembly, in the order of the universe.
+    private static boolean[] evaluate(SMProposition proposition, Assembly assembly) {
+        AssemblyView view = new AssemblyView(assembly);
+        boolean[] values = new boolean[(int) view.size()];
+        int i = 0;
+        do {
+            values[i++] = proposition.evaluate(view);
+        } while (view.next());
+        return values;
+    }
+
+    private static boolean isEmpty(boolean[] values) {
+        for (boolean value : values) {
+            if (value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean implies(boolean[] a, boolean[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] && !b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,8 +1,10 @@
 package assembly;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 public class Action implements Serializable {
+    private static final long serialVersionUID = -8391624491611907579L;
     private String id;
     private String event;
 
@@ -23,4 +25,17 @@ public class Action implements Serializable {
     public String toString() {
         return id + "." + event;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Action)) return false;
+        Action that = (Action) o;
+        return Objects.equals(id, that.id) && Objects.equals(event, that.event);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, event);
+    }
 }
\ No newline at end of file
@@ -7,7 +7,12 @@ import pws.editor.semantics.Semantics;
 import smalgebra.BasicStateProposition;
 
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public class Assembly implements AssemblyInterface {
+    private static final long serialVersionUID = -2588901079601996604L;
+
     private String assemblyId;
     private Map<String, StateMachine> stateMachines;
 
@@ -194,47 +199,44 @@ public class Assembly implements AssemblyInterface {
 
     /**
      * Generates the universe of fully-specified configurations for the given assemblyId.
-     * It retrieves the Assembly instance using a registry (assumed to be available).
+     * The whole universe is materialised: prefer {@link #universeStream()} when the
+     * configurations only need to be visited once.
      */
     public Set<Configuration> generateUniverse() {
         Set<Configuration> universe = new HashSet<>();
-        Map<String, StateMachine> machines = this.getStateMachines();
-        Map<String, List<String>> machineStates = new LinkedHashMap<>();
-        for (Map.Entry<String, StateMachine> entry : machines.entrySet()) {
-            String machineId = entry.getKey();
-            StateMachine machine = entry.getValue();
-            List<String> stateNames = new ArrayList<>();
-            for (StateInterface s : machine.getStates()) {
-                String stateName = s.getName();
-                if ( !stateName.equals("PseudoState") ) {
-                    stateNames.add(stateName);
-                }
-            }
-            machineStates.put(machineId, stateNames);
-        }
-// Build a list of lists of BasicStateProposition for each machine.
-        List<List<BasicStateProposition>> listOfPropLists = new ArrayList<>();
-        for (Map.Entry<String, List<String>> entry : machineStates.entrySet()) {
-            String machineId = entry.getKey();
-            List<String> states = entry.getValue();
-            // If a machine has no states, skip it.
-            if (states.isEmpty()) {
-                continue;
-            }
-            List<BasicStateProposition> propList = new ArrayList<>();
-            for (String state : states) {
-                propList.add(new BasicStateProposition(machineId, state));
-            }
-            listOfPropLists.add(propList);
-        }
-        List<List<BasicStateProposition>> cartesian = cartesianProduct(listOfPropLists);
-        for (List<BasicStateProposition> combination : cartesian) {
-            Configuration config = Configuration.fromBasicStatePropositions(this.assemblyId, combination);
-            universe.add(config);
-        }
+        universeSpliterator().forEachRemaining(universe::add);
         return universe;
     }
 
+    /**
+     * Returns the number of fully-specified configurations of the universe, i.e. the product of
+     * the number of states (pseudostates excluded) of the machines, without enumerating them.
+     *
+     * @throws ArithmeticException if the universe has more than {@code Long.MAX_VALUE} configurations.
+     */
+    public long universeSize() {
+        return UniverseSpliterator.sizeOf(this);
+    }
+
+    /**
+     * Returns a lazy, splittable enumeration of the universe of fully-specified configurations.
+     * Configurations are created one at a time, so visiting the universe takes constant memory.
+     */
+    public Spliterator<Configuration> universeSpliterator() {
+        return new UniverseSpliterator(this);
+    }
+
+    public Iterator<Configuration> universeIterator() {
+        return Spliterators.iterator(universeSpliterator());
+    }
+
+    /**
+     * Returns a sequential stream over the universe of fully-specified configurations.
+     */
+    public Stream<Configuration> universeStream() {
+        return StreamSupport.stream(universeSpliterator(), false);
+    }
+
     private static List<List<BasicStateProposition>> cartesianProduct(List<List<BasicStateProposition>> lists) {
         List<List<BasicStateProposition>> result = new ArrayList<>();
         if (lists.isEmpty()) {
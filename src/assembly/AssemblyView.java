@@ -0,0 +1,202 @@
+package assembly;
+
+import machinery.StateInterface;
+import machinery.StateMachine;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vista "flyweight" delle assembly concrete di un'Assembly: una sola struttura condivisa (macchine,
+ * stati e transizioni del template) e un cursore {@code int[]} con l'indice dello stato corrente di
+ * ciascuna macchina, fatto avanzare sul posto.
+ *
+ * <p>Le macchine della vista sono create una volta sola e leggono il proprio stato corrente dal
+ * cursore: una SMProposition valutata sulla vista (vedi {@link smalgebra.SMProposition#evaluate})
+ * vede l'assembly concreta della posizione corrente, e passare alla combinazione successiva con
+ * {@link #next()} non alloca nulla. Il template non viene modificato.
+ *
+ * <p>Come nell'universo di {@link Assembly#generateUniverse()}, i pseudostati non sono mai stati
+ * correnti e le macchine senza stati restano senza stato corrente; l'ordine delle combinazioni è
+ * quello di {@link UniverseSpliterator} (l'ultima macchina varia più in fretta). La vista non è
+ * thread-safe: thread diversi usano viste diverse.
+ */
+public final class AssemblyView implements AssemblyInterface {
+    private static final long serialVersionUID = 4807136626213538170L;
+
+    private final Assembly template;
+    private final String[] machineIds;
+    // Stati ammessi come correnti per ciascuna macchina (senza pseudostato)
+    private final StateInterface[][] states;
+    private final int[] cursor;
+    private final Map<String, StateMachine> machines = new LinkedHashMap<>();
+    private final Map<String, StateMachine> machinesView = Collections.unmodifiableMap(machines);
+    private final BasicStateProposition[][] propositions;
+
+    public AssemblyView(Assembly template) {
+        this.template = template;
+        int n = template.getStateMachines().size();
+        this.machineIds = new String[n];
+        this.states = new StateInterface[n][];
+        this.propositions = new BasicStateProposition[n][];
+        this.cursor = new int[n];
+        int i = 0;
+        for (Map.Entry<String, StateMachine> entry : template.getStateMachines().entrySet()) {
+            List<StateInterface> own = new ArrayList<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (!s.getName().equals("PseudoState")) {
+                    own.add(s);
+                }
+            }
+            machineIds[i] = entry.getKey();
+            states[i] = own.toArray(new StateInterface[0]);
+            propositions[i] = new BasicStateProposition[states[i].length];
+            for (int j = 0; j < states[i].length; j++) {
+                propositions[i][j] = new BasicStateProposition(entry.getKey(), states[i][j].getName());
+            }
+            machines.put(entry.getKey(), new CursorStateMachine(entry.getValue(), i));
+            i++;
+        }
+    }
+
+    /**
+     * Macchina che condivide stati e transizioni con quella del template e il cui stato corrente
+     * è quello indicato dal cursore della vista.
+     */
+    private final class CursorStateMachine extends StateMachine {
+        private static final long serialVersionUID = 281750061673687132L;
+
+        private final int level;
+
+        CursorStateMachine(StateMachine machine, int level) {
+            super(machine.getName(), new ArrayList<>(machine.getStates()), machine.getTransitions(),
+                    null, machine.getEvents());
+            this.level = level;
+        }
+
+        @Override
+        public StateInterface getCurrentState() {
+            StateInterface[] domain = AssemblyView.this.states[level];
+            return domain.length == 0 ? null : domain[cursor[level]];
+        }
+
+        @Override
+        public void setCurrentState(StateInterface state) {
+            throw new UnsupportedOperationException("The current state of an assembly view follows its cursor.");
+        }
+    }
+
+    public Assembly getTemplate() {
+        return template;
+    }
+
+    public String getAssemblyId() {
+        return template.getAssemblyId();
+    }
+
+    /**
+     * Numero di assembly concrete, cioè di posizioni del cursore.
+     */
+    public long size() {
+        long size = 1;
+        for (StateInterface[] domain : states) {
+            size = Math.multiplyExact(size, Math.max(domain.length, 1));
+        }
+        return size;
+    }
+
+    /**
+     * Riporta il cursore alla prima combinazione.
+     */
+    public void reset() {
+        Arrays.fill(cursor, 0);
+    }
+
+    /**
+     * Passa alla combinazione successiva.
+     *
+     * @return false (e il cursore torna alla prima combinazione) se quella corrente era l'ultima
+     */
+    public boolean next() {
+        for (int i = cursor.length - 1; i >= 0; i--) {
+            if (++cursor[i] < states[i].length) {
+                return true;
+            }
+            cursor[i] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Indice dello stato corrente della i-esima macchina, nell'ordine dell'assembly.
+     */
+    public int getStateIndex(int machine) {
+        return cursor[machine];
+    }
+
+    /**
+     * Costruisce la Configuration della combinazione corrente.
+     */
+    public Configuration toConfiguration() {
+        List<BasicStateProposition> props = new ArrayList<>(cursor.length);
+        for (int i = 0; i < cursor.length; i++) {
+            if (states[i].length > 0) {
+                props.add(propositions[i][cursor[i]]);
+            }
+        }
+        return Configuration.fromBasicStatePropositions(template.getAssemblyId(), props);
+    }
+
+    /**
+     * Copia indipendente della combinazione corrente, con macchine proprie.
+     */
+    public Assembly snapshot() {
+        Assembly copy = new Assembly(template.getAssemblyId());
+        for (int i = 0; i < machineIds.length; i++) {
+            StateMachine machine = template.getStateMachines().get(machineIds[i]);
+            StateMachine clone = new StateMachine(machine.getName(), new ArrayList<>(machine.getStates()),
+                    new ArrayList<>(machine.getTransitions()), machines.get(machineIds[i]).getCurrentState(),
+                    new HashSet<>(machine.getEvents()));
+            copy.addStateMachine(machineIds[i], clone);
+        }
+        return copy;
+    }
+
+    @Override
+    public Map<String, StateMachine> getStateMachines() {
+        return machinesView;
+    }
+
+    @Override
+    public void addStateMachine(String identifier, StateMachine machine) {
+        throw new UnsupportedOperationException("An assembly view cannot be modified.");
+    }
+
+    @Override
+    public List<AssemblyInterface> getAllConcreteAssemblies() {
+        return template.getAllConcreteAssemblies();
+    }
+
+    @Override
+    public Semantics calculateInitialStateSemantics() {
+        return template.calculateInitialStateSemantics();
+    }
+
+    @Override
+    public List<BasicStateProposition> getAssemblyGuards() {
+        return template.getAssemblyGuards();
+    }
+
+    @Override
+    public List<Action> getAssemblyActions() {
+        return template.getAssemblyActions();
+    }
+}
@@ -0,0 +1,271 @@
+package assembly;
+
+import machinery.StateInterface;
+import machinery.StateMachine;
+import pws.editor.semantics.Configuration;
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Enumerates lazily the universe of fully-specified configurations of an Assembly.
+ *
+ * <p>Each configuration is identified by its rank in a mixed-radix numbering: digit i is the
+ * index of the state of the i-th machine (in assembly order, the last machine varying fastest),
+ * and the radix of digit i is the number of states of that machine. The spliterator walks a
+ * range of ranks with an odometer over the digits, so only one configuration is materialised
+ * at a time; splitting halves the range of ranks, which makes the enumeration parallelisable.
+ *
+ * <p>Besides {@link Configuration} objects, the spliterator can hand out the odometer itself as a
+ * primitive state vector (see {@link #tryAdvanceStates(Consumer)}): entry i of the vector is the
+ * state index of the i-th machine, as resolved by {@link #levelOf(String)} and
+ * {@link #stateIndexOf(int, String)}. Visiting the universe this way allocates nothing and never
+ * touches the current state of the machines, so disjoint splits can be visited concurrently.
+ *
+ * <p>As in {@link Assembly#generateUniverse()}, pseudostates are not part of the universe and
+ * machines without states are skipped.
+ */
+public final class UniverseSpliterator implements Spliterator<Configuration> {
+
+    private final Domain domain;
+    private final int[] digits;
+    private long position;
+    private final long end;
+
+    /**
+     * The machines of the universe and their states, shared by all the spliterators obtained by
+     * splitting the same root.
+     */
+    private static final class Domain {
+        final String assemblyId;
+        final BasicStateProposition[][] propositions;
+        // Digits visited in machineId order, so that configurations are built already sorted.
+        final int[] sortedDigits;
+        final Map<String, Integer> levels = new HashMap<>();
+        final List<Map<String, Integer>> states = new ArrayList<>();
+        final long size;
+
+        Domain(Assembly assembly) {
+            this.assemblyId = assembly.getAssemblyId();
+            List<BasicStateProposition[]> domains = new ArrayList<>();
+            for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+                List<BasicStateProposition> props = new ArrayList<>();
+                for (StateInterface s : entry.getValue().getStates()) {
+                    if (!s.getName().equals("PseudoState")) {
+                        props.add(new BasicStateProposition(entry.getKey(), s.getName()));
+                    }
+                }
+                // If a machine has no states, skip it.
+                if (!props.isEmpty()) {
+                    domains.add(props.toArray(new BasicStateProposition[0]));
+                }
+            }
+            this.propositions = domains.toArray(new BasicStateProposition[0][]);
+            for (int i = 0; i < propositions.length; i++) {
+                this.levels.put(propositions[i][0].getMachineId(), i);
+                Map<String, Integer> byName = new HashMap<>();
+                for (int j = 0; j < propositions[i].length; j++) {
+                    byName.put(propositions[i][j].getStateName(), j);
+                }
+                this.states.add(byName);
+            }
+            this.sortedDigits = new int[propositions.length];
+            Integer[] order = new Integer[propositions.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(i -> propositions[i][0].getMachineId()));
+            for (int i = 0; i < order.length; i++) {
+                sortedDigits[i] = order[i];
+            }
+            long product = 1;
+            for (BasicStateProposition[] level : propositions) {
+                product = Math.multiplyExact(product, level.length);
+            }
+            this.size = product;
+        }
+    }
+
+    /**
+     * Creates a spliterator over the whole universe of the given Assembly.
+     *
+     * @throws ArithmeticException if the universe has more than {@code Long.MAX_VALUE} configurations.
+     */
+    public UniverseSpliterator(Assembly assembly) {
+        this(new Domain(assembly), 0, -1);
+    }
+
+    private UniverseSpliterator(Domain domain, long from, long to) {
+        this.domain = domain;
+        this.digits = new int[domain.propositions.length];
+        this.position = from;
+        this.end = to < 0 ? domain.size : to;
+        decode(from);
+    }
+
+    /**
+     * Returns the number of configurations of the universe of the given Assembly, computed as the
+     * product of the number of states of its machines, without enumerating them.
+     *
+     * @throws ArithmeticException if the universe has more than {@code Long.MAX_VALUE} configurations.
+     */
+    static long sizeOf(Assembly assembly) {
+        long product = 1;
+        for (StateMachine machine : assembly.getStateMachines().values()) {
+            int count = 0;
+            for (StateInterface s : machine.getStates()) {
+                if (!s.getName().equals("PseudoState")) {
+                    count++;
+                }
+            }
+            if (count > 0) {
+                product = Math.multiplyExact(product, count);
+            }
+        }
+        return product;
+    }
+
+    // Sets the odometer to the configuration of the given rank.
+    private void decode(long rank) {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            int radix = domain.propositions[i].length;
+            digits[i] = (int) (rank % radix);
+            rank /= radix;
+        }
+    }
+
+    // Advances the odometer by one position, carrying from the last digit.
+    private void increment() {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (++digits[i] < domain.propositions[i].length) {
+                return;
+            }
+            digits[i] = 0;
+        }
+    }
+
+    private Configuration current() {
+        return toConfiguration(digits);
+    }
+
+    /**
+     * Returns the position of the given machine in the state vectors of this universe,
+     * or -1 if the machine is not part of it.
+     */
+    public int levelOf(String machineId) {
+        Integer level = domain.levels.get(machineId);
+        return level == null ? -1 : level;
+    }
+
+    /**
+     * Returns the index of the given state in the domain of the machine at position {@code level},
+     * or -1 if the state is not part of the universe (e.g. a pseudostate).
+     */
+    public int stateIndexOf(int level, String stateName) {
+        Integer state = domain.states.get(level).get(stateName);
+        return state == null ? -1 : state;
+    }
+
+    /**
+     * Returns the number of machines of the universe, i.e. the length of its state vectors.
+     */
+    public int levelCount() {
+        return digits.length;
+    }
+
+    /**
+     * Builds the fully-specified configuration denoted by the given state vector.
+     */
+    public Configuration toConfiguration(int[] states) {
+        List<BasicStateProposition> props = new ArrayList<>(states.length);
+        for (int i : domain.sortedDigits) {
+            props.add(domain.propositions[i][states[i]]);
+        }
+        return Configuration.fromBasicStatePropositions(domain.assemblyId, props);
+    }
+
+    /**
+     * Like {@link #tryAdvance(Consumer)}, but hands out the state vector of the next configuration
+     * instead of building it. The array is reused by the spliterator: the action must not retain it
+     * nor modify it.
+     */
+    public boolean tryAdvanceStates(Consumer<int[]> action) {
+        if (position >= end) {
+            return false;
+        }
+        action.accept(digits);
+        position++;
+        if (position < end) {
+            increment();
+        }
+        return true;
+    }
+
+    /**
+     * Like {@link #forEachRemaining(Consumer)}, but hands out state vectors
+     * (see {@link #tryAdvanceStates(Consumer)}).
+     */
+    public void forEachRemainingStates(Consumer<int[]> action) {
+        while (position < end) {
+            action.accept(digits);
+            position++;
+            if (position < end) {
+                increment();
+            }
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Configuration> action) {
+        if (position >= end) {
+            return false;
+        }
+        action.accept(current());
+        position++;
+        if (position < end) {
+            increment();
+        }
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Configuration> action) {
+        while (position < end) {
+            action.accept(current());
+            position++;
+            if (position < end) {
+                increment();
+            }
+        }
+    }
+
+    @Override
+    public UniverseSpliterator trySplit() {
+        long remaining = end - position;
+        if (remaining < 2) {
+            return null;
+        }
+        long mid = position + (remaining >>> 1);
+        UniverseSpliterator prefix = new UniverseSpliterator(domain, position, mid);
+        position = mid;
+        decode(mid);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
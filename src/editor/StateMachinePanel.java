@@ -485,6 +485,7 @@ public class StateMachinePanel extends JPanel implements MouseListener, MouseMot
                     boolean removed = stateMachine.getStates().remove(state);
                     if (removed) {
                         stateMachine.getTransitions().removeIf(t -> t.getSource() == state || t.getTarget() == state);
+                        stateMachine.invalidateEventIndex();
                         System.out.println("Lo stato e le transizioni correlate sono stati rimossi dalla struttura dati.");
                     } else {
                         System.out.println("Errore: lo stato non è stato rimosso dalla struttura dati.");
@@ -516,6 +517,7 @@ public class StateMachinePanel extends JPanel implements MouseListener, MouseMot
 //        }
         // Rimuove la transizione dalla lista globale.
         stateMachine.getTransitions().remove(t);
+        stateMachine.invalidateEventIndex();
 
         // Rimuove la transizione dalla lista delle transizioni in uscita dello stato sorgente.
         StateInterface source = t.getSource();
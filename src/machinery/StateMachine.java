@@ -6,12 +6,35 @@ import java.util.*;
 import java.util.List;
 
 public class StateMachine implements StateMachineInterface, Cloneable {
+    private static final long serialVersionUID = 4915677201179565566L;
+
     private String name;
     protected List<StateInterface> states;
     protected List<TransitionInterface> transitions;
     private StateInterface currentState;
     private Set<String> events;
     protected StateInterface pseudoState; // Pseudostato iniziale
+    // Transizioni indicizzate per evento e per sorgente, ricostruite alla prima richiesta dopo una modifica
+    private transient volatile EventIndex eventIndex;
+
+    /**
+     * Transitions grouped by trigger event, and autonomous transitions grouped by their source state,
+     * with the number of transitions they were built from: a different count means the list was
+     * edited directly and the index must be rebuilt. The sources are the state objects and not their
+     * names, so renaming a state does not make the index stale.
+     */
+    private static final class EventIndex {
+        final Map<String, List<TransitionInterface>> byEvent;
+        final Map<StateInterface, List<TransitionInterface>> autonomousBySource;
+        final int transitionCount;
+
+        EventIndex(Map<String, List<TransitionInterface>> byEvent,
+                   Map<StateInterface, List<TransitionInterface>> autonomousBySource, int transitionCount) {
+            this.byEvent = byEvent;
+            this.autonomousBySource = autonomousBySource;
+            this.transitionCount = transitionCount;
+        }
+    }
 
     public StateMachine(String name) {
         this.name = name;
@@ -72,6 +95,7 @@ public class StateMachine implements StateMachineInterface, Cloneable {
     @Override
     public void addTransition(TransitionInterface transition) {
         transitions.add(transition);
+        eventIndex = null;
         // Se la transizione è triggerable, aggiungi il trigger agli eventi della macchina.
         if (transition.isTriggerable()) {
             String trigger = transition.getTriggerEvent();
@@ -134,6 +158,54 @@ public class StateMachine implements StateMachineInterface, Cloneable {
 
     public void setTransitions(List<TransitionInterface> transitions) {
         this.transitions = transitions;
+        eventIndex = null;
+    }
+
+    /**
+     * Restituisce le transizioni con il trigger indicato, nell'ordine della lista delle transizioni
+     * (lista vuota se nessuna). L'indice è costruito una volta e invalidato da addTransition,
+     * setTransitions e invalidateEventIndex; è ricostruito anche quando cambia il numero di transizioni.
+     */
+    public List<TransitionInterface> getTransitionsByEvent(String event) {
+        return eventIndex().byEvent.getOrDefault(event, Collections.emptyList());
+    }
+
+    /**
+     * Restituisce le transizioni autonome raggruppate per stato sorgente, nell'ordine della lista delle
+     * transizioni. Le chiavi sono gli stati e non i loro nomi: il nome va letto al momento dell'uso,
+     * perché uno stato può essere rinominato senza invalidare l'indice. La mappa non è modificabile e
+     * condivide l'indice di getTransitionsByEvent.
+     */
+    public Map<StateInterface, List<TransitionInterface>> getAutonomousTransitionsBySource() {
+        return eventIndex().autonomousBySource;
+    }
+
+    private EventIndex eventIndex() {
+        EventIndex index = eventIndex;
+        if (index == null || index.transitionCount != transitions.size()) {
+            Map<String, List<TransitionInterface>> byEvent = new HashMap<>();
+            Map<StateInterface, List<TransitionInterface>> autonomousBySource = new LinkedHashMap<>();
+            for (TransitionInterface t : transitions) {
+                if (t.getTriggerEvent() != null) {
+                    byEvent.computeIfAbsent(t.getTriggerEvent(), k -> new ArrayList<>()).add(t);
+                }
+                if (t.isAutonomous() && t.getSource() != null) {
+                    autonomousBySource.computeIfAbsent(t.getSource(), k -> new ArrayList<>()).add(t);
+                }
+            }
+            byEvent.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            autonomousBySource.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            index = new EventIndex(byEvent, Collections.unmodifiableMap(autonomousBySource), transitions.size());
+            eventIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Da chiamare dopo aver modificato direttamente la lista restituita da getTransitions().
+     */
+    public void invalidateEventIndex() {
+        eventIndex = null;
     }
 
     @Override
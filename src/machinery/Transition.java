@@ -5,6 +5,7 @@ import java.util.UUID;
 
 
 public class Transition implements TransitionInterface {
+    private static final long serialVersionUID = -4302774570986582437L;
 
     private String id;
 
@@ -64,6 +65,11 @@ public class Transition implements TransitionInterface {
         return id;
     }
 
+    // Used when a saved model is loaded, to keep the identifiers of its transitions.
+    public void setId(String id) {
+        this.id = id;
+    }
+
     @Override
     public StateInterface getSource() {
         return source;
@@ -1,18 +1,33 @@
 package pws;
 
 import assembly.Action;
+import assembly.ActionList;
 import assembly.Assembly;
 import machinery.*;
+import pws.editor.semantics.AssemblyIndex;
 import pws.editor.semantics.ExitZone;
 import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsMonitor;
+import pws.editor.semantics.SemanticsMetrics;
 import pws.editor.semantics.SemanticsVisitor;
 import smalgebra.BasicStateProposition;
 import smalgebra.SMProposition;
 import smalgebra.TrueProposition;
 import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public class PWSStateMachine extends StateMachine {
     // Field to hold the Assembly that belongs to this PWSStateMachine.
@@ -20,6 +35,157 @@ public class PWSStateMachine extends StateMachine {
 
     private static final long serialVersionUID = 1L;
 
+    // Model the stored semantics were computed from, compared by updateSemantics() to find the edits.
+    // Null until the first full recalculation.
+    private transient Map<PWSTransition, TransitionSnapshot> computedTransitions;
+    private transient Set<PWSState> computedStates;
+    private transient List<String> computedAssemblyShape;
+    // Memo of the transition and guard semantics, created on first use.
+    private transient volatile TransitionSemanticsCache transitionCache;
+    // Interning table of the assembly, held so that it is released together with the model
+    private transient AssemblyIndex assemblyIndex;
+    // Copy of the assembly the snapshots compute on, kept while the assembly keeps its shape
+    private transient AssemblyCopy assemblyCopy;
+    // Set on a snapshot: the objects of the model its states and transitions were copied from
+    private transient SnapshotOrigin origin;
+
+    /**
+     * The parts of a PWSTransition its semantics and its target's semantics depend on.
+     */
+    private static final class TransitionSnapshot {
+        final StateInterface source;
+        final StateInterface target;
+        final boolean autonomous;
+        final String trigger;
+        final SMProposition guard;
+        final List<Action> actions;
+
+        TransitionSnapshot(PWSTransition t) {
+            this.source = t.getSource();
+            this.target = t.getTarget();
+            this.autonomous = t.isAutonomous();
+            this.trigger = t.getTriggerEvent();
+            this.guard = t.getGuardProposition();
+            this.actions = new ArrayList<>(t.getActionList());
+        }
+
+        private TransitionSnapshot(TransitionSnapshot other, StateInterface source, StateInterface target) {
+            this.source = source;
+            this.target = target;
+            this.autonomous = other.autonomous;
+            this.trigger = other.trigger;
+            this.guard = other.guard;
+            this.actions = other.actions;
+        }
+
+        /**
+         * The same snapshot with the endpoints replaced by their counterparts in the given map;
+         * endpoints missing from the map are kept.
+         */
+        TransitionSnapshot translate(Map<? extends StateInterface, ? extends StateInterface> states) {
+            StateInterface s = states.get(source);
+            StateInterface t = states.get(target);
+            return new TransitionSnapshot(this, s != null ? s : source, t != null ? t : target);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TransitionSnapshot)) return false;
+            TransitionSnapshot that = (TransitionSnapshot) o;
+            return source == that.source && target == that.target && autonomous == that.autonomous
+                    && Objects.equals(trigger, that.trigger) && Objects.equals(guard, that.guard)
+                    && actions.equals(that.actions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(source), System.identityHashCode(target), autonomous, trigger, guard, actions);
+        }
+    }
+
+    /**
+     * Independent copy of the component machines of an assembly, with the correspondence between
+     * their transitions and the copied ones, which the exit zones refer to.
+     */
+    private static final class AssemblyCopy {
+        final List<String> shape;
+        final Assembly assembly;
+        final Map<Transition, Transition> copies = new HashMap<>();
+        final Map<Transition, Transition> originals = new HashMap<>();
+
+        AssemblyCopy(Assembly source, List<String> shape) {
+            this.shape = shape;
+            this.assembly = new Assembly(source.getAssemblyId());
+            // A machine bound to several identifiers is copied once
+            Map<StateMachine, StateMachine> machines = new IdentityHashMap<>();
+            for (Map.Entry<String, StateMachine> entry : source.getStateMachines().entrySet()) {
+                assembly.addStateMachine(entry.getKey(), machines.computeIfAbsent(entry.getValue(), this::copy));
+            }
+        }
+
+        // Unlike StateMachine.clone(), keeps the order of the states and the current state.
+        private StateMachine copy(StateMachine machine) {
+            Map<StateInterface, StateInterface> stateCopies = new HashMap<>();
+            List<StateInterface> states = new ArrayList<>();
+            for (StateInterface s : machine.getStates()) {
+                State c = new State(s.getName(), new Point(s.getPosition()));
+                stateCopies.put(s, c);
+                states.add(c);
+            }
+            StateMachine copy = new StateMachine(machine.getName(), states, new ArrayList<>(),
+                    stateCopies.get(machine.getCurrentState()), new HashSet<>(machine.getEvents()));
+            if (stateCopies.containsKey(machine.getPseudoState())) {
+                copy.setPseudoState(stateCopies.get(machine.getPseudoState()));
+            }
+            for (TransitionInterface t : machine.getTransitions()) {
+                Transition c = new Transition(stateCopies.get(t.getSource()), stateCopies.get(t.getTarget()),
+                        t.isAutonomous(), t.getTriggerEvent());
+                copy.addTransition(c);
+                copies.put((Transition) t, c);
+                originals.put(c, (Transition) t);
+            }
+            return copy;
+        }
+
+        // The exit zones with their transitions replaced through the given map.
+        static HashSet<ExitZone> translate(Set<ExitZone> zones, Map<Transition, Transition> transitions) {
+            HashSet<ExitZone> translated = new HashSet<>();
+            for (ExitZone ez : zones) {
+                Transition t = transitions.get(ez.getTransition());
+                translated.add(t == null ? ez
+                        : new ExitZone(ez.getStateMachineId(), t, ez.getSource(), ez.getTarget()));
+            }
+            return translated;
+        }
+    }
+
+    /**
+     * The states and transitions of the model the ones of a snapshot were copied from
+     * (see {@link #snapshot()}).
+     */
+    private static final class SnapshotOrigin {
+        final Map<PWSState, PWSState> states = new HashMap<>();
+        final Map<PWSTransition, PWSTransition> transitions = new HashMap<>();
+        final AssemblyCopy assemblyCopy;
+
+        SnapshotOrigin(AssemblyCopy assemblyCopy) {
+            this.assemblyCopy = assemblyCopy;
+        }
+
+        // Missing from the map are the transitions deleted from the model before the snapshot, which
+        // the record of the last computation keeps
+        PWSState state(PWSState copy) {
+            PWSState original = states.get(copy);
+            return original != null ? original : copy;
+        }
+
+        PWSTransition transition(PWSTransition copy) {
+            PWSTransition original = transitions.get(copy);
+            return original != null ? original : copy;
+        }
+    }
+
     // Default constructor.
     // public PWSStateMachine() {
     //     super();
@@ -77,72 +243,378 @@ public class PWSStateMachine extends StateMachine {
         states.add(0, pseudo);
     }
 
+    /**
+     * Semantics computed for the states and transitions of the machine, not applied yet
+     * (see {@link #computeSemanticsUpdate(boolean, SemanticsMonitor)} and {@link #applySemantics(SemanticsUpdate)}).
+     * It also records the model the semantics were computed from.
+     */
+    public static final class SemanticsUpdate {
+        private final Map<PWSState, Semantics> stateSemantics = new LinkedHashMap<>();
+        private final Map<PWSState, HashSet<ExitZone>> reactiveSemantics = new LinkedHashMap<>();
+        private final Map<PWSTransition, Semantics> transitionSemantics = new LinkedHashMap<>();
+        private final Map<PWSTransition, TransitionSnapshot> transitions = new HashMap<>();
+        private final Set<PWSState> states = new HashSet<>();
+        private final List<String> assemblyShape;
+        // Null when computed on the model itself
+        private final SnapshotOrigin origin;
+
+        private SemanticsUpdate(PWSStateMachine machine) {
+            for (TransitionInterface t : machine.transitions) {
+                if (t instanceof PWSTransition) {
+                    transitions.put((PWSTransition) t, new TransitionSnapshot((PWSTransition) t));
+                }
+            }
+            for (StateInterface s : machine.states) {
+                states.add((PWSState) s);
+            }
+            this.assemblyShape = machine.assemblyShape();
+            this.origin = machine.origin;
+        }
+
+        /**
+         * Number of states whose semantics was recomputed.
+         */
+        public int getStateCount() {
+            return stateSemantics.size();
+        }
+
+        public boolean isEmpty() {
+            return stateSemantics.isEmpty() && transitionSemantics.isEmpty();
+        }
+    }
+
     /**
      * Recalculates and applies the semantics for all states and transitions in this PWSStateMachine.
      *
      * Steps performed:
      * 1) Initialize the pseudostate semantics by calling assembly.calculateInitialStateSemantics().
      * 2) Compute a fixed-point over all other states' semantics via SemanticsVisitor.
-     * 3) Assign the newly computed semantics back to each PWSState, skipping the pseudostate to preserve its initial semantics.
+     * 3) Assign the newly computed semantics back to each PWSState.
      * 4) Update each PWSTransition’s transitionSemantics by computing its pre- and post-conditions.
      */
     public void recalculateSemantics() {
-        // Initialize pseudostate semantics
-        if (pseudoState instanceof PWSState) {
-            PWSState pseudo = (PWSState) pseudoState;
-            Semantics init = assembly.calculateInitialStateSemantics();
-            pseudo.setStateSemantics(init);
+        applySemantics(computeSemanticsUpdate(true, SemanticsMonitor.NONE));
+    }
+
+    /**
+     * Brings the semantics up to date with the edits made since the last computation, recomputing
+     * only what the edits can affect.
+     *
+     * <p>The current model is compared with the one the stored semantics were computed from: a
+     * transition added, removed or changed (endpoints, trigger, guard or actions) invalidates its
+     * target state, and a new state invalidates itself. The invalidated states and all the states
+     * forward-reachable from them are recomputed (see SemanticsVisitor.recomputeStateSemantics),
+     * together with their exit zones and the semantics of the transitions leaving them; edited
+     * transitions get their semantics recomputed as well. The rest of the machine keeps its
+     * semantics. A change to the assembly, or the lack of a previous computation, falls back to
+     * {@link #recalculateSemantics()}.
+     */
+    public void updateSemantics() {
+        applySemantics(computeSemanticsUpdate(false, SemanticsMonitor.NONE));
+    }
+
+    /**
+     * Computes the semantics of the machine without modifying its states and transitions, so
+     * that the computation can run off the Swing event dispatch thread; the result is applied
+     * with {@link #applySemantics(SemanticsUpdate)}. The model must not be edited meanwhile: to edit
+     * it during the computation, compute on a {@link #snapshot()}.
+     *
+     * @param full    true to recompute the whole machine, false to recompute only what the
+     *                edits since the last applied computation can affect (see {@link #updateSemantics()})
+     * @param monitor receives the progress and can abort the computation
+     * @throws java.util.concurrent.CancellationException if the monitor aborts the computation
+     */
+    public SemanticsUpdate computeSemanticsUpdate(boolean full, SemanticsMonitor monitor) {
+        SemanticsUpdate update = new SemanticsUpdate(this);
+        // Cached transition semantics are only valid for the assembly they were computed on
+        getTransitionCache().validate(update.assemblyShape);
+        if (full || computedTransitions == null || !update.assemblyShape.equals(computedAssemblyShape)) {
+            computeFullUpdate(update, monitor);
+        } else {
+            computeIncrementalUpdate(update, monitor);
         }
+        return update;
+    }
 
-        // Compute fixed-point semantics for all states via SemanticsVisitor
-        Map<PWSState, Semantics> semMap = SemanticsVisitor.computeAllStateSemantics(this);
+    private void computeFullUpdate(SemanticsUpdate update, SemanticsMonitor monitor) {
+        // Intern machine ids and state names once, in assembly order, before any configuration is encoded
+        assemblyIndex = AssemblyIndex.of(assembly);
 
-        // Assign semantics to non-pseudostates
-        for (StateInterface s : getStates()) {
-            if (s instanceof PWSState && s != pseudoState) {
-                PWSState ps = (PWSState) s;
-                ps.setStateSemantics(semMap.get(ps));
+        // Compute fixed-point semantics for all states via SemanticsVisitor, in parallel rounds;
+        // the pseudostate gets the initial semantics of the assembly
+        Map<PWSState, HashSet<ExitZone>> zones = new HashMap<>();
+        Map<PWSState, Semantics> semMap = SemanticsVisitor.computeAllStateSemantics(this, zones, monitor, ForkJoinPool.commonPool());
+        for (StateInterface s : states) {
+            PWSState ps = (PWSState) s;
+            update.stateSemantics.put(ps, semMap.get(ps));
+            if (!ps.isPseudoState()) {
+                update.reactiveSemantics.put(ps, zones.get(ps));
             }
         }
 
-        // Update each PWSTransition’s semantics
+        // Compute each PWSTransition’s semantics
         for (TransitionInterface t : transitions) {
             if (t instanceof PWSTransition) {
                 PWSTransition pt = (PWSTransition) t;
-                Semantics ts = computeTransitionSemantics(pt);
-                pt.setTransitionSemantics(ts);
+                PWSState src = (PWSState) pt.getSource();
+                update.transitionSemantics.put(pt, computeTransitionSemantics(pt, semMap.get(src), zones.get(src)));
+            }
+        }
+    }
+
+    private void computeIncrementalUpdate(SemanticsUpdate update, SemanticsMonitor monitor) {
+        // States whose incoming transitions changed
+        Set<PWSState> dirty = new LinkedHashSet<>();
+        Set<PWSTransition> changed = new HashSet<>();
+        for (Map.Entry<PWSTransition, TransitionSnapshot> entry : update.transitions.entrySet()) {
+            TransitionSnapshot before = computedTransitions.get(entry.getKey());
+            if (before == null || !before.equals(entry.getValue())) {
+                changed.add(entry.getKey());
+                dirty.add((PWSState) entry.getValue().target);
+                if (before != null) {
+                    dirty.add((PWSState) before.target);
+                }
             }
         }
-        // Compute and assign reactive exit-zones for each non-pseudostate
-        for (StateInterface si : getStates()) {
-            if (si instanceof PWSState ps && !ps.isPseudoState()) {
-                // Base semantics from stateSemantics
-                Semantics baseSem = ps.getStateSemantics();
-                // Compute exit-zones based on current state semantics
-                HashSet<ExitZone> reactiveZones = computeReactiveSemantics(baseSem);
-                ps.setReactiveSemantics(reactiveZones);
+        for (Map.Entry<PWSTransition, TransitionSnapshot> entry : computedTransitions.entrySet()) {
+            if (!update.transitions.containsKey(entry.getKey())) {
+                dirty.add((PWSState) entry.getValue().target);
+            }
+        }
+        for (StateInterface s : states) {
+            if (!computedStates.contains(s)) {
+                dirty.add((PWSState) s);
+            }
+        }
+        // Removed states need no recomputation
+        dirty.retainAll(states);
+        dirty.remove(pseudoState);
+        if (dirty.isEmpty() && changed.isEmpty()) {
+            return;
+        }
+
+        Set<PWSState> region = forwardReachable(dirty);
+        Map<PWSState, HashSet<ExitZone>> zones = new HashMap<>();
+        Map<PWSState, Semantics> semMap = SemanticsVisitor.recomputeStateSemantics(this, region, zones, monitor, ForkJoinPool.commonPool());
+        for (PWSState ps : region) {
+            update.stateSemantics.put(ps, semMap.get(ps));
+            update.reactiveSemantics.put(ps, zones.get(ps));
+        }
+        for (TransitionInterface t : transitions) {
+            if (t instanceof PWSTransition && (region.contains(t.getSource()) || changed.contains(t))) {
+                PWSTransition pt = (PWSTransition) t;
+                PWSState src = (PWSState) pt.getSource();
+                HashSet<ExitZone> srcZones = region.contains(src) ? zones.get(src) : src.getReactiveSemantics();
+                update.transitionSemantics.put(pt, computeTransitionSemantics(pt, semMap.get(src), srcZones));
             }
         }
     }
 
-    public Semantics computeTransitionSemantics(PWSTransition t) {
-        if (t.isTriggerable() || ((PWSState) t.getSource()).isPseudoState()) {
-            return computeTriggerableSemantics(t);
+    /**
+     * Publishes the semantics of an update to the states and transitions of the machine, all at
+     * once; must run on the thread that edits the model (the Swing event dispatch thread). An
+     * update computed on a {@link #snapshot()} is published to the states and transitions it was
+     * copied from.
+     */
+    public void applySemantics(SemanticsUpdate update) {
+        SnapshotOrigin from = update.origin;
+        for (Map.Entry<PWSState, Semantics> entry : update.stateSemantics.entrySet()) {
+            PWSState s = from == null ? entry.getKey() : from.state(entry.getKey());
+            s.setStateSemantics(entry.getValue());
+        }
+        for (Map.Entry<PWSState, HashSet<ExitZone>> entry : update.reactiveSemantics.entrySet()) {
+            if (from == null) {
+                entry.getKey().setReactiveSemantics(entry.getValue());
+            } else {
+                from.state(entry.getKey()).setReactiveSemantics(
+                        AssemblyCopy.translate(entry.getValue(), from.assemblyCopy.originals));
+            }
+        }
+        for (Map.Entry<PWSTransition, Semantics> entry : update.transitionSemantics.entrySet()) {
+            PWSTransition t = from == null ? entry.getKey() : from.transition(entry.getKey());
+            t.setTransitionSemantics(entry.getValue());
+        }
+        if (from == null) {
+            computedTransitions = update.transitions;
+            computedStates = update.states;
         } else {
-            return computeReactiveSemantics(t);
+            computedTransitions = new HashMap<>();
+            for (Map.Entry<PWSTransition, TransitionSnapshot> entry : update.transitions.entrySet()) {
+                computedTransitions.put(from.transition(entry.getKey()), entry.getValue().translate(from.states));
+            }
+            computedStates = new HashSet<>();
+            for (PWSState s : update.states) {
+                computedStates.add(from.state(s));
+            }
         }
+        computedAssemblyShape = update.assemblyShape;
     }
 
     /**
-     * Compute semantics for a triggerable or initial transition.
+     * Returns a copy of the machine whose semantics can be computed off the Swing event dispatch
+     * thread while the model is edited; must be called on the thread that edits the model.
+     *
+     * <p>The states, the transitions and the component machines of the assembly are copied, with
+     * the guards and actions of the transitions, the semantics and exit zones stored in the states
+     * and the record of the last computation, so that the copy is updated incrementally as the
+     * model would be. The copy of the assembly is reused while the assembly keeps its shape, and
+     * the copy shares the transition semantics cache of the model. The update computed on the copy
+     * is published to the model by {@link #applySemantics(SemanticsUpdate)}.
      */
-    private Semantics computeTriggerableSemantics(PWSTransition t) {
-        // Get the source state for this transition
+    public PWSStateMachine snapshot() {
+        List<String> shape = assemblyShape();
+        if (assemblyCopy == null || !assemblyCopy.shape.equals(shape)) {
+            assemblyCopy = new AssemblyCopy(assembly, shape);
+            // The copies intern into the index of the model, which holds it
+            assemblyIndex = AssemblyIndex.of(assembly);
+        }
+        PWSStateMachine copy = new PWSStateMachine(getName());
+        copy.setAssembly(assemblyCopy.assembly);
+        copy.states.clear();
+        copy.pseudoState = null;
+        SnapshotOrigin from = new SnapshotOrigin(assemblyCopy);
+        Map<PWSState, PWSState> stateCopies = new HashMap<>();
+        for (StateInterface s : states) {
+            PWSState ps = (PWSState) s;
+            PWSState c = new PWSState(ps.getName(), new Point(ps.getPosition()), copy.assembly);
+            c.setStateSemantics(ps.getStateSemantics());
+            c.setReactiveSemantics(AssemblyCopy.translate(ps.getReactiveSemantics(), assemblyCopy.copies));
+            copy.states.add(c);
+            stateCopies.put(ps, c);
+            from.states.put(c, ps);
+            if (ps == pseudoState) {
+                copy.pseudoState = c;
+            }
+        }
+        Map<PWSTransition, PWSTransition> transitionCopies = new HashMap<>();
+        for (TransitionInterface t : transitions) {
+            if (t instanceof PWSTransition) {
+                PWSTransition pt = (PWSTransition) t;
+                PWSTransition c = new PWSTransition(stateCopies.get(pt.getSource()), stateCopies.get(pt.getTarget()),
+                        pt.isAutonomous(), pt.getTriggerEvent(), copy.assembly);
+                c.setGuardProposition(pt.getGuardProposition());
+                c.setActionList(new ActionList(pt.getActionList()));
+                copy.transitions.add(c);
+                transitionCopies.put(pt, c);
+                from.transitions.put(c, pt);
+            }
+        }
+        if (computedTransitions != null) {
+            copy.computedTransitions = new HashMap<>();
+            for (Map.Entry<PWSTransition, TransitionSnapshot> entry : computedTransitions.entrySet()) {
+                PWSTransition c = transitionCopies.get(entry.getKey());
+                copy.computedTransitions.put(c != null ? c : entry.getKey(), entry.getValue().translate(stateCopies));
+            }
+            copy.computedStates = new HashSet<>();
+            for (PWSState s : computedStates) {
+                if (stateCopies.containsKey(s)) {
+                    copy.computedStates.add(stateCopies.get(s));
+                }
+            }
+            copy.computedAssemblyShape = computedAssemblyShape;
+        }
+        copy.transitionCache = getTransitionCache();
+        copy.origin = from;
+        return copy;
+    }
+
+    // The dirty states and every state reachable from them, in declaration order.
+    private Set<PWSState> forwardReachable(Set<PWSState> dirty) {
+        Map<StateInterface, List<StateInterface>> successors = new HashMap<>();
+        for (TransitionInterface t : transitions) {
+            successors.computeIfAbsent(t.getSource(), k -> new ArrayList<>()).add(t.getTarget());
+        }
+        Set<StateInterface> reached = new HashSet<>(dirty);
+        Deque<StateInterface> queue = new ArrayDeque<>(dirty);
+        while (!queue.isEmpty()) {
+            for (StateInterface next : successors.getOrDefault(queue.poll(), Collections.emptyList())) {
+                if (next != pseudoState && reached.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        Set<PWSState> region = new LinkedHashSet<>();
+        for (StateInterface s : states) {
+            if (reached.contains(s)) {
+                region.add((PWSState) s);
+            }
+        }
+        return region;
+    }
+
+    // Machines, states and transitions of the assembly, as compared by updateSemantics().
+    private List<String> assemblyShape() {
+        List<String> shape = new ArrayList<>();
+        shape.add(assembly.getAssemblyId());
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            shape.add("M " + entry.getKey());
+            for (StateInterface s : entry.getValue().getStates()) {
+                shape.add("S " + s.getName());
+            }
+            for (TransitionInterface t : entry.getValue().getTransitions()) {
+                shape.add("T " + t.getSource().getName() + " " + t.getTarget().getName()
+                        + " " + t.isAutonomous() + " " + t.getTriggerEvent());
+            }
+        }
+        return shape;
+    }
+
+    public Semantics computeTransitionSemantics(PWSTransition t) {
         PWSState src = (PWSState) t.getSource();
-        // Retrieve the full semantics of the source state
-        Semantics stateSem = src.getStateSemantics();
-        // Convert the transition's guard proposition into semantics
-        Semantics guardSem = t.getGuardProposition().toSemantics(assembly);
+        return computeTransitionSemantics(t, src.getStateSemantics(), src.getReactiveSemantics());
+    }
+
+    /**
+     * Computes the semantics of a transition from the given semantics and exit zones of its source,
+     * instead of the ones currently stored in the source PWSState.
+     */
+    public Semantics computeTransitionSemantics(PWSTransition t, Semantics stateSem, Set<ExitZone> reactiveSem) {
+        boolean reactive = !(t.isTriggerable() || ((PWSState) t.getSource()).isPseudoState());
+        // Only recomputed when the guard, the actions or the source semantics changed
+        return getTransitionCache().transitionSemantics(reactive, t.getGuardProposition(), t.getActionList(),
+                stateSem, reactiveSem, () -> {
+                    long start = SemanticsMetrics.start();
+                    Semantics result = reactive
+                            ? computeReactiveSemantics(t, stateSem, reactiveSem)
+                            : computeTriggerableSemantics(t, stateSem);
+                    SemanticsMetrics.stop(reactive ? SemanticsMetrics.Operation.REACTIVE_TRANSITION
+                            : SemanticsMetrics.Operation.TRIGGERABLE_TRANSITION, start, result.configurationCount());
+                    SemanticsMetrics.stopTransition(origin == null ? t : origin.transition(t), start);
+                    return result;
+                });
+    }
+
+    /**
+     * Memo of the transition semantics of this machine (see {@link TransitionSemanticsCache}).
+     * Its entries are kept while the assembly does not change.
+     */
+    public TransitionSemanticsCache getTransitionCache() {
+        TransitionSemanticsCache cache = transitionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = transitionCache;
+                if (cache == null) {
+                    cache = new TransitionSemanticsCache();
+                    cache.validate(assemblyShape());
+                    transitionCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Compute semantics for a triggerable or initial transition.
+     */
+    private Semantics computeTriggerableSemantics(PWSTransition t, Semantics stateSem) {
+        // Convert the transition's guard proposition into semantics, once per assembly version
+        SMProposition guard = t.getGuardProposition();
+        Semantics guardSem = getTransitionCache().guardSemantics(guard, () -> {
+            long start = SemanticsMetrics.start();
+            Semantics semantics = guard.toSemantics(assembly);
+            SemanticsMetrics.stop(SemanticsMetrics.Operation.GUARD, start, semantics.configurationCount());
+            return semantics;
+        });
         // Compute the intersection of stateSem and the guard semantics
         Semantics result = stateSem.AND(guardSem);
         // Apply each associated action event to the result
@@ -157,18 +629,14 @@ public class PWSStateMachine extends StateMachine {
     /**
      * Compute semantics for a reactive (autonomous) transition.
      */
-    private Semantics computeReactiveSemantics(PWSTransition t) {
-        // Retrieve the source state of the transition
-        PWSState src = (PWSState) t.getSource();
-        // Get the current full semantics of the source state
-        Semantics stateSem = src.getStateSemantics();
+    private Semantics computeReactiveSemantics(PWSTransition t, Semantics stateSem, Set<ExitZone> reactiveSem) {
         // Cast the transition guard to a BasicStateProposition to use as the reactive trigger
         // Determine the guard proposition for this transition (could be BasicStateProposition or TrueProposition)
         SMProposition guardProp = t.getGuardProposition();
         // Initialize accumulator to ⊥ for reactive contributions
         Semantics result = Semantics.bottom(assembly.getAssemblyId());
         // Iterate over all exit zones of the source state
-        for (ExitZone ez : src.getReactiveSemantics()) {
+        for (ExitZone ez : reactiveSem) {
             // Check if this exit zone's target proposition matches the transition guard
             if (guardProp instanceof TrueProposition
                     || ez.getTarget().equals(guardProp)) {
@@ -214,46 +682,46 @@ public class PWSStateMachine extends StateMachine {
         return orSem;
     }
 
+    /**
+     * Calcola le exit zone della semantica: una transizione autonoma di una macchina m da S a T dà luogo
+     * a una exit zone se e solo se { m:S } ha intersezione non nulla con la semantica e { m:T } ha
+     * intersezione nulla. Le intersezioni si riducono a ricerche negli stati raggiungibili di m
+     * (vedi Semantics.stateDomain), e le transizioni autonome sono cercate nell'indice per
+     * sorgente di ciascuna macchina.
+     */
     public HashSet<ExitZone> computeReactiveSemantics(Semantics baseSemantics) {
         HashSet<ExitZone> reactiveSem = new HashSet<>();
         Map<String, StateMachine> stateMachines = assembly.getStateMachines();
-        if (stateMachines != null) {
-            for (Map.Entry<String, StateMachine> entry : stateMachines.entrySet()) {
-                String machineId = entry.getKey();
-                StateMachine machine = entry.getValue();
-                List<TransitionInterface> allTransitions = machine.getTransitions();
-                if (allTransitions != null) {
-                    for (TransitionInterface t : allTransitions) {
-                        if (t instanceof Transition) {
-                            Transition transition = (Transition) t;
-                            if (transition.isAutonomous()) {
-                                State sourceState = (State) transition.getSource();
-                                State targetState = (State) transition.getTarget();
-                                BasicStateProposition bs_source = new BasicStateProposition(machineId, sourceState.getName());
-                                BasicStateProposition bs_target = null;
-                                // una trans. autononome da luogo a una EZ se e solo se:
-                                // - la sorgente della bsp ha un'intersezione non nulla con la sem. dello stato
-                                // - il target della bsp ha un'intersezione nulla con la sem. dello stato
-                                Semantics sourceAndSem = bs_source.toSemantics( assembly ).AND(baseSemantics);
-                                if( !sourceAndSem.ISEMPTY()) {
-                                    bs_target = new BasicStateProposition(machineId, targetState.getName());
-                                    Semantics targetAndSem = bs_target.toSemantics( assembly ).AND(baseSemantics);
-                                    if( targetAndSem.ISEMPTY()) {
-                                        ExitZone ez = new ExitZone(
-                                                machineId,
-                                                transition,
-                                                bs_source,
-                                                bs_target
-                                        );
-                                        reactiveSem.add(ez);
-                                    }
-                                }
-                            }
-                        }
+        if (stateMachines == null || baseSemantics.ISEMPTY()) {
+            return reactiveSem;
+        }
+        long start = SemanticsMetrics.start();
+        for (Map.Entry<String, StateMachine> entry : stateMachines.entrySet()) {
+            String machineId = entry.getKey();
+            Set<String> states = baseSemantics.stateDomain(machineId, assembly);
+            for (Map.Entry<StateInterface, List<TransitionInterface>> bySource : entry.getValue().getAutonomousTransitionsBySource().entrySet()) {
+                // la sorgente deve avere un'intersezione non nulla con la sem. dello stato;
+                // il nome è letto ora, perché lo stato può essere stato rinominato
+                String source = bySource.getKey().getName();
+                if (!states.contains(source)) {
+                    continue;
+                }
+                for (TransitionInterface t : bySource.getValue()) {
+                    // il target deve avere un'intersezione nulla con la sem. dello stato
+                    if (t instanceof Transition && !states.contains(t.getTarget().getName())) {
+                        Transition transition = (Transition) t;
+                        reactiveSem.add(new ExitZone(
+                                machineId,
+                                transition,
+                                new BasicStateProposition(machineId, source),
+                                new BasicStateProposition(machineId, t.getTarget().getName())
+                        ));
                     }
                 }
             }
         }
+        // La dimensione registrata è il numero di exit zone
+        SemanticsMetrics.stop(SemanticsMetrics.Operation.EXIT_ZONES, start, reactiveSem.size());
         return reactiveSem;
     }
 
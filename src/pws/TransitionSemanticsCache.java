@@ -0,0 +1,214 @@
+package pws;
+
+import assembly.Action;
+import pws.editor.semantics.ExitZone;
+import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsMetrics;
+import smalgebra.SMProposition;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded memo of the semantics of PWSTransitions, and of the Semantics of their guards.
+ *
+ * <p>The semantics of a transition only depends on its kind, its guard, its actions and the
+ * semantics of its source (with the exit zones of that semantics, for reactive transitions):
+ * the cache is keyed on exactly these inputs, so a transition is only recomputed when one of
+ * them actually changed, and transitions with the same inputs share their entry. The guard
+ * Semantics, a scan of the whole universe, are memoised separately. Both tables also depend on
+ * the assembly: they are emptied when its version (the shape of its machines) changes.
+ *
+ * <p>Both tables evict their least recently used entries past their capacity. The cache is
+ * shared by the threads evaluating a fixed point: lookups are synchronized, while the values
+ * are computed outside the lock. Keys and values are private copies, so that callers may
+ * modify the Semantics they pass in and get back.
+ */
+public final class TransitionSemanticsCache {
+    public static final int DEFAULT_TRANSITION_CAPACITY = 4096;
+    public static final int DEFAULT_GUARD_CAPACITY = 256;
+
+    private final Map<Key, Semantics> transitions;
+    private final Map<SMProposition, Semantics> guards;
+    private Object assemblyVersion;
+    private long hits;
+    private long misses;
+    private long guardHits;
+    private long guardMisses;
+
+    public TransitionSemanticsCache() {
+        this(DEFAULT_TRANSITION_CAPACITY, DEFAULT_GUARD_CAPACITY);
+    }
+
+    public TransitionSemanticsCache(int transitionCapacity, int guardCapacity) {
+        this.transitions = lruMap(transitionCapacity);
+        this.guards = lruMap(guardCapacity);
+    }
+
+    private static <K, V> Map<K, V> lruMap(int capacity) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Empties the cache if the assembly version differs from the one of the cached entries.
+     */
+    public synchronized void validate(Object version) {
+        if (!Objects.equals(version, assemblyVersion)) {
+            transitions.clear();
+            guards.clear();
+            assemblyVersion = version;
+        }
+    }
+
+    /**
+     * Returns the semantics of a transition with the given inputs, computing it on a miss.
+     *
+     * @param reactive    true for a reactive transition, whose semantics depends on the exit zones
+     * @param reactiveSem exit zones of the source semantics, ignored for triggerable transitions
+     */
+    public Semantics transitionSemantics(boolean reactive, SMProposition guard, List<Action> actions,
+                                         Semantics stateSem, Set<ExitZone> reactiveSem,
+                                         Supplier<Semantics> compute) {
+        Key key = new Key(reactive, guard, actions, stateSem, reactive ? reactiveSem : null);
+        Semantics cached;
+        synchronized (this) {
+            cached = transitions.get(key);
+            if (cached != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        SemanticsMetrics.transitionLookup(cached != null);
+        if (cached != null) {
+            return copy(cached);
+        }
+        Semantics result = compute.get();
+        Semantics stored = copy(result);
+        synchronized (this) {
+            transitions.put(key.detach(), stored);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Semantics of a guard over the universe of the assembly, computing it on a miss.
+     * The result is shared: it must not be modified.
+     */
+    public Semantics guardSemantics(SMProposition guard, Supplier<Semantics> compute) {
+        Semantics cached;
+        synchronized (this) {
+            cached = guards.get(guard);
+            if (cached != null) {
+                guardHits++;
+            } else {
+                guardMisses++;
+            }
+        }
+        SemanticsMetrics.guardLookup(cached != null);
+        if (cached != null) {
+            return cached;
+        }
+        Semantics result = compute.get();
+        synchronized (this) {
+            guards.put(guard, result);
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        transitions.clear();
+        guards.clear();
+        hits = misses = guardHits = guardMisses = 0;
+    }
+
+    public synchronized int size() {
+        return transitions.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getGuardHits() {
+        return guardHits;
+    }
+
+    public synchronized long getGuardMisses() {
+        return guardMisses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TransitionSemanticsCache{entries=" + transitions.size() + ", hits=" + hits + ", misses=" + misses
+                + ", guards=" + guards.size() + ", guardHits=" + guardHits + ", guardMisses=" + guardMisses + "}";
+    }
+
+    // Constant time for the stored entries, whose configurations are shared with their copies.
+    private static Semantics copy(Semantics semantics) {
+        return semantics.clone();
+    }
+
+    /**
+     * Inputs of a transition semantics. The hash is computed once, on the Semantics as it was
+     * when the key was built.
+     */
+    private static final class Key {
+        final boolean reactive;
+        final SMProposition guard;
+        final List<Action> actions;
+        final Semantics stateSem;
+        final Set<ExitZone> reactiveSem;
+        final int hash;
+
+        Key(boolean reactive, SMProposition guard, List<Action> actions, Semantics stateSem, Set<ExitZone> reactiveSem) {
+            this(reactive, guard, actions, stateSem, reactiveSem,
+                    Objects.hash(reactive, guard, actions, stateSem, reactiveSem));
+        }
+
+        private Key(boolean reactive, SMProposition guard, List<Action> actions, Semantics stateSem,
+                    Set<ExitZone> reactiveSem, int hash) {
+            this.reactive = reactive;
+            this.guard = guard;
+            this.actions = actions;
+            this.stateSem = stateSem;
+            this.reactiveSem = reactiveSem;
+            this.hash = hash;
+        }
+
+        // A copy of the key that no longer shares the caller's mutable objects.
+        Key detach() {
+            return new Key(reactive, guard, new ArrayList<>(actions), copy(stateSem),
+                    reactiveSem == null ? null : Set.copyOf(reactiveSem), hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return hash == that.hash && reactive == that.reactive && Objects.equals(guard, that.guard)
+                    && actions.equals(that.actions) && stateSem.equals(that.stateSem)
+                    && Objects.equals(reactiveSem, that.reactiveSem);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
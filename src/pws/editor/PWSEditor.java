@@ -7,7 +7,9 @@ import editor.StateMachineEditor;
 import machinery.StateMachine;
 import pws.PWSState;
 import pws.PWSStateMachine;
+import pws.editor.semantics.SemanticsMetrics;
 import serializer.BinaryModelSerializer;
+import serializer.ModelLayout;
 import utility.SVGExporter;
 import java.util.logging.Logger;
 import java.util.logging.Handler;
@@ -16,6 +18,8 @@ import java.util.logging.SimpleFormatter;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
 
 public class PWSEditor extends JFrame {
@@ -25,6 +29,8 @@ public class PWSEditor extends JFrame {
     private StateMachineEditor baseEditor;  // Editor for the current state machine
     private PWSPanel assemblyPanel;         // Panel to manage the Assembly
     private JTabbedPane tabbedPane;         // Panel to switch between baseEditor and assemblyPanel
+    private SemanticsMetricsPanel metricsPanel; // Metrics of the semantics computation, docked as a tab
+    private JFrame metricsFrame;            // Window of the metrics panel while undocked
 
     // The main PWSEditor window uses a fixed title, e.g. "PWSEditor"
     public PWSEditor(PWSStateMachine machine) {
@@ -52,9 +58,52 @@ public class PWSEditor extends JFrame {
         tabbedPane.addTab("Editor", editorPanel);
         tabbedPane.addTab("Assembly", assemblyPanel);
 
+        metricsPanel = new SemanticsMetricsPanel((PWSStateMachinePanel) baseEditor.getStateMachinePanel());
+        metricsPanel.setDockAction(this::toggleMetricsDocking);
+        tabbedPane.addTab("Metriche", metricsPanel);
+
         getContentPane().add(tabbedPane, BorderLayout.CENTER);
     }
 
+    // Replaces the machine being edited with a loaded one, rebuilding the editor and assembly tabs.
+    private void installMachine(PWSStateMachine machine) {
+        pwsStateMachine = machine;
+        baseEditor.dispose();
+        baseEditor = new PWSStateMachineEditor(pwsStateMachine, "PWSMachine");
+        JPanel editorPanel = new JPanel(new BorderLayout());
+        editorPanel.add(baseEditor.getContentPane(), BorderLayout.CENTER);
+        tabbedPane.setComponentAt(0, editorPanel);
+        assemblyPanel = new PWSPanel(pwsStateMachine.getAssembly());
+        tabbedPane.setComponentAt(1, assemblyPanel);
+        metricsPanel.setCanvas((PWSStateMachinePanel) baseEditor.getStateMachinePanel());
+        revalidate();
+        repaint();
+    }
+
+    // Moves the metrics panel from its tab to a separate window, or back when the window is closed.
+    private void toggleMetricsDocking() {
+        if (metricsFrame != null) {
+            metricsFrame.dispose();
+            return;
+        }
+        tabbedPane.remove(metricsPanel);
+        metricsFrame = new JFrame("Metriche della semantica");
+        metricsFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        metricsFrame.getContentPane().add(metricsPanel, BorderLayout.CENTER);
+        metricsFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                metricsFrame = null;
+                tabbedPane.addTab("Metriche", metricsPanel);
+                metricsPanel.setDocked(true);
+            }
+        });
+        metricsPanel.setDocked(false);
+        metricsFrame.setSize(700, 450);
+        metricsFrame.setLocationRelativeTo(this);
+        metricsFrame.setVisible(true);
+    }
+
     private JMenuBar createMenuBar() {
         JMenuBar menuBar = new JMenuBar();
 
@@ -123,13 +172,10 @@ public class PWSEditor extends JFrame {
             int option = fileChooser.showSaveDialog(PWSEditor.this);
             if (option == JFileChooser.APPROVE_OPTION) {
                 File file = fileChooser.getSelectedFile();
-                try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-                    // Write the model first
-                    oos.writeObject(pwsStateMachine);
-                    // Write the layout data from the state machine panel.
-                    // Note: Ensure that PWSStateMachinePanel has the method saveAnnotationsToStream.
-                    ((PWSStateMachinePanel) baseEditor.getStateMachinePanel()).saveAnnotationsToStream(oos);
-                    oos.flush();
+                try {
+                    // Model, computed semantics and layout of the annotations in the binary format
+                    ModelLayout layout = ((PWSStateMachinePanel) baseEditor.getStateMachinePanel()).captureLayout();
+                    BinaryModelSerializer.save(pwsStateMachine, layout, file.toPath(), true);
                     JOptionPane.showMessageDialog(PWSEditor.this, "Modello e layout salvati correttamente.");
                 } catch (IOException ex) {
                     ex.printStackTrace();
@@ -146,25 +192,16 @@ public class PWSEditor extends JFrame {
             int option = fileChooser.showOpenDialog(PWSEditor.this);
             if (option == JFileChooser.APPROVE_OPTION) {
                 File file = fileChooser.getSelectedFile();
-                try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                    Object obj = ois.readObject();
-                    if (obj instanceof PWSStateMachine) {
-                        pwsStateMachine = (PWSStateMachine) obj;
-                        baseEditor.dispose();
-                        baseEditor = new PWSStateMachineEditor(pwsStateMachine, "PWSMachine");
-                        JPanel editorPanel = new JPanel(new BorderLayout());
-                        editorPanel.add(baseEditor.getContentPane(), BorderLayout.CENTER);
-                        tabbedPane.setComponentAt(0, editorPanel);
-                        assemblyPanel = new PWSPanel(pwsStateMachine.getAssembly());
-                        tabbedPane.setComponentAt(1, assemblyPanel);
-                        // Now load the layout data.
-                        ((PWSStateMachinePanel) baseEditor.getStateMachinePanel()).loadAnnotationsFromStream(ois);
-                        revalidate();
-                        repaint();
-                        JOptionPane.showMessageDialog(PWSEditor.this, "Modello e layout caricati correttamente.");
-                    } else {
-                        JOptionPane.showMessageDialog(PWSEditor.this, "Il file selezionato non contiene dati validi.");
+                try {
+                    BinaryModelSerializer.LoadedModel loaded = BinaryModelSerializer.isBinaryModel(file.toPath())
+                            ? BinaryModelSerializer.load(file.toPath())
+                            // File salvato con la serializzazione Java dalle versioni precedenti
+                            : BinaryModelSerializer.loadSerialized(file.toPath());
+                    installMachine(loaded.getMachine());
+                    if (loaded.getLayout() != null) {
+                        ((PWSStateMachinePanel) baseEditor.getStateMachinePanel()).applyLayout(loaded.getLayout());
                     }
+                    JOptionPane.showMessageDialog(PWSEditor.this, "Modello e layout caricati correttamente.");
                 } catch (IOException | ClassNotFoundException ex) {
                     ex.printStackTrace();
                     JOptionPane.showMessageDialog(PWSEditor.this, "Errore durante il caricamento: " + ex.getMessage());
@@ -281,6 +318,8 @@ public class PWSEditor extends JFrame {
     public static void main(String[] args) {
         // Simplify logs: only show the message text
         System.setProperty("java.util.logging.SimpleFormatter.format", "%5$s%n");
+        // Metrics of the semantics computation, readable from jconsole
+        SemanticsMetrics.registerMBean();
         Logger rootLogger = Logger.getLogger("");
         for (Handler handler : rootLogger.getHandlers()) {
             handler.setFormatter(new SimpleFormatter() {
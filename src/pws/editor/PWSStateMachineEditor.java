@@ -2,11 +2,14 @@ package pws.editor;
 
 import editor.StateMachineEditor;
 import pws.PWSStateMachine;
+import pws.editor.semantics.SemanticsMonitor;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class PWSStateMachineEditor extends StateMachineEditor {
 
@@ -20,19 +23,47 @@ public class PWSStateMachineEditor extends StateMachineEditor {
         // Crea una toolbar per aggiungere il pulsante "Aggiorna semantica"
         JPanel toolbar = new JPanel();
         toolbar.setLayout(new FlowLayout(FlowLayout.LEFT));
+        SemanticsService semanticsService = ((PWSStateMachinePanel) statePanel).getSemanticsService();
         JButton updateSemanticButton = new JButton("Aggiorna semantica");
+        JButton cancelSemanticButton = new JButton("Interrompi");
+        JLabel semanticStatus = new JLabel(" ");
+        cancelSemanticButton.setEnabled(false);
         updateSemanticButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                // Richiama il metodo recalculateSemantics sulla state machine
-                ((PWSStateMachine) stateMachine).recalculateSemantics();
-                statePanel.revalidate();
-                statePanel.repaint();
+                // Ricalcola la semantica della state machine in background
+                semanticsService.recalculate();
+                cancelSemanticButton.setEnabled(true);
+                semanticStatus.setText("Calcolo della semantica...");
+            }
+        });
+        cancelSemanticButton.addActionListener(e -> semanticsService.cancel());
+        semanticsService.setListener(new SemanticsService.Listener() {
+            @Override
+            public void progress(SemanticsMonitor.Progress progress) {
+                cancelSemanticButton.setEnabled(true);
+                semanticStatus.setText("Calcolo della semantica: " + progress);
+            }
+
+            @Override
+            public void finished(SemanticsService.Outcome outcome, String message) {
+                cancelSemanticButton.setEnabled(false);
+                semanticStatus.setText(message);
             }
         });
         toolbar.add(updateSemanticButton);
+        toolbar.add(cancelSemanticButton);
+        toolbar.add(semanticStatus);
         getContentPane().add(toolbar, BorderLayout.NORTH);
 
+        // Interrompe il calcolo in corso alla chiusura dell'editor
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                semanticsService.shutdown();
+            }
+        });
+
         revalidate();
         repaint();
     }
@@ -15,6 +15,8 @@ import pws.editor.annotation.GuardAnnotation;
 import pws.editor.annotation.StateSemanticsAnnotation;
 import pws.editor.annotation.TransitionSemanticsAnnotation;
 import pws.editor.semantics.Semantics;
+import pws.editor.semantics.SemanticsMetrics;
+import serializer.ModelLayout;
 import smalgebra.SMProposition;
 
 import javax.swing.*;
@@ -29,18 +31,18 @@ import java.util.List;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.EOFException;
-import java.io.IOException;
 
 // ... rest of your imports ...
 
 public class PWSStateMachinePanel extends StateMachinePanel {
+    private final SemanticsService semanticsService;
+    // Soglia oltre la quale una transizione è evidenziata come lenta; negativa per non evidenziare
+    private long slowTransitionNanos = -1;
 
     public PWSStateMachinePanel(PWSStateMachine stateMachine) {
         super(stateMachine);
         setLayout(null);
+        semanticsService = new SemanticsService(stateMachine, this);
         // Mouse listeners are inherited from StateMachinePanel.
     }
 
@@ -49,6 +51,24 @@ public class PWSStateMachinePanel extends StateMachinePanel {
         return (PWSStateMachine) stateMachine;
     }
 
+    /** Computes the semantics of the machine in background and repaints the panel when done. */
+    public SemanticsService getSemanticsService() {
+        return semanticsService;
+    }
+
+    /**
+     * Evidenzia le transizioni il cui ultimo calcolo della semantica (vedi SemanticsMetrics) ha
+     * richiesto almeno la soglia data; una soglia negativa spegne l'evidenziazione.
+     */
+    public void setSlowTransitionThreshold(long nanos) {
+        slowTransitionNanos = nanos;
+        repaint();
+    }
+
+    public long getSlowTransitionThreshold() {
+        return slowTransitionNanos;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -125,9 +145,22 @@ public class PWSStateMachinePanel extends StateMachinePanel {
         // Disegna la curva della transizione.
         QuadCurve2D.Double curve = new QuadCurve2D.Double();
         curve.setCurve(p0.x, p0.y, cp.x, cp.y, p2.x, p2.y);
-        g2d.setColor(Color.BLACK);
-        g2d.draw(curve);
-        drawArrowHead(g2d, p0, p2, cp);
+        long elapsed = slowTransitionNanos >= 0 && t instanceof PWSTransition
+                ? SemanticsMetrics.getTransitionNanos((PWSTransition) t) : -1;
+        if (elapsed >= slowTransitionNanos && elapsed >= 0) {
+            // Transizione lenta: arco rosso e più spesso, con il tempo dell'ultimo calcolo
+            Stroke oldStroke = g2d.getStroke();
+            g2d.setStroke(new BasicStroke(3));
+            g2d.setColor(Color.RED);
+            g2d.draw(curve);
+            drawArrowHead(g2d, p0, p2, cp);
+            g2d.setStroke(oldStroke);
+            g2d.drawString(String.format("%.1f ms", elapsed / 1_000_000.0), cp.x + 6, cp.y - 6);
+        } else {
+            g2d.setColor(Color.BLACK);
+            g2d.draw(curve);
+            drawArrowHead(g2d, p0, p2, cp);
+        }
 
         // Disegna l'annotazione del trigger o, se vuota (transizione autonoma), un pallino bianco.
         String trigger = t.getTriggerEvent();
@@ -277,12 +310,39 @@ public class PWSStateMachinePanel extends StateMachinePanel {
     }
 
     /**
-     * Draws separate annotations for a PWSTransition: guard, actions, and transition semantics.
+     * Crea l'annotazione della guardia di pt e la aggiunge al pannello; modificare la guardia
+     * aggiorna la semantica. Usata sia al disegno sia al caricamento di un layout.
      */
-    private void drawPWSTransitionAnnotations(Graphics2D g2d, PWSTransition pt, Point p0, Point cp, Point p2) {
-        // Recupera l'assembly dal stateMachine
+    private GuardAnnotation createGuardAnnotation(PWSTransition pt) {
+        Assembly assembly = ((PWSStateMachine) stateMachine).getAssembly();
+        GuardAnnotation guardAnnot = new GuardAnnotation(pt.getGuardProposition(), assembly, newGuard -> {
+            pt.setGuardProposition(newGuard);
+            refreshSemantics();
+        });
+        pt.setGuardAnnotation(guardAnnot);
+        add(guardAnnot);
+        return guardAnnot;
+    }
+
+    /**
+     * Crea l'annotazione delle azioni di pt e la aggiunge al pannello; modificare le azioni
+     * aggiorna la semantica.
+     */
+    private ActionAnnotation createActionAnnotation(PWSTransition pt) {
         Assembly assembly = ((PWSStateMachine) stateMachine).getAssembly();
+        ActionAnnotation actionAnnot = new ActionAnnotation(pt.getActionList(), assembly, newActions -> {
+            pt.setActionList(newActions);
+            refreshSemantics();
+        });
+        pt.setActionAnnotation(actionAnnot);
+        add(actionAnnot);
+        return actionAnnot;
+    }
 
+    /**
+     * Draws separate annotations for a PWSTransition: guard, actions, and transition semantics.
+     */
+    private void drawPWSTransitionAnnotations(Graphics2D g2d, PWSTransition pt, Point p0, Point cp, Point p2) {
         // ---- Guard Annotation ----
         SMProposition guardProp = pt.getGuardProposition();
         if (pt.getGuardAnnotation() == null) {
@@ -290,14 +350,10 @@ public class PWSStateMachinePanel extends StateMachinePanel {
             Point guardPoint = computePointOnCurve(p0, cp, p2, 0.2);
             int guardX = guardPoint.x - 60; // adjust horizontal offset
             int guardY = guardPoint.y - 20; // adjust vertical offset
-            GuardAnnotation guardAnnot = new GuardAnnotation(guardProp, assembly, newGuard -> {
-                pt.setGuardProposition(newGuard);
-            });
+            GuardAnnotation guardAnnot = createGuardAnnotation(pt);
             guardAnnot.setBounds(guardX, guardY, 120, 20);
             // For both reactive and triggerable transitions, pass guardProp directly.
             guardAnnot.setContent(guardProp);
-            pt.setGuardAnnotation(guardAnnot);
-            add(guardAnnot);
         } else {
             pt.getGuardAnnotation().setContent(guardProp);
         }
@@ -308,12 +364,8 @@ public class PWSStateMachinePanel extends StateMachinePanel {
             Point actionPoint = computePointOnCurve(p0, cp, p2, 0.5);
             int actionX = actionPoint.x - 75; // adatta l'offset orizzontale
             int actionY = actionPoint.y + 20; // adatta l'offset verticale
-            ActionAnnotation actionAnnot = new ActionAnnotation(actions, assembly, newActions -> {
-                pt.setActionList(newActions);
-            });
+            ActionAnnotation actionAnnot = createActionAnnotation(pt);
             actionAnnot.setBounds(actionX, actionY, 150, 20);
-            pt.setActionAnnotation(actionAnnot);
-            add(actionAnnot);
         } else {
             pt.getActionAnnotation().setContent(actions);
         }
@@ -450,6 +502,7 @@ public class PWSStateMachinePanel extends StateMachinePanel {
                     // I campi della transizione (guardProposition, actionList, transitionSemantics) sono
                     // inizializzati ai valori di default (TrueProposition, lista vuota, TrueProposition).
                     stateMachine.addTransition(newTransition);
+                    refreshSemantics();
                     System.out.println("Initial transition created: PseudoState -> " + clickedState.getName());
                 } else {
                     JOptionPane.showMessageDialog(this, "An initial transition for this state already exists.");
@@ -486,6 +539,7 @@ public class PWSStateMachinePanel extends StateMachinePanel {
                     // The user can later modify them by clicking on the corresponding annotations.
 
                     stateMachine.addTransition(newTransition);
+                    refreshSemantics();
                     System.out.println("Link mode: Transition created from " +
                             transitionSourceState.getName() + " to " + clickedState.getName());
                 } else {
@@ -735,7 +789,8 @@ public class PWSStateMachinePanel extends StateMachinePanel {
 //                            }
                         }
                     }
-                    repaint();
+                    stateMachine.invalidateEventIndex();
+                    refreshSemantics();
                 }
             });
             popup.add(deleteItem);
@@ -763,112 +818,91 @@ public class PWSStateMachinePanel extends StateMachinePanel {
 
 
 
-    public void saveAnnotationsToStream(ObjectOutputStream oos) throws IOException {
-        // Save state annotations.
+    /**
+     * Restituisce le posizioni delle annotazioni aperte sul canvas, da salvare con il modello.
+     */
+    public ModelLayout captureLayout() {
+        ModelLayout layout = new ModelLayout();
         for (StateInterface s : stateMachine.getStates()) {
-            if (s instanceof PWSState) {
+            if (s instanceof PWSState && ((PWSState) s).getAnnotation() != null) {
                 PWSState pState = (PWSState) s;
-                String stateName = pState.getName();
-                Rectangle annotBounds = (pState.getAnnotation() != null) ? pState.getAnnotation().getBounds() : null;
-                oos.writeUTF(stateName);
-                oos.writeObject(annotBounds);
+                layout.setStateAnnotation(pState, pState.getAnnotation().getBounds());
             }
         }
-        oos.writeUTF("END_STATES");
-
-        // Save transition annotations.
         for (TransitionInterface t : stateMachine.getTransitions()) {
             if (t instanceof PWSTransition) {
                 PWSTransition pt = (PWSTransition) t;
-                String transitionId = pt.getId();
                 Rectangle guardBounds = (pt.getGuardAnnotation() != null) ? pt.getGuardAnnotation().getBounds() : null;
                 Rectangle actionBounds = (pt.getActionAnnotation() != null) ? pt.getActionAnnotation().getBounds() : null;
                 Rectangle semanticsBounds = (pt.getSemanticsAnnotation() != null) ? pt.getSemanticsAnnotation().getBounds() : null;
-                oos.writeUTF(transitionId);
-                oos.writeObject(guardBounds);
-                oos.writeObject(actionBounds);
-                oos.writeObject(semanticsBounds);
+                if (guardBounds != null || actionBounds != null || semanticsBounds != null) {
+                    layout.setTransitionAnnotations(pt, guardBounds, actionBounds, semanticsBounds);
+                }
             }
         }
+        return layout;
     }
 
-    public void loadAnnotationsFromStream(ObjectInputStream ois) throws IOException, ClassNotFoundException {
-        // Restore state annotations.
-        String stateName = ois.readUTF();
-        while (!"END_STATES".equals(stateName)) {
-            Rectangle annotBounds = (Rectangle) ois.readObject();
-            for (StateInterface s : stateMachine.getStates()) {
-                if (s instanceof PWSState && s.getName().equals(stateName)) {
-                    PWSState pState = (PWSState) s;
-                    if (annotBounds != null) {
-                        if (pState.getAnnotation() == null) {
-                            StateSemanticsAnnotation annot = new StateSemanticsAnnotation(pState);
-                            annot.setBounds(annotBounds);
-                            annot.setVisible(false);
-                            pState.setAnnotation(annot);
-                            add(annot);
-                        } else {
-                            pState.getAnnotation().setBounds(annotBounds);
-                            pState.getAnnotation().setVisible(false);
-                        }
-                    }
-                    break;
+    /**
+     * Ricrea le annotazioni alle posizioni salvate; le annotazioni della semantica restano nascoste.
+     */
+    public void applyLayout(ModelLayout layout) {
+        for (StateInterface s : stateMachine.getStates()) {
+            if (!(s instanceof PWSState)) {
+                continue;
+            }
+            PWSState pState = (PWSState) s;
+            Rectangle annotBounds = layout.getStateAnnotation(pState);
+            if (annotBounds != null) {
+                if (pState.getAnnotation() == null) {
+                    StateSemanticsAnnotation annot = new StateSemanticsAnnotation(pState);
+                    annot.setBounds(annotBounds);
+                    annot.setVisible(false);
+                    pState.setAnnotation(annot);
+                    add(annot);
+                } else {
+                    pState.getAnnotation().setBounds(annotBounds);
+                    pState.getAnnotation().setVisible(false);
                 }
             }
-            stateName = ois.readUTF();
-        }
-        // Restore transition annotations.
-        while (true) {
-            try {
-                String transitionId = ois.readUTF();
-                Rectangle guardBounds = (Rectangle) ois.readObject();
-                Rectangle actionBounds = (Rectangle) ois.readObject();
-                Rectangle semanticsBounds = (Rectangle) ois.readObject();
-                for (TransitionInterface t : stateMachine.getTransitions()) {
-                    if (t instanceof PWSTransition && ((PWSTransition) t).getId().equals(transitionId)) {
-                        PWSTransition pt = (PWSTransition) t;
-                        // Guard Annotation
-                        if (guardBounds != null) {
-                            if (pt.getGuardAnnotation() == null) {
-                                SMProposition guardProp = pt.getGuardProposition();
-                                GuardAnnotation guardAnnot = new GuardAnnotation(guardProp, ((PWSStateMachine)stateMachine).getAssembly(), newGuard -> pt.setGuardProposition(newGuard));
-                                guardAnnot.setBounds(guardBounds);
-                                pt.setGuardAnnotation(guardAnnot);
-                                add(guardAnnot);
-                            } else {
-                                pt.getGuardAnnotation().setBounds(guardBounds);
-                            }
-                        }
-                        // Action Annotation
-                        if (actionBounds != null) {
-                            if (pt.getActionAnnotation() == null) {
-                                ActionAnnotation actionAnnot = new ActionAnnotation(pt.getActionList(), ((PWSStateMachine)stateMachine).getAssembly(), newActions -> pt.setActionList(newActions));
-                                actionAnnot.setBounds(actionBounds);
-                                pt.setActionAnnotation(actionAnnot);
-                                add(actionAnnot);
-                            } else {
-                                pt.getActionAnnotation().setBounds(actionBounds);
-                            }
-                        }
-                        // Transition Semantics Annotation
-                        if (semanticsBounds != null) {
-                            if (pt.getSemanticsAnnotation() == null) {
-                                Semantics semProp = pt.getTransitionSemantics();
-                                TransitionSemanticsAnnotation semAnnot = new TransitionSemanticsAnnotation(semProp);
-                                semAnnot.setBounds(semanticsBounds);
-                                semAnnot.setVisible(false);
-                                pt.setSemanticsAnnotation(semAnnot);
-                                add(semAnnot);
-                            } else {
-                                pt.getSemanticsAnnotation().setBounds(semanticsBounds);
-                                pt.getSemanticsAnnotation().setVisible(false);
-                            }
-                        }
-                        break;
-                    }
+        }
+        for (TransitionInterface t : stateMachine.getTransitions()) {
+            if (!(t instanceof PWSTransition)) {
+                continue;
+            }
+            PWSTransition pt = (PWSTransition) t;
+            Rectangle guardBounds = layout.getGuardAnnotation(pt);
+            Rectangle actionBounds = layout.getActionAnnotation(pt);
+            Rectangle semanticsBounds = layout.getSemanticsAnnotation(pt);
+            // Guard Annotation
+            if (guardBounds != null) {
+                if (pt.getGuardAnnotation() == null) {
+                    createGuardAnnotation(pt).setBounds(guardBounds);
+                } else {
+                    pt.getGuardAnnotation().setBounds(guardBounds);
+                }
+            }
+            // Action Annotation
+            if (actionBounds != null) {
+                if (pt.getActionAnnotation() == null) {
+                    createActionAnnotation(pt).setBounds(actionBounds);
+                } else {
+                    pt.getActionAnnotation().setBounds(actionBounds);
+                }
+            }
+            // Transition Semantics Annotation
+            if (semanticsBounds != null) {
+                if (pt.getSemanticsAnnotation() == null) {
+                    Semantics semProp = pt.getTransitionSemantics();
+                    TransitionSemanticsAnnotation semAnnot = new TransitionSemanticsAnnotation(semProp);
+                    semAnnot.setBounds(semanticsBounds);
+                    semAnnot.setVisible(false);
+                    pt.setSemanticsAnnotation(semAnnot);
+                    add(semAnnot);
+                } else {
+                    pt.getSemanticsAnnotation().setBounds(semanticsBounds);
+                    pt.getSemanticsAnnotation().setVisible(false);
                 }
-            } catch (EOFException eof) {
-                break;
             }
         }
         revalidate();
@@ -889,6 +923,7 @@ public class PWSStateMachinePanel extends StateMachinePanel {
         }
         // Rimuove la transizione dalla lista globale.
         stateMachine.getTransitions().remove(t);
+        stateMachine.invalidateEventIndex();
 
         // Rimuove la transizione dalla lista delle transizioni in uscita dello stato sorgente.
         StateInterface source = t.getSource();
@@ -901,5 +936,14 @@ public class PWSStateMachinePanel extends StateMachinePanel {
         if (target != null && target.getIncomingTransitions() != null) {
             target.getIncomingTransitions().remove(t);
         }
+        refreshSemantics();
+    }
+
+    /**
+     * Brings the semantics shown by the annotations up to date after an edit of the machine;
+     * only the part of the machine reachable from the edit is recomputed, in background.
+     */
+    private void refreshSemantics() {
+        semanticsService.update();
     }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package pws.editor;
+
+import machinery.StateInterface;
+import machinery.TransitionInterface;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+import pws.editor.semantics.SemanticsMetrics;
+import pws.editor.semantics.SemanticsTrace;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pannello delle metriche del calcolo della semantica (vedi SemanticsMetrics): per ogni operazione
+ * il numero di chiamate, i tempi e le dimensioni degli insiemi di configurazioni; il numero di
+ * configurazioni e di exit zone di ogni stato; le transizioni in ordine di tempo di calcolo; le
+ * percentuali di successo delle cache e i contatori dell'ultimo punto fisso.
+ *
+ * <p>La raccolta è spenta finché non la si attiva dal pannello; le tabelle si aggiornano una volta
+ * al secondo mentre il pannello è visibile. Le transizioni più lente della soglia sono evidenziate
+ * sul canvas della macchina.
+ */
+public class SemanticsMetricsPanel extends JPanel {
+    private static final long serialVersionUID = -8965684152057305292L;
+    private static final int REFRESH_MILLIS = 1000;
+
+    private PWSStateMachinePanel canvas;
+    private final DefaultTableModel operations = readOnlyModel(
+            "Operazione", "Chiamate", "Totale ms", "Media us", "Max us", "Config. medie", "Config. max");
+    private final DefaultTableModel states = readOnlyModel("Stato", "Configurazioni", "Exit zone");
+    private final DefaultTableModel transitions = readOnlyModel("Transizione", "Ultimo calcolo ms");
+    private final JLabel summary = new JLabel(" ");
+    private final JButton dockButton = new JButton("Sgancia");
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+    private Runnable dockAction;
+    // Soglia delle transizioni lente, applicata anche ai canvas impostati in seguito
+    private long thresholdNanos;
+
+    public SemanticsMetricsPanel(PWSStateMachinePanel canvas) {
+        this.canvas = canvas;
+        setLayout(new BorderLayout());
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JCheckBox collect = new JCheckBox("Raccogli metriche", SemanticsMetrics.isEnabled());
+        collect.addActionListener(e -> {
+            SemanticsMetrics.setEnabled(collect.isSelected());
+            refresh();
+        });
+        JButton resetButton = new JButton("Azzera");
+        resetButton.addActionListener(e -> {
+            SemanticsMetrics.reset();
+            refresh();
+        });
+        // Soglia in millisecondi delle transizioni evidenziate sul canvas
+        JSpinner threshold = new JSpinner(new SpinnerNumberModel(5.0, 0.0, 60_000.0, 1.0));
+        threshold.addChangeListener(e -> applyThreshold(((Number) threshold.getValue()).doubleValue()));
+        applyThreshold(((Number) threshold.getValue()).doubleValue());
+        dockButton.addActionListener(e -> {
+            if (dockAction != null) {
+                dockAction.run();
+            }
+        });
+        toolbar.add(collect);
+        toolbar.add(resetButton);
+        toolbar.add(new JLabel("Transizioni lente oltre (ms):"));
+        toolbar.add(threshold);
+        toolbar.add(dockButton);
+        add(toolbar, BorderLayout.NORTH);
+
+        JTabbedPane tables = new JTabbedPane();
+        tables.addTab("Operazioni", new JScrollPane(new JTable(operations)));
+        tables.addTab("Stati", new JScrollPane(new JTable(states)));
+        tables.addTab("Transizioni", new JScrollPane(new JTable(transitions)));
+        add(tables, BorderLayout.CENTER);
+        add(summary, BorderLayout.SOUTH);
+        refresh();
+    }
+
+    /** Imposta il canvas (e la macchina) di cui mostrare le metriche, dopo il caricamento di un modello. */
+    public void setCanvas(PWSStateMachinePanel canvas) {
+        this.canvas = canvas;
+        canvas.setSlowTransitionThreshold(thresholdNanos);
+        refresh();
+    }
+
+    /**
+     * Azione del pulsante che sposta il pannello tra le schede dell'editor e una finestra propria.
+     */
+    public void setDockAction(Runnable dockAction) {
+        this.dockAction = dockAction;
+    }
+
+    public void setDocked(boolean docked) {
+        dockButton.setText(docked ? "Sgancia" : "Aggancia");
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    private void applyThreshold(double millis) {
+        thresholdNanos = (long) (millis * 1_000_000);
+        canvas.setSlowTransitionThreshold(thresholdNanos);
+    }
+
+    /**
+     * Rilegge le metriche e ridisegna il canvas, così le evidenziazioni seguono le tabelle.
+     */
+    public void refresh() {
+        operations.setRowCount(0);
+        for (SemanticsMetrics.Operation operation : SemanticsMetrics.Operation.values()) {
+            SemanticsMetrics.OperationStatistics s = SemanticsMetrics.snapshot(operation);
+            operations.addRow(new Object[]{
+                    operation.getLabel(),
+                    s.getCalls(),
+                    format("%.1f", s.getTotalNanos() / 1_000_000.0),
+                    format("%.1f", s.getAverageNanos() / 1000.0),
+                    format("%.1f", s.getMaxNanos() / 1000.0),
+                    format("%.1f", s.getAverageConfigurations()),
+                    s.getMaxConfigurations()});
+        }
+
+        PWSStateMachine machine = canvas.getStateMachine();
+        states.setRowCount(0);
+        for (StateInterface s : machine.getStates()) {
+            PWSState state = (PWSState) s;
+            int configurations = state.getStateSemantics() == null ? 0 : state.getStateSemantics().configurationCount();
+            int zones = state.getReactiveSemantics() == null ? 0 : state.getReactiveSemantics().size();
+            states.addRow(new Object[]{state.getName(), configurations, zones});
+        }
+
+        // Le più lente prima
+        List<PWSTransition> timed = new ArrayList<>();
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition && SemanticsMetrics.getTransitionNanos((PWSTransition) t) >= 0) {
+                timed.add((PWSTransition) t);
+            }
+        }
+        timed.sort((a, b) -> Long.compare(SemanticsMetrics.getTransitionNanos(b), SemanticsMetrics.getTransitionNanos(a)));
+        transitions.setRowCount(0);
+        for (PWSTransition t : timed) {
+            transitions.addRow(new Object[]{describe(t),
+                    format("%.2f", SemanticsMetrics.getTransitionNanos(t) / 1_000_000.0)});
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append(format("Cache transizioni: %.0f%% (%d/%d)",
+                100 * SemanticsMetrics.hitRate(SemanticsMetrics.getTransitionHits(), SemanticsMetrics.getTransitionMisses()),
+                SemanticsMetrics.getTransitionHits(), SemanticsMetrics.getTransitionHits() + SemanticsMetrics.getTransitionMisses()));
+        text.append(format("   Cache guardie: %.0f%% (%d/%d)",
+                100 * SemanticsMetrics.hitRate(SemanticsMetrics.getGuardHits(), SemanticsMetrics.getGuardMisses()),
+                SemanticsMetrics.getGuardHits(), SemanticsMetrics.getGuardHits() + SemanticsMetrics.getGuardMisses()));
+        SemanticsTrace.Statistics last = SemanticsTrace.lastRun();
+        if (last != null) {
+            text.append(format("   Ultimo punto fisso: %d valutazioni, %d iterazioni, %.1f ms",
+                    last.getEvaluations(), last.getIterations(), last.getElapsedNanos() / 1_000_000.0));
+        }
+        summary.setText(text.toString());
+        canvas.repaint();
+    }
+
+    private static String describe(PWSTransition t) {
+        String trigger = t.getTriggerEvent();
+        String label = t.getSource().getName() + " -> " + t.getTarget().getName();
+        return trigger == null || trigger.trim().isEmpty() ? label : label + " [" + trigger + "]";
+    }
+
+    private static String format(String pattern, Object... args) {
+        return String.format(Locale.ROOT, pattern, args);
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package pws.editor;
+
+import pws.PWSStateMachine;
+import pws.editor.semantics.SemanticsMonitor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes the semantics of a PWSStateMachine on a background thread, so that the Swing event
+ * dispatch thread stays responsive while the fixed point runs.
+ *
+ * <p>At most one computation runs at a time: a new request cancels the running one. The
+ * computation runs on a snapshot of the machine taken on the event dispatch thread when it is
+ * requested (see {@link PWSStateMachine#snapshot()}), so the model can be edited meanwhile; its
+ * result is applied on the event dispatch thread all at once (see {@link PWSStateMachine#applySemantics}),
+ * followed by a single repaint of the component. The result of a computation that was cancelled,
+ * ran out of time or was superseded by a newer request is discarded, so the annotations never
+ * show a partially updated machine. Progress is forwarded to the listener on the event dispatch
+ * thread, coalescing the updates that arrive faster than they are shown.
+ *
+ * <p>All the public methods must be called on the event dispatch thread.
+ */
+public class SemanticsService {
+    /** Default maximum duration of a computation, in milliseconds. */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 120_000;
+
+    public enum Outcome {
+        COMPLETED, CANCELLED, TIMED_OUT, FAILED
+    }
+
+    /**
+     * Receives the progress and the outcome of the computations, on the event dispatch thread.
+     */
+    public interface Listener {
+        void progress(SemanticsMonitor.Progress progress);
+
+        void finished(Outcome outcome, String message);
+    }
+
+    private final PWSStateMachine stateMachine;
+    private final Component component;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "semantics-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Listener listener;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    // Computation whose result will be applied, null when idle.
+    private SemanticsMonitor current;
+    private boolean currentFull;
+
+    /**
+     * @param stateMachine machine whose semantics are computed
+     * @param component    repainted after the semantics are applied
+     */
+    public SemanticsService(PWSStateMachine stateMachine, Component component) {
+        this.stateMachine = stateMachine;
+        this.component = component;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the maximum duration of the next computations; 0 for no limit.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Recomputes the semantics of the whole machine (see {@link PWSStateMachine#recalculateSemantics()}).
+     */
+    public void recalculate() {
+        submit(true);
+    }
+
+    /**
+     * Recomputes the semantics affected by the edits since the last applied computation
+     * (see {@link PWSStateMachine#updateSemantics()}).
+     */
+    public void update() {
+        submit(false);
+    }
+
+    /**
+     * Cancels the running computation; the semantics shown stay the ones previously applied.
+     */
+    public void cancel() {
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void submit(boolean full) {
+        // A full recomputation that has not been applied yet stays full.
+        boolean runFull = full || (current != null && currentFull);
+        cancel();
+        AtomicReference<SemanticsMonitor.Progress> pending = new AtomicReference<>();
+        SemanticsMonitor[] self = new SemanticsMonitor[1];
+        SemanticsMonitor monitor = new SemanticsMonitor(timeoutMillis, progress -> {
+            if (pending.getAndSet(progress) == null) {
+                SwingUtilities.invokeLater(() -> {
+                    SemanticsMonitor.Progress latest = pending.getAndSet(null);
+                    // Progress of superseded computations is not shown.
+                    if (latest != null && listener != null && self[0] == current) {
+                        listener.progress(latest);
+                    }
+                });
+            }
+        });
+        self[0] = monitor;
+        current = monitor;
+        currentFull = runFull;
+        PWSStateMachine snapshot = stateMachine.snapshot();
+        executor.execute(() -> run(snapshot, monitor, runFull));
+    }
+
+    private void run(PWSStateMachine snapshot, SemanticsMonitor monitor, boolean full) {
+        PWSStateMachine.SemanticsUpdate update = null;
+        boolean cancelled = false;
+        try {
+            if (monitor.isCancelled()) {
+                throw new CancellationException();
+            }
+            update = snapshot.computeSemanticsUpdate(full, monitor);
+        } catch (CancellationException e) {
+            cancelled = true;
+            SwingUtilities.invokeLater(() -> finish(monitor, null,
+                    monitor.isTimedOut() ? Outcome.TIMED_OUT : Outcome.CANCELLED,
+                    monitor.isTimedOut() ? "Tempo scaduto: semantica non aggiornata" : "Calcolo interrotto"));
+        } finally {
+            // Any other exception is an error in the computation, since nobody else edits the
+            // snapshot: the listener is told that the run failed, and the exception propagates
+            // to the worker thread.
+            if (update == null && !cancelled) {
+                SwingUtilities.invokeLater(() -> finish(monitor, null, Outcome.FAILED, "Errore nel calcolo della semantica"));
+            }
+        }
+        if (update != null) {
+            PWSStateMachine.SemanticsUpdate result = update;
+            SwingUtilities.invokeLater(() -> finish(monitor, result, Outcome.COMPLETED, "Semantica aggiornata"));
+        }
+    }
+
+    private void finish(SemanticsMonitor monitor, PWSStateMachine.SemanticsUpdate update, Outcome outcome, String message) {
+        if (monitor != current) {
+            // Superseded by a newer request, which reports its own outcome.
+            return;
+        }
+        current = null;
+        if (update != null && !monitor.isCancelled()) {
+            stateMachine.applySemantics(update);
+            component.revalidate();
+            component.repaint();
+        } else if (outcome == Outcome.COMPLETED) {
+            outcome = Outcome.CANCELLED;
+            message = "Calcolo interrotto";
+        }
+        if (listener != null) {
+            listener.finished(outcome, message);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interning table that maps the machine identifiers and the state names of an assembly
+ * to dense integer indices.
+ *
+ * <p>Configurations of the same assembly share one index (looked up by assemblyId), so that
+ * their constraints can be encoded once as a packed state vector plus a bitmask of the
+ * constrained machines. Implication and intersection between configurations then become
+ * word-level bit operations and int comparisons instead of string scans.
+ *
+ * <p>The table is append-only: indices handed out are never reassigned, and names unknown
+ * to the table are interned when a configuration is encoded. {@link #of(Assembly)} pre-registers
+ * the machines and states of an Assembly in their declaration order. Queries such as
+ * {@link #indexOfMachine(String)} never intern.
+ *
+ * <p>The registry holds the tables weakly: a table lives as long as a configuration encoded
+ * against it or a model that registered it (see PWSStateMachine), so that closing or replacing a
+ * model releases its table. While a table is alive, every configuration of its assembly is
+ * encoded against it, which keeps the encodings comparable.
+ */
+public final class AssemblyIndex {
+
+    /** Value of a state-vector slot whose machine is not constrained. */
+    public static final int UNCONSTRAINED = -1;
+
+    private static final Map<String, Entry> REGISTRY = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<AssemblyIndex> RELEASED = new ReferenceQueue<>();
+
+    // Registry entry, queued in RELEASED once its table has been collected
+    private static final class Entry extends WeakReference<AssemblyIndex> {
+        final String assemblyId;
+
+        Entry(AssemblyIndex index) {
+            super(index, RELEASED);
+            this.assemblyId = index.assemblyId;
+        }
+    }
+
+    private final String assemblyId;
+    private final Map<String, Integer> machineIndex = new HashMap<>();
+    private final List<String> machineIds = new ArrayList<>();
+    private final List<Map<String, Integer>> stateIndex = new ArrayList<>();
+    private final List<List<String>> stateNames = new ArrayList<>();
+
+    private AssemblyIndex(String assemblyId) {
+        this.assemblyId = assemblyId;
+    }
+
+    /**
+     * Returns the (shared) index for the given assembly identifier, creating it if none is alive.
+     */
+    public static AssemblyIndex forAssemblyId(String assemblyId) {
+        expungeReleased();
+        Entry entry = REGISTRY.get(assemblyId);
+        AssemblyIndex index = entry == null ? null : entry.get();
+        if (index != null) {
+            return index;
+        }
+        AssemblyIndex[] live = new AssemblyIndex[1];
+        REGISTRY.compute(assemblyId, (id, current) -> {
+            live[0] = current == null ? null : current.get();
+            if (live[0] != null) {
+                return current;
+            }
+            live[0] = new AssemblyIndex(id);
+            return new Entry(live[0]);
+        });
+        return live[0];
+    }
+
+    // Drops the entries whose table was collected (unless already replaced by a new table).
+    private static void expungeReleased() {
+        Entry released;
+        while ((released = (Entry) RELEASED.poll()) != null) {
+            REGISTRY.remove(released.assemblyId, released);
+        }
+    }
+
+    /**
+     * Returns the index for the given Assembly, registering all of its machines and
+     * their states in declaration order.
+     */
+    public static AssemblyIndex of(Assembly assembly) {
+        AssemblyIndex index = forAssemblyId(assembly.getAssemblyId());
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            int m = index.machineIndex(entry.getKey());
+            for (StateInterface s : entry.getValue().getStates()) {
+                index.stateIndex(m, s.getName());
+            }
+        }
+        return index;
+    }
+
+    public String getAssemblyId() {
+        return assemblyId;
+    }
+
+    /**
+     * Returns the dense index of the given machine identifier, interning it if necessary.
+     */
+    public synchronized int machineIndex(String machineId) {
+        Integer idx = machineIndex.get(machineId);
+        if (idx != null) {
+            return idx;
+        }
+        int newIdx = machineIds.size();
+        machineIndex.put(machineId, newIdx);
+        machineIds.add(machineId);
+        stateIndex.add(new HashMap<>());
+        stateNames.add(new ArrayList<>());
+        return newIdx;
+    }
+
+    /**
+     * Returns the dense index of the given state name within machine {@code machine},
+     * interning it if necessary.
+     */
+    public synchronized int stateIndex(int machine, String stateName) {
+        Map<String, Integer> states = stateIndex.get(machine);
+        Integer idx = states.get(stateName);
+        if (idx != null) {
+            return idx;
+        }
+        int newIdx = stateNames.get(machine).size();
+        states.put(stateName, newIdx);
+        stateNames.get(machine).add(stateName);
+        return newIdx;
+    }
+
+    /**
+     * Returns the dense index of the given machine identifier, or -1 if it was never interned.
+     */
+    public synchronized int indexOfMachine(String machineId) {
+        Integer idx = machineIndex.get(machineId);
+        return idx == null ? -1 : idx;
+    }
+
+    public synchronized String machineId(int machine) {
+        return machineIds.get(machine);
+    }
+
+    public synchronized String stateName(int machine, int state) {
+        return stateNames.get(machine).get(state);
+    }
+
+    /**
+     * Returns the number of machines interned so far.
+     */
+    public synchronized int machineCount() {
+        return machineIds.size();
+    }
+}
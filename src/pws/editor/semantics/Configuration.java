@@ -1,35 +1,59 @@
 package pws.editor.semantics;
 
 import smalgebra.BasicStateProposition;
+import smalgebra.PropositionFactory;
 import smalgebra.SMProposition;
 import smalgebra.TrueProposition;
 
 import java.io.Serializable;
 import java.util.*;
 
-public class Configuration implements Serializable {
-    private String assemblyId;
-    private List<BasicStateProposition> propositions;
+/**
+ * Insieme di vincoli { macchina: stato } di un assembly, ordinati per macchina.
+ * Una Configuration è immutabile: le operazioni restituiscono nuove istanze, che possono
+ * quindi essere condivise liberamente tra più Semantics.
+ */
+public final class Configuration implements Serializable {
+    private static final long serialVersionUID = 3197554229359899363L;
+
+    private final String assemblyId;
+    private final List<BasicStateProposition> propositions;
+
+    // Packed form of the constraints (see AssemblyIndex), computed on first use.
+    private transient volatile Encoding encoding;
+
+    /**
+     * Constraints of a configuration encoded against the AssemblyIndex of its assembly:
+     * {@code mask} has bit m set iff machine m is constrained, and {@code states[m]} holds
+     * the state index of machine m (or {@link AssemblyIndex#UNCONSTRAINED}).
+     */
+    private static final class Encoding {
+        final AssemblyIndex index;
+        final long[] mask;
+        final int[] states;
+        final int hash;
+
+        Encoding(AssemblyIndex index, long[] mask, int[] states) {
+            this.index = index;
+            this.mask = mask;
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+    }
 
     public Configuration(String assemblyId) {
         this.assemblyId = assemblyId;
         this.propositions = new ArrayList<>();
     }
 
-    public String getAssemblyId() {
-        return assemblyId;
+    private Configuration(String assemblyId, List<BasicStateProposition> propositions, Encoding encoding) {
+        this.assemblyId = assemblyId;
+        this.propositions = propositions;
+        this.encoding = encoding;
     }
 
-    /**
-     * Aggiunge una BasicStateProposition mantenendo l'ordine (ordinamento lessicografico in base all'id).
-     */
-    public void addBasicStateProposition(BasicStateProposition bsp) {
-        // Inserimento ordinato in base a bsp.getId()
-        int index = 0;
-        while (index < propositions.size() && propositions.get(index).getMachineId().compareTo(bsp.getMachineId()) < 0) {
-            index++;
-        }
-        propositions.add(index, bsp);
+    public String getAssemblyId() {
+        return assemblyId;
     }
 
     public List<BasicStateProposition> getBasicStatePropositions() {
@@ -41,60 +65,115 @@ public class Configuration implements Serializable {
      * Le proposizioni vengono inserite in ordine.
      */
     public static Configuration fromBasicStatePropositions(String assemblyId, List<BasicStateProposition> props) {
-        Configuration config = new Configuration(assemblyId);
-        for (BasicStateProposition bsp : props) {
-            config.addBasicStateProposition(bsp);
-        }
-        return config;
+        // Una Configuration è immutabile: la lista ordinata non viene più modificata
+        List<BasicStateProposition> sorted = new ArrayList<>(props);
+        sorted.sort(Comparator.comparing(BasicStateProposition::getMachineId));
+        return new Configuration(assemblyId, sorted, null);
     }
 
     public Configuration intersect(Configuration other) {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Assemblies do not match.");
         }
-        // Merge constraints from both configurations
-        Map<String, BasicStateProposition> resultMap = new HashMap<>();
-        // Add all propositions from this configuration
-        for (BasicStateProposition bsp : this.getBasicStatePropositions()) {
-            resultMap.put(bsp.getMachineId(), bsp);
-        }
-        // For each proposition in the other configuration, merge constraints
-        for (BasicStateProposition bsp : other.getBasicStatePropositions()) {
-            String machineId = bsp.getMachineId();
-            if (resultMap.containsKey(machineId)) {
-                BasicStateProposition existing = resultMap.get(machineId);
-                if (!existing.equals(bsp)) {
-                    // Conflict: different constraints for the same machine, intersection is undefined.
+        Encoding a = this.encoding();
+        Encoding b = other.encoding();
+        // Conflict: the same machine is constrained to different states, intersection is undefined.
+        int commonWords = Math.min(a.mask.length, b.mask.length);
+        for (int w = 0; w < commonWords; w++) {
+            long common = a.mask[w] & b.mask[w];
+            while (common != 0) {
+                int m = (w << 6) + Long.numberOfTrailingZeros(common);
+                if (a.states[m] != b.states[m]) {
                     return null;
                 }
+                common &= common - 1;
+            }
+        }
+        // Merge constraints from both configurations
+        Encoding longer = a.states.length >= b.states.length ? a : b;
+        Encoding shorter = longer == a ? b : a;
+        int[] states = longer.states.clone();
+        long[] mask = longer.mask.clone();
+        for (int w = 0; w < shorter.mask.length; w++) {
+            long bits = shorter.mask[w] & ~mask[w];
+            mask[w] |= bits;
+            while (bits != 0) {
+                int m = (w << 6) + Long.numberOfTrailingZeros(bits);
+                states[m] = shorter.states[m];
+                bits &= bits - 1;
+            }
+        }
+        List<BasicStateProposition> merged = mergeSorted(this.propositions, other.propositions);
+        return new Configuration(this.assemblyId, merged, new Encoding(a.index, mask, states));
+    }
+
+    /**
+     * Merges two constraint lists already sorted by machine id, keeping one entry per machine.
+     */
+    private static List<BasicStateProposition> mergeSorted(List<BasicStateProposition> left,
+                                                           List<BasicStateProposition> right) {
+        List<BasicStateProposition> result = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            int cmp = left.get(i).getMachineId().compareTo(right.get(j).getMachineId());
+            if (cmp < 0) {
+                result.add(left.get(i++));
+            } else if (cmp > 0) {
+                result.add(right.get(j++));
             } else {
-                resultMap.put(machineId, bsp);
+                result.add(left.get(i++));
+                j++;
             }
         }
-        List<BasicStateProposition> resultList = new ArrayList<>(resultMap.values());
-        return Configuration.fromBasicStatePropositions(this.assemblyId, resultList);
+        while (i < left.size()) {
+            result.add(left.get(i++));
+        }
+        while (j < right.size()) {
+            result.add(right.get(j++));
+        }
+        return result;
+    }
+
+    /**
+     * State index of every machine (see AssemblyIndex), {@link AssemblyIndex#UNCONSTRAINED} for the
+     * machines this configuration does not constrain. The array is shared and must not be modified.
+     */
+    int[] stateVector() {
+        return encoding().states;
+    }
+
+    /**
+     * Number of machines constrained by this configuration.
+     */
+    int constraintCount() {
+        return propositions.size();
     }
 
     public boolean implies(Configuration other) {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Assemblies do not match.");
         }
-        // Per ogni vincolo presente in 'other', verifico che anche 'this' lo contenga con lo stesso valore.
-        for (BasicStateProposition bspOther : other.getBasicStatePropositions()) {
-            boolean found = false;
-            for (BasicStateProposition bspThis : this.getBasicStatePropositions()) {
-                if (bspThis.getMachineId().equals(bspOther.getMachineId())) {
-                    found = true;
-                    if (!bspThis.equals(bspOther)) {
-                        return false;
-                    }
-                }
-            }
-            // Se 'other' specifica un vincolo per un machineID che 'this' non specifica,
-            // allora 'this' non implica 'other'.
-            if (!found) {
+        Encoding a = this.encoding();
+        Encoding b = other.encoding();
+        // Se 'other' specifica un vincolo per un machineID che 'this' non specifica,
+        // allora 'this' non implica 'other'.
+        if (b.mask.length > a.mask.length) {
+            return false;
+        }
+        for (int w = 0; w < b.mask.length; w++) {
+            long bits = b.mask[w];
+            if ((bits & ~a.mask[w]) != 0) {
                 return false;
             }
+            // Per ogni vincolo presente in 'other', verifico che anche 'this' lo contenga con lo stesso valore.
+            while (bits != 0) {
+                int m = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (a.states[m] != b.states[m]) {
+                    return false;
+                }
+                bits &= bits - 1;
+            }
         }
         return true;
     }
@@ -122,12 +201,46 @@ public class Configuration implements Serializable {
         if (!(o instanceof Configuration)) return false;
         Configuration that = (Configuration) o;
         return Objects.equals(assemblyId, that.assemblyId) &&
-                Objects.equals(propositions, that.propositions);
+                Arrays.equals(this.encoding().states, that.encoding().states);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(assemblyId, propositions);
+        return 31 * assemblyId.hashCode() + encoding().hash;
+    }
+
+    /**
+     * Returns the packed form of this configuration, encoding it on first use.
+     */
+    private Encoding encoding() {
+        Encoding e = encoding;
+        if (e == null) {
+            e = encode();
+            encoding = e;
+        }
+        return e;
+    }
+
+    private Encoding encode() {
+        AssemblyIndex index = AssemblyIndex.forAssemblyId(assemblyId);
+        int size = propositions.size();
+        int[] machines = new int[size];
+        int[] stateIdx = new int[size];
+        int maxMachine = -1;
+        for (int i = 0; i < size; i++) {
+            BasicStateProposition bsp = propositions.get(i);
+            machines[i] = index.machineIndex(bsp.getMachineId());
+            stateIdx[i] = index.stateIndex(machines[i], bsp.getStateName());
+            maxMachine = Math.max(maxMachine, machines[i]);
+        }
+        int[] states = new int[maxMachine + 1];
+        Arrays.fill(states, AssemblyIndex.UNCONSTRAINED);
+        long[] mask = new long[(maxMachine + 64) >> 6];
+        for (int i = 0; i < size; i++) {
+            states[machines[i]] = stateIdx[i];
+            mask[machines[i] >> 6] |= 1L << machines[i];
+        }
+        return new Encoding(index, mask, states);
     }
 
 //    @Override
@@ -150,14 +263,12 @@ public class Configuration implements Serializable {
         return "(" + joiner.toString() + ")";
     }
 
+    /**
+     * The conjunction of the constraints, as a single flat n-ary AND
+     * (TrueProposition for the unconstrained configuration).
+     */
     public SMProposition toSMProposition() {
-        // Start with the identity element for AND: TrueProposition.
-        SMProposition conj = new TrueProposition();
-        for (BasicStateProposition bsp : propositions) {
-            // Assuming that andBSP returns a new SMProposition representing the conjunction.
-            conj = conj.andBSP(bsp);
-        }
-        return conj;
+        return PropositionFactory.and(propositions);
     }
 
     /**
@@ -166,9 +277,9 @@ public class Configuration implements Serializable {
      * @return A Semantics object containing only this Configuration.
      */
     public Semantics toSemantics() {
-        Semantics sem = new Semantics(this.assemblyId);
-        sem.addConfiguration(this);
-        return sem;
+        Set<Configuration> configurations = new HashSet<>();
+        configurations.add(this);
+        return Semantics.ofAntichain(this.assemblyId, configurations);
     }
 
     // HELPER METHODS
@@ -180,12 +291,9 @@ public class Configuration implements Serializable {
      * @return true if a BasicStateProposition for machineId is present; false otherwise.
      */
     public boolean contains(String machineId) {
-        for (BasicStateProposition bsp : propositions) {
-            if (bsp.getMachineId().equals(machineId)) {
-                return true;
-            }
-        }
-        return false;
+        Encoding e = encoding();
+        int m = e.index.indexOfMachine(machineId);
+        return m >= 0 && m < e.states.length && e.states[m] != AssemblyIndex.UNCONSTRAINED;
     }
 
     /**
@@ -196,12 +304,12 @@ public class Configuration implements Serializable {
      * @return The state name, or null if not present.
      */
     public String getStateName(String machineId) {
-        for (BasicStateProposition bsp : propositions) {
-            if (bsp.getMachineId().equals(machineId)) {
-                return bsp.getStateName();
-            }
+        Encoding e = encoding();
+        int m = e.index.indexOfMachine(machineId);
+        if (m < 0 || m >= e.states.length || e.states[m] == AssemblyIndex.UNCONSTRAINED) {
+            return null;
         }
-        return null;
+        return e.index.stateName(m, e.states[m]);
     }
 
     /**
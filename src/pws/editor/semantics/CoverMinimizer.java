@@ -0,0 +1,372 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Two-level minimisation of the configurations of a Semantics, in the style of Espresso-MV.
+ *
+ * <p>Each configuration is a cube over the state domains of the machines: a constrained machine is a
+ * single-state literal, an unconstrained one the whole domain (the states of the machine in the
+ * universe, without the pseudostate). The minimiser alternates the two steps of Espresso on the
+ * current cover, which always denotes the same configurations of the universe as the input:
+ * <ul>
+ *   <li>EXPAND: each cube, from the largest, drops the constraints that can be dropped while the cube
+ *       stays contained in the cover, so that cubes covering every state of a machine merge into one
+ *       cube leaving the machine unconstrained; the cubes contained in an expanded one are removed.
+ *       The resulting cubes are prime implicants.</li>
+ *   <li>IRREDUNDANT: the cubes covered by the union of the other ones are removed, from the smallest.</li>
+ * </ul>
+ * Containment is decided by a tautology check of the cover cofactored by the cube, splitting on one
+ * machine at a time. Every tautology check is charged to a budget of split nodes: once it is spent the
+ * remaining checks answer "not contained", so the steps stop changing the cover and the result is the
+ * cover reached so far, still equivalent to the input. Cubes that denote no configuration of the
+ * universe (a state outside the domain of its machine) are dropped.
+ *
+ * <p>The minimiser also complements covers, see {@link #complement(String, Set)}.
+ *
+ * <p>A minimiser is used for a single cover and is not thread-safe.
+ */
+final class CoverMinimizer {
+    /** Default number of split nodes over all the tautology checks of a minimisation. */
+    static final int DEFAULT_BUDGET = 200_000;
+
+    private final AssemblyIndex index;
+    // domains[m]: state indices of machine m in the universe, empty for machines outside it
+    private final int[][] domains;
+    private int budget;
+
+    private static final class BudgetExhausted extends RuntimeException {
+        private static final long serialVersionUID = -5394220237427449712L;
+
+        BudgetExhausted() {
+            super(null, null, false, false);
+        }
+    }
+
+    CoverMinimizer(Assembly assembly) {
+        this(assembly, DEFAULT_BUDGET);
+    }
+
+    CoverMinimizer(Assembly assembly, int budget) {
+        this.index = AssemblyIndex.of(assembly);
+        this.budget = budget;
+        this.domains = new int[index.machineCount()][];
+        Arrays.fill(domains, new int[0]);
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            int m = index.machineIndex(entry.getKey());
+            Set<Integer> states = new LinkedHashSet<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (!s.getName().equals("PseudoState")) {
+                    states.add(index.stateIndex(m, s.getName()));
+                }
+            }
+            domains[m] = states.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Returns an irredundant cover of prime implicants equivalent to the given configurations.
+     */
+    Set<Configuration> minimize(String assemblyId, Set<Configuration> configurations) {
+        List<int[]> cover = expand(cubesOf(configurations));
+        cover = irredundant(cover);
+        return configurationsOf(assemblyId, cover);
+    }
+
+    /**
+     * Returns configurations denoting the configurations of the universe that the given ones do not
+     * denote, computed on the cubes by Shannon expansion: the cover is split on the machine constrained
+     * by the most cubes, each cofactor is complemented recursively, and the cubes found in the complement
+     * of every cofactor are kept with the machine unconstrained. A single cube is complemented directly
+     * (one cube per other state of each of its machines). The universe is never enumerated, and the
+     * size of the result follows the size of the complement rather than the one of the universe.
+     */
+    Set<Configuration> complement(String assemblyId, Set<Configuration> configurations) {
+        return configurationsOf(assemblyId, complement(cubesOf(configurations)));
+    }
+
+    private List<int[]> complement(List<int[]> cubes) {
+        if (cubes.isEmpty()) {
+            int[] universe = new int[domains.length];
+            Arrays.fill(universe, AssemblyIndex.UNCONSTRAINED);
+            return List.of(universe);
+        }
+        int split = -1;
+        int[] counts = new int[domains.length];
+        for (int[] cube : cubes) {
+            int literals = 0;
+            for (int m = 0; m < cube.length; m++) {
+                if (cube[m] != AssemblyIndex.UNCONSTRAINED) {
+                    literals++;
+                    if (split < 0 || ++counts[m] > counts[split]) {
+                        split = m;
+                    }
+                }
+            }
+            if (literals == 0) {
+                return List.of();
+            }
+        }
+        if (cubes.size() == 1) {
+            // De Morgan: some constrained machine is in another state
+            int[] cube = cubes.get(0);
+            List<int[]> result = new ArrayList<>();
+            for (int m = 0; m < cube.length; m++) {
+                if (cube[m] != AssemblyIndex.UNCONSTRAINED) {
+                    for (int s : domains[m]) {
+                        if (s != cube[m]) {
+                            int[] c = new int[cube.length];
+                            Arrays.fill(c, AssemblyIndex.UNCONSTRAINED);
+                            c[m] = s;
+                            result.add(c);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+        // Complement of each cofactor, and the cubes common to all of them
+        List<List<int[]>> branches = new ArrayList<>(domains[split].length);
+        Set<List<Integer>> common = null;
+        for (int s : domains[split]) {
+            List<int[]> branch = complement(cofactor(cubes, split, s));
+            branches.add(branch);
+            Set<List<Integer>> keys = new HashSet<>();
+            for (int[] cube : branch) {
+                if (common == null || common.contains(key(cube))) {
+                    keys.add(key(cube));
+                }
+            }
+            common = keys;
+        }
+        List<int[]> result = new ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            for (int[] cube : branches.get(i)) {
+                if (common.contains(key(cube))) {
+                    if (i == 0) {
+                        result.add(cube);
+                    }
+                } else {
+                    int[] c = cube.clone();
+                    c[split] = domains[split][i];
+                    result.add(c);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Cubes compatible with machine m in state s, with m no longer constrained.
+    private static List<int[]> cofactor(List<int[]> cubes, int m, int s) {
+        List<int[]> result = new ArrayList<>(cubes.size());
+        for (int[] cube : cubes) {
+            if (cube[m] == AssemblyIndex.UNCONSTRAINED) {
+                result.add(cube);
+            } else if (cube[m] == s) {
+                int[] c = cube.clone();
+                c[m] = AssemblyIndex.UNCONSTRAINED;
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> key(int[] cube) {
+        List<Integer> key = new ArrayList<>(cube.length);
+        for (int state : cube) {
+            key.add(state);
+        }
+        return key;
+    }
+
+    private List<int[]> cubesOf(Set<Configuration> configurations) {
+        List<int[]> cover = new ArrayList<>(configurations.size());
+        for (Configuration c : configurations) {
+            int[] states = c.stateVector();
+            int[] cube = Arrays.copyOf(states, domains.length);
+            for (int m = states.length; m < cube.length; m++) {
+                cube[m] = AssemblyIndex.UNCONSTRAINED;
+            }
+            // A machine interned after the assembly is not part of its universe
+            boolean outside = false;
+            for (int m = cube.length; m < states.length; m++) {
+                outside |= states[m] != AssemblyIndex.UNCONSTRAINED;
+            }
+            if (!outside && !isEmptyCube(cube)) {
+                cover.add(cube);
+            }
+        }
+        return cover;
+    }
+
+    private Set<Configuration> configurationsOf(String assemblyId, List<int[]> cover) {
+        Set<Configuration> result = new HashSet<>();
+        for (int[] cube : cover) {
+            result.add(toConfiguration(assemblyId, cube));
+        }
+        return result;
+    }
+
+    private List<int[]> expand(List<int[]> cover) {
+        cover.sort(Comparator.comparingInt(CoverMinimizer::literalCount));
+        List<int[]> expanded = new ArrayList<>(cover.size());
+        boolean[] removed = new boolean[cover.size()];
+        for (int i = 0; i < cover.size(); i++) {
+            if (removed[i]) {
+                continue;
+            }
+            int[] cube = cover.get(i).clone();
+            for (int m = 0; m < cube.length; m++) {
+                if (cube[m] == AssemblyIndex.UNCONSTRAINED) {
+                    continue;
+                }
+                int literal = cube[m];
+                cube[m] = AssemblyIndex.UNCONSTRAINED;
+                if (!covers(cover, cube)) {
+                    cube[m] = literal;
+                }
+            }
+            expanded.add(cube);
+            // The cubes contained in the expanded one are no longer needed
+            for (int j = i + 1; j < cover.size(); j++) {
+                if (!removed[j] && contains(cube, cover.get(j))) {
+                    removed[j] = true;
+                }
+            }
+        }
+        return expanded;
+    }
+
+    private List<int[]> irredundant(List<int[]> cover) {
+        List<int[]> result = new ArrayList<>(cover);
+        // The smallest cubes are the most likely to be covered by the others
+        result.sort(Comparator.comparingInt(CoverMinimizer::literalCount).reversed());
+        for (int i = 0; i < result.size(); ) {
+            int[] cube = result.remove(i);
+            if (!covers(result, cube)) {
+                result.add(i++, cube);
+            }
+        }
+        return result;
+    }
+
+    // True if the union of the cover contains the cube; false when the budget is spent.
+    private boolean covers(List<int[]> cover, int[] cube) {
+        List<int[]> cofactor = new ArrayList<>();
+        for (int[] d : cover) {
+            if (compatible(d, cube)) {
+                int[] c = d.clone();
+                for (int m = 0; m < c.length; m++) {
+                    if (cube[m] != AssemblyIndex.UNCONSTRAINED) {
+                        c[m] = AssemblyIndex.UNCONSTRAINED;
+                    }
+                }
+                cofactor.add(c);
+            }
+        }
+        try {
+            return isTautology(cofactor);
+        } catch (BudgetExhausted e) {
+            return false;
+        }
+    }
+
+    // True if the cubes cover every configuration of the universe.
+    private boolean isTautology(List<int[]> cubes) {
+        if (budget-- <= 0) {
+            throw new BudgetExhausted();
+        }
+        if (cubes.isEmpty()) {
+            return false;
+        }
+        // Split on the machine constrained by the most cubes
+        int[] counts = new int[domains.length];
+        int split = -1;
+        for (int[] cube : cubes) {
+            int literals = 0;
+            for (int m = 0; m < cube.length; m++) {
+                if (cube[m] != AssemblyIndex.UNCONSTRAINED) {
+                    literals++;
+                    if (split < 0 || ++counts[m] > counts[split]) {
+                        split = m;
+                    }
+                }
+            }
+            if (literals == 0) {
+                return true;
+            }
+        }
+        for (int s : domains[split]) {
+            if (!isTautology(cofactor(cubes, split, s))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isEmptyCube(int[] cube) {
+        for (int m = 0; m < cube.length; m++) {
+            if (cube[m] != AssemblyIndex.UNCONSTRAINED) {
+                boolean inDomain = false;
+                for (int s : domains[m]) {
+                    inDomain |= s == cube[m];
+                }
+                if (!inDomain) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean compatible(int[] a, int[] b) {
+        for (int m = 0; m < a.length; m++) {
+            if (a[m] != AssemblyIndex.UNCONSTRAINED && b[m] != AssemblyIndex.UNCONSTRAINED && a[m] != b[m]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // True if cube a contains cube b (b implies a).
+    private static boolean contains(int[] a, int[] b) {
+        for (int m = 0; m < a.length; m++) {
+            if (a[m] != AssemblyIndex.UNCONSTRAINED && a[m] != b[m]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int literalCount(int[] cube) {
+        int count = 0;
+        for (int state : cube) {
+            if (state != AssemblyIndex.UNCONSTRAINED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Configuration toConfiguration(String assemblyId, int[] cube) {
+        List<BasicStateProposition> props = new ArrayList<>();
+        for (int m = 0; m < cube.length; m++) {
+            if (cube[m] != AssemblyIndex.UNCONSTRAINED) {
+                props.add(new BasicStateProposition(index.machineId(m), index.stateName(m, cube[m])));
+            }
+        }
+        return Configuration.fromBasicStatePropositions(assemblyId, props);
+    }
+}
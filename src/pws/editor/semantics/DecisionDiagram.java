@@ -0,0 +1,439 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.StateInterface;
+import machinery.StateMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Multi-valued decision diagram (MDD) manager for the configurations of an Assembly.
+ *
+ * <p>Each level of the diagram corresponds to one state machine of the assembly, levels being
+ * ordered by machine id; a node at level L has one child per logical state of that machine.
+ * Nodes are reduced (a node whose children are all equal is never created, the machine is
+ * simply unconstrained on that path) and shared through a unique table, so two diagrams
+ * denote the same set of configurations iff they have the same root.
+ * Binary operations are memoised in an operation cache.
+ *
+ * <p>The terminal nodes are {@link #FALSE} and {@link #TRUE}. Node handles are plain ints and are
+ * only meaningful for the manager that created them. All public operations are synchronized,
+ * so one manager can be shared by several threads.
+ */
+public final class DecisionDiagram {
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+
+    // Managers are cached per Assembly instance and rebuilt when its machines or states change.
+    private static final Map<Assembly, DecisionDiagram> MANAGERS = new WeakHashMap<>();
+
+    private final String assemblyId;
+    private final String[] machineIds;            // level -> machine id
+    private final String[][] stateNames;          // level -> state index -> state name
+    private final Map<String, Integer> levelOf = new HashMap<>();
+    private final List<Map<String, Integer>> stateIndexOf = new ArrayList<>();
+    private final String signature;
+
+    private int[] nodeLevel = new int[1024];
+    private int[][] nodeKids = new int[1024][];
+    private int nodeCount;
+    private final Map<NodeKey, Integer> uniqueTable = new HashMap<>();
+    // One cache per binary operation, indexed by the operation code
+    private final List<Map<Long, Integer>> applyCache = List.of(new HashMap<>(), new HashMap<>());
+    private final Map<Integer, Integer> notCache = new HashMap<>();
+
+    private static final class NodeKey {
+        final int level;
+        final int[] kids;
+        final int hash;
+
+        NodeKey(int level, int[] kids) {
+            this.level = level;
+            this.kids = kids;
+            this.hash = 31 * level + Arrays.hashCode(kids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof NodeKey)) return false;
+            NodeKey that = (NodeKey) o;
+            return level == that.level && Arrays.equals(kids, that.kids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private DecisionDiagram(Assembly assembly) {
+        this.assemblyId = assembly.getAssemblyId();
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            // Machines without logical states do not contribute to the universe of configurations.
+            if (!logicalStateNames(entry.getValue()).isEmpty()) {
+                ids.add(entry.getKey());
+            }
+        }
+        ids.sort(null);
+        this.machineIds = ids.toArray(new String[0]);
+        this.stateNames = new String[machineIds.length][];
+        for (int level = 0; level < machineIds.length; level++) {
+            List<String> names = logicalStateNames(assembly.getStateMachines().get(machineIds[level]));
+            stateNames[level] = names.toArray(new String[0]);
+            levelOf.put(machineIds[level], level);
+            Map<String, Integer> idx = new HashMap<>();
+            for (int s = 0; s < names.size(); s++) {
+                idx.putIfAbsent(names.get(s), s);
+            }
+            stateIndexOf.add(idx);
+        }
+        this.signature = signatureOf(assembly);
+        // Terminal nodes live below the last level.
+        nodeLevel[FALSE] = machineIds.length;
+        nodeLevel[TRUE] = machineIds.length;
+        nodeCount = 2;
+    }
+
+    /**
+     * Returns the manager for the given Assembly, creating a new one if the assembly
+     * has none yet or if its machines or states changed since the manager was built.
+     */
+    public static DecisionDiagram forAssembly(Assembly assembly) {
+        synchronized (MANAGERS) {
+            DecisionDiagram dd = MANAGERS.get(assembly);
+            if (dd == null || !dd.signature.equals(signatureOf(assembly))) {
+                dd = new DecisionDiagram(assembly);
+                MANAGERS.put(assembly, dd);
+            }
+            return dd;
+        }
+    }
+
+    private static List<String> logicalStateNames(StateMachine machine) {
+        List<String> names = new ArrayList<>();
+        for (StateInterface s : machine.getStates()) {
+            if (!s.getName().equals("PseudoState")) {
+                names.add(s.getName());
+            }
+        }
+        return names;
+    }
+
+    private static String signatureOf(Assembly assembly) {
+        StringBuilder sb = new StringBuilder(assembly.getAssemblyId());
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            sb.append('|').append(entry.getKey()).append(':');
+            for (String name : logicalStateNames(entry.getValue())) {
+                sb.append(name).append(',');
+            }
+        }
+        return sb.toString();
+    }
+
+    public String getAssemblyId() {
+        return assemblyId;
+    }
+
+    public int levelCount() {
+        return machineIds.length;
+    }
+
+    public synchronized int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the level of the given machine, or -1 if the machine is not part of the diagram.
+     */
+    public int levelOf(String machineId) {
+        Integer level = levelOf.get(machineId);
+        return level == null ? -1 : level;
+    }
+
+    /**
+     * Returns the index of the given state within the domain of the machine at {@code level},
+     * or -1 if the state is not a logical state of that machine.
+     */
+    public int stateIndexOf(int level, String stateName) {
+        Integer idx = stateIndexOf.get(level).get(stateName);
+        return idx == null ? -1 : idx;
+    }
+
+    public String machineIdAt(int level) {
+        return machineIds[level];
+    }
+
+    public String stateNameAt(int level, int state) {
+        return stateNames[level][state];
+    }
+
+    public int domainSize(int level) {
+        return stateNames[level].length;
+    }
+
+    // ---------------------------------------------------------------- node construction
+
+    private int level(int node) {
+        return nodeLevel[node];
+    }
+
+    private int kid(int node, int state) {
+        return nodeKids[node][state];
+    }
+
+    /**
+     * Returns the reduced, shared node with the given level and children.
+     */
+    private int mk(int level, int[] kids) {
+        boolean allEqual = true;
+        for (int i = 1; i < kids.length && allEqual; i++) {
+            allEqual = kids[i] == kids[0];
+        }
+        if (allEqual) {
+            return kids[0];
+        }
+        NodeKey key = new NodeKey(level, kids);
+        Integer existing = uniqueTable.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (nodeCount == nodeLevel.length) {
+            nodeLevel = Arrays.copyOf(nodeLevel, nodeCount * 2);
+            nodeKids = Arrays.copyOf(nodeKids, nodeCount * 2);
+        }
+        int node = nodeCount++;
+        nodeLevel[node] = level;
+        nodeKids[node] = kids;
+        uniqueTable.put(key, node);
+        return node;
+    }
+
+    /**
+     * Returns the child of {@code node} for state {@code state} of the machine at {@code level}.
+     * A node below {@code level} does not constrain that machine, so it is its own child.
+     */
+    private int cofactor(int node, int level, int state) {
+        return level(node) == level ? kid(node, state) : node;
+    }
+
+    /**
+     * Builds the diagram of a single cube: {@code assignment[level]} is the required state index
+     * for that machine, or -1 if the machine is unconstrained.
+     */
+    public synchronized int cube(int[] assignment) {
+        int node = TRUE;
+        for (int level = machineIds.length - 1; level >= 0; level--) {
+            int state = assignment[level];
+            if (state >= 0) {
+                int[] kids = new int[domainSize(level)];
+                kids[state] = node;
+                node = mk(level, kids);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Builds the diagram of the literal "machine at level is in state".
+     */
+    public synchronized int literal(int level, int state) {
+        int[] kids = new int[domainSize(level)];
+        kids[state] = TRUE;
+        return mk(level, kids);
+    }
+
+    // ---------------------------------------------------------------- boolean operations
+
+    public synchronized int and(int a, int b) {
+        return apply(OP_AND, a, b);
+    }
+
+    public synchronized int or(int a, int b) {
+        return apply(OP_OR, a, b);
+    }
+
+    public synchronized int not(int a) {
+        return negate(a);
+    }
+
+    /**
+     * Returns a AND NOT b.
+     */
+    public synchronized int diff(int a, int b) {
+        return apply(OP_AND, a, negate(b));
+    }
+
+    /**
+     * Returns true if every configuration of a is also a configuration of b.
+     */
+    public synchronized boolean leq(int a, int b) {
+        return apply(OP_AND, a, negate(b)) == FALSE;
+    }
+
+    private int apply(int op, int a, int b) {
+        // Terminal cases
+        if (op == OP_AND) {
+            if (a == FALSE || b == FALSE) return FALSE;
+            if (a == TRUE) return b;
+            if (b == TRUE || a == b) return a;
+        } else {
+            if (a == TRUE || b == TRUE) return TRUE;
+            if (a == FALSE) return b;
+            if (b == FALSE || a == b) return a;
+        }
+        // Both operations are commutative: normalise the cache key.
+        if (a > b) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        long key = ((long) a << 32) | (b & 0xffffffffL);
+        Integer cached = applyCache.get(op).get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int level = Math.min(level(a), level(b));
+        int[] kids = new int[domainSize(level)];
+        for (int s = 0; s < kids.length; s++) {
+            kids[s] = apply(op, cofactor(a, level, s), cofactor(b, level, s));
+        }
+        int result = mk(level, kids);
+        applyCache.get(op).put(key, result);
+        return result;
+    }
+
+    private int negate(int a) {
+        if (a == FALSE) return TRUE;
+        if (a == TRUE) return FALSE;
+        Integer cached = notCache.get(a);
+        if (cached != null) {
+            return cached;
+        }
+        int level = level(a);
+        int[] kids = new int[domainSize(level)];
+        for (int s = 0; s < kids.length; s++) {
+            kids[s] = negate(kid(a, s));
+        }
+        int result = mk(level, kids);
+        notCache.put(a, result);
+        return result;
+    }
+
+    /**
+     * Rewrites the machine at {@code level}: every configuration in which it is in state s with
+     * {@code targetOf[s] >= 0} is moved to state {@code targetOf[s]}; the other configurations
+     * are left untouched.
+     */
+    public synchronized int relabel(int node, int level, int[] targetOf) {
+        return relabel(node, level, targetOf, new HashMap<>());
+    }
+
+    private int relabel(int node, int level, int[] targetOf, Map<Integer, Integer> cache) {
+        if (node == FALSE) {
+            return FALSE;
+        }
+        Integer cached = cache.get(node);
+        if (cached != null) {
+            return cached;
+        }
+        int result;
+        if (level(node) < level) {
+            int[] kids = new int[domainSize(level(node))];
+            for (int s = 0; s < kids.length; s++) {
+                kids[s] = relabel(kid(node, s), level, targetOf, cache);
+            }
+            result = mk(level(node), kids);
+        } else {
+            int[] kids = new int[domainSize(level)];
+            for (int s = 0; s < kids.length; s++) {
+                int dest = targetOf[s] >= 0 ? targetOf[s] : s;
+                kids[dest] = apply(OP_OR, kids[dest], cofactor(node, level, s));
+            }
+            result = mk(level, kids);
+        }
+        cache.put(node, result);
+        return result;
+    }
+
+    // ---------------------------------------------------------------- enumeration
+
+    /**
+     * Returns the number of fully specified configurations denoted by the given node.
+     */
+    public synchronized double countConfigurations(int node) {
+        return count(node, 0, new HashMap<>());
+    }
+
+    private double count(int node, int fromLevel, Map<Integer, Double> cache) {
+        double free = 1;
+        int level = level(node);
+        for (int l = fromLevel; l < level; l++) {
+            free *= domainSize(l);
+        }
+        if (node == FALSE) return 0;
+        if (node == TRUE) return free;
+        Double below = cache.get(node);
+        if (below == null) {
+            double sum = 0;
+            for (int s = 0; s < domainSize(level); s++) {
+                sum += count(kid(node, s), level + 1, cache);
+            }
+            below = sum;
+            cache.put(node, below);
+        }
+        return free * below;
+    }
+
+    /**
+     * Visits the disjoint cubes (paths to TRUE) of the given node. The visitor receives an
+     * assignment array indexed by level, holding a state index or -1 for an unconstrained machine;
+     * the array is reused between calls.
+     */
+    public synchronized void forEachCube(int node, CubeVisitor visitor) {
+        int[] assignment = new int[machineIds.length];
+        Arrays.fill(assignment, -1);
+        walk(node, assignment, visitor);
+    }
+
+    private void walk(int node, int[] assignment, CubeVisitor visitor) {
+        if (node == FALSE) {
+            return;
+        }
+        if (node == TRUE) {
+            visitor.visit(assignment);
+            return;
+        }
+        int level = level(node);
+        for (int s = 0; s < domainSize(level); s++) {
+            if (kid(node, s) != FALSE) {
+                assignment[level] = s;
+                walk(kid(node, s), assignment, visitor);
+            }
+        }
+        assignment[level] = -1;
+    }
+
+    /**
+     * Callback used by {@link #forEachCube(int, CubeVisitor)}.
+     */
+    @FunctionalInterface
+    public interface CubeVisitor {
+        void visit(int[] assignment);
+    }
+
+    @Override
+    public String toString() {
+        return "DecisionDiagram{" + assemblyId + ", levels=" + Arrays.toString(machineIds) + ", nodes=" + nodeCount + "}";
+    }
+}
@@ -6,9 +6,9 @@ import machinery.StateMachine;
 import machinery.Transition;
 import machinery.TransitionInterface;
 import smalgebra.BasicStateProposition;
-import smalgebra.FalseProposition;
-import smalgebra.OrProposition;
+import smalgebra.PropositionFactory;
 import smalgebra.SMProposition;
+import smalgebra.SatisfiabilityChecker;
 
 import java.io.Serializable;
 import java.util.*;
@@ -18,20 +18,82 @@ import java.util.Objects;
 
 
 public class Semantics implements Serializable {
+    private static final long serialVersionUID = -7102705634886202437L;
+
     private String assemblyId;
     private Set<Configuration> configurations;
+    // True while the set may be shared with other Semantics, which never modify it: it is copied
+    // before the first change. Set when a result of the algebra is built (see share) and for a
+    // clone, and only written by the owner of the set, so that Semantics read by several threads
+    // can be cloned concurrently.
+    private transient boolean shared;
+    // Subsumption index of the configurations, built once the set is large enough and kept up to
+    // date by addConfiguration; a clone starts without one.
+    private transient SubsumptionIndex index;
+    // Projection of the configurations on each machine, computed on first use and dropped by
+    // addConfiguration; immutable, so a clone can share it.
+    private transient volatile StateProjection projection;
+
+    // Below this many configurations a linear scan is cheaper than the subsumption index.
+    private static final int INDEX_THRESHOLD = 16;
+
+    /**
+     * States each machine is constrained to by some configuration, and the machines constrained by
+     * every configuration.
+     */
+    private static final class StateProjection {
+        final Map<String, Set<String>> states;
+        final Set<String> constrainedEverywhere;
+
+        StateProjection(Map<String, Set<String>> states, Set<String> constrainedEverywhere) {
+            this.states = states;
+            this.constrainedEverywhere = constrainedEverywhere;
+        }
+    }
 
     public Semantics(String assemblyId) {
         this.assemblyId = assemblyId;
         this.configurations = new HashSet<>();
     }
 
+    private Semantics(String assemblyId, Set<Configuration> configurations, boolean shared) {
+        this.assemblyId = assemblyId;
+        this.configurations = configurations;
+        this.shared = shared;
+    }
+
+    /**
+     * Creates a Semantics holding the given configurations without checking subsumption: they must
+     * not imply each other (as distinct fully-specified configurations do). The set is owned by the
+     * new Semantics and must not be modified afterwards.
+     */
+    public static Semantics ofAntichain(String assemblyId, Set<Configuration> configurations) {
+        return new Semantics(assemblyId, configurations, true);
+    }
+
+    // Marks a Semantics built by this class as finished: its set is only read from now on, so its
+    // clones share it, and a later addConfiguration copies it first.
+    private Semantics share() {
+        this.shared = true;
+        return this;
+    }
+
     public String getAssemblyId() {
         return assemblyId;
     }
 
+    /**
+     * Returns a read-only view of the configurations; use addConfiguration to add one.
+     */
     public Set<Configuration> getConfigurations() {
-        return configurations;
+        return Collections.unmodifiableSet(configurations);
+    }
+
+    /**
+     * Returns the number of configurations, without wrapping the set.
+     */
+    public int configurationCount() {
+        return configurations.size();
     }
 
     /**
@@ -45,24 +107,56 @@ public class Semantics implements Serializable {
         if (!config.getAssemblyId().equals(this.assemblyId)) {
             throw new IllegalArgumentException("The configuration belongs to a different assembly.");
         }
-        // Create a copy of the current configurations to iterate safely.
-        Set<Configuration> toCheck = new HashSet<>(configurations);
-        for (Configuration existing : toCheck) {
-            if (config.implies(existing)) {
-                // New configuration is more specific than an existing configuration.
-                // Therefore, do not add the new configuration.
-                return this;
-            }
-            if (existing.implies(config)) {
-                // Existing configuration is more specific than the new one.
-                // Remove the more specific configuration.
+        if (index == null && configurations.size() >= INDEX_THRESHOLD) {
+            index = new SubsumptionIndex(configurations);
+        }
+        if (index != null ? index.isSubsumed(config) : config.implies(this)) {
+            // New configuration is more specific than an existing configuration.
+            // Therefore, do not add the new configuration.
+            return this;
+        }
+        if (shared) {
+            configurations = new HashSet<>(configurations);
+            shared = false;
+        }
+        projection = null;
+        // Existing configurations more specific than the new one are removed.
+        if (index != null) {
+            for (Configuration existing : index.subsumedBy(config)) {
                 configurations.remove(existing);
+                index.remove(existing);
             }
+            index.add(config);
+        } else {
+            configurations.removeIf(existing -> existing.implies(config));
         }
         configurations.add(config);
         return this;
     }
 
+    /**
+     * Builds the antichain of the most general configurations among the candidates: a candidate is
+     * dropped if it implies another one. The candidates are visited from the least constrained, so
+     * that a candidate can only be implied by the ones already kept, never imply them; above a few
+     * candidates, the kept ones are looked up in a SubsumptionIndex.
+     */
+    private static Semantics antichainOf(String assemblyId, Collection<Configuration> candidates) {
+        List<Configuration> sorted = new ArrayList<>(new HashSet<>(candidates));
+        sorted.sort(Comparator.comparingInt(Configuration::constraintCount));
+        Semantics result = new Semantics(assemblyId);
+        SubsumptionIndex kept = sorted.size() >= INDEX_THRESHOLD ? new SubsumptionIndex() : null;
+        for (Configuration c : sorted) {
+            if (kept != null ? !kept.isSubsumed(c) : !c.implies(result)) {
+                result.configurations.add(c);
+                if (kept != null) {
+                    kept.add(c);
+                }
+            }
+        }
+        result.index = kept;
+        return result.share();
+    }
+
     /**
      * Determines whether this Semantics implies the other Semantics.
      * In other words, for every configuration in this Semantics,
@@ -93,6 +187,112 @@ public class Semantics implements Serializable {
         return true;
     }
 
+    // One pass over the configurations, cached until the next change.
+    private StateProjection projection() {
+        StateProjection p = projection;
+        if (p == null) {
+            Map<String, Set<String>> states = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            for (Configuration conf : this.configurations) {
+                for (BasicStateProposition bsp : conf.getBasicStatePropositions()) {
+                    states.computeIfAbsent(bsp.getMachineId(), k -> new HashSet<>()).add(bsp.getStateName());
+                    counts.merge(bsp.getMachineId(), 1, Integer::sum);
+                }
+            }
+            Set<String> everywhere = new HashSet<>();
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() >= this.configurations.size()) {
+                    everywhere.add(entry.getKey());
+                }
+            }
+            states.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+            p = new StateProjection(states, everywhere);
+            projection = p;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the states S of machine m such that { m:S } AND this Semantics is not empty: the states some
+     * configuration constrains m to or, as soon as one configuration leaves m unconstrained, every state
+     * of m in the assembly but the pseudostate, which no configuration can hold. The projection on all the machines is computed in
+     * a single pass over the configurations and kept until the next change.
+     *
+     * @param machineId The identifier of the machine m.
+     * @param assembly  The Assembly instance defining the states of m.
+     * @return The names of the reachable states of m (empty if this Semantics is empty).
+     */
+    public Set<String> stateDomain(String machineId, Assembly assembly) {
+        if (this.configurations.isEmpty()) {
+            return Collections.emptySet();
+        }
+        StateProjection p = projection();
+        if (p.constrainedEverywhere.contains(machineId)) {
+            return p.states.get(machineId);
+        }
+        StateMachine machine = assembly.getStateMachines().get(machineId);
+        Set<String> all = new HashSet<>(p.states.getOrDefault(machineId, Collections.emptySet()));
+        if (machine != null) {
+            for (StateInterface s : machine.getStates()) {
+                if (!s.getName().equals("PseudoState")) {
+                    all.add(s.getName());
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Existential quantification over machine m: the configurations that agree with this Semantics on
+     * every machine but m, whatever the state of m. Each configuration loses its constraint on m.
+     *
+     * @param machineId The identifier of the machine m.
+     * @return A new Semantics in which no configuration constrains m.
+     */
+    public Semantics existsMachine(String machineId) {
+        StateProjection p = projection();
+        if (!p.states.containsKey(machineId)) {
+            // No configuration constrains m
+            return this.clone();
+        }
+        List<Configuration> projected = new ArrayList<>(this.configurations.size());
+        for (Configuration conf : this.configurations) {
+            projected.add(conf.contains(machineId) ? without(conf, Set.of(machineId), false) : conf);
+        }
+        return antichainOf(this.assemblyId, projected);
+    }
+
+    /**
+     * Projects this Semantics on the given machines (existential quantification over all the others):
+     * each configuration keeps only its constraints on those machines.
+     *
+     * @param machineIds The identifiers of the machines to keep.
+     * @return A new Semantics constraining only the given machines.
+     */
+    public Semantics project(Set<String> machineIds) {
+        if (machineIds.containsAll(projection().states.keySet())) {
+            return this.clone();
+        }
+        List<Configuration> projected = new ArrayList<>(this.configurations.size());
+        for (Configuration conf : this.configurations) {
+            projected.add(without(conf, machineIds, true));
+        }
+        return antichainOf(this.assemblyId, projected);
+    }
+
+    // The configuration restricted to the machines in (keep) or out of (!keep) the given set.
+    private static Configuration without(Configuration conf, Set<String> machineIds, boolean keep) {
+        List<BasicStateProposition> props = new ArrayList<>();
+        for (BasicStateProposition bsp : conf.getBasicStatePropositions()) {
+            if (machineIds.contains(bsp.getMachineId()) == keep) {
+                props.add(bsp);
+            }
+        }
+        return props.size() == conf.getBasicStatePropositions().size()
+                ? conf
+                : Configuration.fromBasicStatePropositions(conf.getAssemblyId(), props);
+    }
+
     /**
      * Simplifies this Semantics by checking, for each state machine m in the given Assembly and each state S of m,
      * whether the semantics consisting solely of the configuration for m.S implies this Semantics.
@@ -131,16 +331,12 @@ public class Semantics implements Serializable {
      * of each configuration.
      */
     public SMProposition toSMProposition() {
-        // If no configurations are present, return the identity element for OR (FalseProposition)
-        if (configurations.isEmpty()) {
-            return new FalseProposition();
-        }
-        // Alternatively, you can start with a FalseProposition and OR every configuration’s SMProposition.
-        SMProposition disj = new FalseProposition();
+        // A single flat n-ary OR of the configurations (FalseProposition if there are none).
+        List<SMProposition> disjuncts = new ArrayList<>(configurations.size());
         for (Configuration config : configurations) {
-            disj = new OrProposition(disj, config.toSMProposition());
+            disjuncts.add(config.toSMProposition());
         }
-        return disj;
+        return PropositionFactory.or(disjuncts);
     }
 
     public Semantics intersection(Semantics other) {
@@ -160,7 +356,7 @@ public class Semantics implements Serializable {
         // Create a new Semantics object and assign the computed intersections directly.
         Semantics result = new Semantics(this.assemblyId);
         result.configurations.addAll(intersectionSet);
-        return result;
+        return result.share();
     }
 
     /**
@@ -191,7 +387,7 @@ public class Semantics implements Serializable {
         for (Configuration config : finalSet) {
             result.addConfiguration(config);
         }
-        return result;
+        return result.share();
     }
 
     /**
@@ -279,25 +475,11 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
-        Set<Configuration> unionSet = new HashSet<>();
-        unionSet.addAll(this.configurations);
-        unionSet.addAll(other.configurations);
-
+        List<Configuration> unionList = new ArrayList<>(this.configurations.size() + other.configurations.size());
+        unionList.addAll(this.configurations);
+        unionList.addAll(other.configurations);
         // Minimize: remove the configuration that implies the other (i.e. the more specific one).
-        Set<Configuration> minimized = new HashSet<>(unionSet);
-        for (Configuration c1 : unionSet) {
-            for (Configuration c2 : unionSet) {
-                if (c1 != c2 && c1.implies(c2)) {
-                    // c1 is more specific than c2, so remove c1.
-                    minimized.remove(c1);
-                }
-            }
-        }
-        Semantics result = new Semantics(this.assemblyId);
-        for (Configuration c : minimized) {
-            result.addConfiguration(c);
-        }
-        return result;
+        return antichainOf(this.assemblyId, unionList);
     }
 
     /**
@@ -312,29 +494,27 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
-        Set<Configuration> interSet = new HashSet<>();
-        for (Configuration c1 : this.configurations) {
-            for (Configuration c2 : other.configurations) {
-                Configuration cInter = c1.intersect(c2);
-                if (cInter != null) {
-                    interSet.add(cInter);
+        List<Configuration> interList = new ArrayList<>();
+        if (other.configurations.size() >= INDEX_THRESHOLD) {
+            // Only the pairs that agree on their common machines have an intersection
+            SubsumptionIndex otherIndex = other.index != null ? other.index : new SubsumptionIndex(other.configurations);
+            for (Configuration c1 : this.configurations) {
+                for (Configuration c2 : otherIndex.compatibleWith(c1)) {
+                    interList.add(c1.intersect(c2));
                 }
             }
-        }
-        // Minimize: remove redundant configurations
-        Set<Configuration> minimized = new HashSet<>(interSet);
-        for (Configuration c1 : interSet) {
-            for (Configuration c2 : interSet) {
-                if (c1 != c2 && c1.implies(c2)) {
-                    minimized.remove(c2);
+        } else {
+            for (Configuration c1 : this.configurations) {
+                for (Configuration c2 : other.configurations) {
+                    Configuration cInter = c1.intersect(c2);
+                    if (cInter != null) {
+                        interList.add(cInter);
+                    }
                 }
             }
         }
-        Semantics result = new Semantics(this.assemblyId);
-        for (Configuration c : minimized) {
-            result.addConfiguration(c);
-        }
-        return result;
+        // Minimize: remove redundant configurations (the more specific one of each implied pair)
+        return antichainOf(this.assemblyId, interList);
     }
 
     /**
@@ -349,23 +529,67 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(assembly.getAssemblyId())) {
             throw new IllegalArgumentException("Assembly ID mismatch.");
         }
-        Set<Configuration> universe = assembly.generateUniverse();
         Semantics result = new Semantics(this.assemblyId);
-        for (Configuration c : universe) {
-            boolean isSatisfied = false;
-            // If configuration c satisfies (i.e. implies) any configuration in this Semantics,
-            // then it belongs to the initial semantics and must be excluded.
-            for (Configuration s : this.configurations) {
-                if (c.implies(s)) {
-                    isSatisfied = true;
-                    break;
-                }
-            }
-            if (!isSatisfied) {
-                result.addConfiguration(c);
-            }
+        // If configuration c satisfies (i.e. implies) any configuration in this Semantics,
+        // then it belongs to the initial semantics and must be excluded.
+        assembly.universeStream()
+                .filter(c -> !c.implies(this))
+                .forEach(result::addConfiguration);
+        return result.share();
+    }
+
+    /**
+     * Converts this Semantics into its decision-diagram form over the universe of the given Assembly.
+     *
+     * @param assembly The Assembly whose machines and states define the diagram levels and domains.
+     * @return The SymbolicSemantics denoting the same fully-specified configurations.
+     */
+    public SymbolicSemantics toSymbolic(Assembly assembly) {
+        return SymbolicSemantics.of(this, assembly);
+    }
+
+    /**
+     * Computes the complement of this Semantics on its decision-diagram form, without enumerating
+     * the universe of configurations.
+     *
+     * @param assembly The Assembly instance defining the universe.
+     * @return A new Semantics representing the complement.
+     */
+    public Semantics complementSymbolic(Assembly assembly) {
+        if (!this.assemblyId.equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Assembly ID mismatch.");
         }
-        return result;
+        return this.toSymbolic(assembly).NOT().toSemantics();
+    }
+
+    /**
+     * Computes the complement of this Semantics directly on its configurations, seen as cubes over the
+     * state domains of the machines (see CoverMinimizer): neither the universe nor a decision diagram
+     * is built, and the result has a size proportional to the complement.
+     *
+     * @param assembly The Assembly instance defining the universe.
+     * @return A new Semantics representing the complement.
+     */
+    public Semantics complementCubes(Assembly assembly) {
+        if (!this.assemblyId.equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Assembly ID mismatch.");
+        }
+        return antichainOf(this.assemblyId, new CoverMinimizer(assembly).complement(this.assemblyId, this.configurations));
+    }
+
+    /**
+     * Determines whether this Semantics logically implies the other Semantics by comparing
+     * their decision diagrams (this AND NOT other must be empty).
+     *
+     * @param other The Semantics to compare against.
+     * @param assembly The Assembly instance defining the universe.
+     * @return true if every fully-specified configuration of this Semantics belongs to the other.
+     */
+    public boolean impliesSymbolic(Semantics other, Assembly assembly) {
+        if (!this.assemblyId.equals(other.getAssemblyId())) {
+            throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
+        }
+        return this.toSymbolic(assembly).LEQ(other.toSymbolic(assembly));
     }
 
     /**
@@ -395,13 +619,13 @@ public class Semantics implements Serializable {
 
     /**
      * Determines whether this Semantics logically implies the other Semantics,
-     * using a universal evaluation over all feasible assemblies.
-     * Instead of cloning assemblies, it converts both Semantics operands to their
-     * SMProposition representations, evaluates each over all feasible assemblies via
-     * evaluateSMPropositionOverAllFeasibleAssemblies, and then compares the resulting Semantics.
+     * universally over the fully-specified configurations of the assembly.
+     * Both Semantics are converted to their SMProposition representations and the implication is
+     * decided by a SatisfiabilityChecker (this AND NOT other must be unsatisfiable), so the
+     * universe of configurations is never enumerated.
      *
      * @param other The Semantics to compare against.
-     * @param assembly The Assembly instance used to generate the universe of configurations.
+     * @param assembly The Assembly instance defining the universe of configurations.
      * @return true if, for every fully-specified configuration where this Semantics holds,
      *         the other Semantics also holds; false otherwise.
      * @throws IllegalArgumentException if the two Semantics belong to different assemblies.
@@ -410,19 +634,7 @@ public class Semantics implements Serializable {
         if (!this.assemblyId.equals(other.getAssemblyId())) {
             throw new IllegalArgumentException("Both Semantics must belong to the same assembly.");
         }
-        // Convert both semantics to their SMProposition forms.
-        SMProposition s1Prop = this.toSMProposition();
-        SMProposition s2Prop = other.toSMProposition();
-
-        // Evaluate each proposition over all feasible assemblies.
-        // This method returns a Semantics representing the set of fully-specified configurations
-        // in which the proposition holds.
-        Semantics semS1 = evaluateSMPropositionOverAllFeasibleAssemblies(assembly, s1Prop);
-        Semantics semS2 = evaluateSMPropositionOverAllFeasibleAssemblies(assembly, s2Prop);
-
-        // Now, we consider that this Semantics implies the other if every configuration in semS1
-        // implies at least one configuration in semS2.
-        return semS1.impliesTest(semS2);
+        return new SatisfiabilityChecker(assembly).implies(this.toSMProposition(), other.toSMProposition());
     }
 
     /**
@@ -455,22 +667,54 @@ public class Semantics implements Serializable {
         return resultSemantics;
     }
 
+    /**
+     * Simplifies this Semantics into a compact cover: an irredundant set of prime configurations denoting
+     * the same fully-specified configurations of the universe. Unlike simplifyTest, which only adds the
+     * single-constraint configurations m.S implied by this Semantics, configurations that together cover
+     * every state of a machine are merged into one leaving the machine unconstrained, and the configurations
+     * covered by the others are removed (see CoverMinimizer).
+     *
+     * @param assembly The Assembly instance defining the universe and the state domain of each machine.
+     * @return A new Semantics equivalent to this one over the universe.
+     */
+    public Semantics simplifyCover(Assembly assembly) {
+        return simplifyCover(assembly, CoverMinimizer.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Like {@link #simplifyCover(Assembly)}, bounding the work of the minimisation: once the budget of
+     * containment-check steps is spent, the cover reached so far is returned (still equivalent, possibly
+     * less compact).
+     *
+     * @param budget Maximum number of containment-check steps.
+     */
+    public Semantics simplifyCover(Assembly assembly, int budget) {
+        if (!this.assemblyId.equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Assembly ID mismatch.");
+        }
+        Set<Configuration> cover = new CoverMinimizer(assembly, budget).minimize(this.assemblyId, this.configurations);
+        // An irredundant cover is an antichain: no configuration implies another one
+        return ofAntichain(this.assemblyId, cover);
+    }
+
     /**
      * Transforms this Semantics by applying an action A = M.E, where M is a machine and E is an event.
      *
      * This transformation is conceptualized as a function mapping a domain to a codomain:
      *
-     * 1. Domain: Identify the subset of configurations in this Semantics that are affected by the transition,
-     *    i.e. those configurations that contain the constraint { M:S } where S is the source state of the transition.
+     * 1. Domain: Identify the configurations of this Semantics that are affected by the transitions triggered
+     *    by E, i.e. those configurations that allow { M:S } where S is the source state of one of them.
      *
      * 2. Transformation: For each configuration in the domain, replace the constraint { M:S } with { M:T },
-     *    where T is the target state of the transition triggered by event E.
+     *    where T is the target state of a transition from S triggered by event E.
      *
-     * 3. Final Semantics: Compute the transformed semantics by removing the original domain from this Semantics
-     *    and then uniting it with the codomain (the set of transformed configurations).
+     * 3. Final Semantics: the configurations outside the domain are kept, the others are replaced by their
+     *    transformed configurations (see relabel).
      *
-     * If no transition matching the given event is found in machine M, or if the intersection of this Semantics
-     * with the domain is empty, then no transformation is performed and the original Semantics is returned.
+     * The transitions triggered by E are looked up in the event index of M (see StateMachine.getTransitionsByEvent);
+     * the event may fire from several source states, and several transitions from the same source give one
+     * configuration per target. If the domain is empty, no transformation is performed and the original
+     * Semantics is returned.
      *
      * @param machineId The identifier of the machine M that is involved in the action.
      * @param eventName The event E triggering the transition.
@@ -486,116 +730,145 @@ public class Semantics implements Serializable {
             throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
         }
 
-        // Find a transition triggered by eventName.
-        Transition transition = null;
-        for (TransitionInterface t : machine.getTransitions()) {
-            if (t.getTriggerEvent().equals(eventName)) {
-                transition = (Transition) t;
-                break;
-            }
-        }
-        if (transition == null) {
+        // Find the transitions triggered by eventName.
+        List<TransitionInterface> fired = machine.getTransitionsByEvent(eventName);
+        if (fired.isEmpty()) {
             throw new IllegalArgumentException("No transition triggered by event " + eventName + " found in machine " + machineId);
         }
-
-        String sourceState = transition.getSource().getName();
-        String targetState = transition.getTarget().getName();
-
-        // Create a configuration representing { machineId: sourceState }
-        Configuration confSource = Configuration.fromBasicStatePropositions(
-                this.assemblyId,
-                Arrays.asList(new BasicStateProposition(machineId, sourceState))
-        );
-        // Check if the current Semantics intersects  { machineId: sourceState }
-        Semantics semSource = confSource.toSemantics();
-
-        // build the domain of the transformation function
-        Semantics domain = this.intersection(semSource);
-        // check if the domain is not empty
-        if ( domain.configurations.isEmpty() ) {
-            // If it is empty, we don't perform any transformation.
-            return this;
+        Map<String, Set<String>> targets = new LinkedHashMap<>();
+        for (TransitionInterface t : fired) {
+            targets.computeIfAbsent(t.getSource().getName(), k -> new LinkedHashSet<>()).add(t.getTarget().getName());
         }
-        // if is not empty transform the domain in the codomain
-
-        // Build a new codomain by transforming the domain:
-        // For each configuration in the domain, substitute each basic state proposition
-        // (...,machineId.sourceState,...) with (...,machineId.targetState,...)
-        final Semantics codomain = domain.computeCodomain(machineId, assembly, sourceState, targetState);
-        Semantics removeDomainFromThis = this.AND(semSource.NOT(assembly));
-        Semantics addCodomainToThis = removeDomainFromThis.OR(codomain);
-
-        return addCodomainToThis.clone();
+        long start = SemanticsMetrics.start();
+        Semantics result = relabel(machineId, machine, targets);
+        SemanticsMetrics.stop(SemanticsMetrics.Operation.TRANSFORM_BY_EVENT, start, result.configurations.size());
+        return result;
     }
 
     public Semantics transformByMachineTransition(String machineId, Transition transition, Assembly assembly) {
         String sourceState = transition.getSource().getName();
         String targetState = transition.getTarget().getName();
-
-        // Create a configuration representing { machineId: sourceState }
-        Configuration confSource = Configuration.fromBasicStatePropositions(
-                this.assemblyId,
-                Arrays.asList(new BasicStateProposition(machineId, sourceState))
-        );
-        // Check if the current Semantics intersects  { machineId: sourceState }
-        Semantics semSource = confSource.toSemantics();
-
-        // build the domain of the transformation function
-        Semantics domain = this.intersection(semSource);
-        // check if the domain is not empty
-        if ( domain.configurations.isEmpty() ) {
-            // If it is empty, we don't perform any transformation.
-            return this;
+        StateMachine machine = assembly.getStateMachines().get(machineId);
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
         }
-        // if is not empty transform the domain in the codomain
-
-        // Build a new codomain by transforming the domain:
-        // For each configuration in the domain, substitute each basic state proposition
-        // (...,machineId.sourceState,...) with (...,machineId.targetState,...)
-        final Semantics codomain = domain.computeCodomain(machineId, assembly, sourceState, targetState);
-        Semantics removeDomainFromThis = this.AND(semSource.NOT(assembly));
-        Semantics addCodomainToThis = removeDomainFromThis.OR(codomain);
+        long start = SemanticsMetrics.start();
+        Semantics result = relabel(machineId, machine, Map.of(sourceState, Set.of(targetState)));
+        SemanticsMetrics.stop(SemanticsMetrics.Operation.TRANSFORM_BY_TRANSITION, start, result.configurations.size());
+        return result;
+    }
 
-        return addCodomainToThis.clone();
+    /**
+     * Rewrites the constraint on machine M of every configuration in a single pass, without computing
+     * the complement of the domain:
+     * <ul>
+     *   <li>a configuration with { M:S }, S a source, becomes one configuration with { M:T } per target T of S;</li>
+     *   <li>a configuration with { M:X }, X not a source, is kept;</li>
+     *   <li>a configuration that does not constrain M stands for every state of M: it is split into one
+     *       configuration per reachable state (the states that are not sources, and the targets), unless
+     *       those are all the states of M, in which case it is kept as it is.</li>
+     * </ul>
+     * The result is the same as removing the domain from this Semantics and adding its codomain.
+     *
+     * @param targets the target states of each source state of M
+     * @return the transformed Semantics, or this Semantics if no configuration is affected
+     */
+    private Semantics relabel(String machineId, StateMachine machine, Map<String, Set<String>> targets) {
+        Semantics result = new Semantics(this.assemblyId);
+        // States reached by the configurations that do not constrain M, computed on first use
+        Set<String> unconstrained = null;
+        boolean unconstrainedKept = false;
+        boolean changed = false;
+        for (Configuration conf : this.configurations) {
+            String state = conf.getStateName(machineId);
+            if (state == null) {
+                if (unconstrained == null) {
+                    // The states of M in the universe: the pseudostate is not part of it
+                    Set<String> all = new LinkedHashSet<>();
+                    for (StateInterface s : machine.getStates()) {
+                        if (!s.getName().equals("PseudoState")) {
+                            all.add(s.getName());
+                        }
+                    }
+                    unconstrained = new LinkedHashSet<>();
+                    for (String s : all) {
+                        Set<String> reached = targets.get(s);
+                        if (reached == null) {
+                            unconstrained.add(s);
+                        } else {
+                            unconstrained.addAll(reached);
+                        }
+                    }
+                    unconstrainedKept = unconstrained.containsAll(all);
+                }
+                if (unconstrainedKept) {
+                    result.addConfiguration(conf);
+                } else {
+                    changed = true;
+                    for (String s : unconstrained) {
+                        result.addConfiguration(conf.replaceConstraint(machineId, s));
+                    }
+                }
+            } else {
+                Set<String> reached = targets.get(state);
+                if (reached == null) {
+                    result.addConfiguration(conf);
+                } else {
+                    changed = true;
+                    for (String s : reached) {
+                        result.addConfiguration(conf.replaceConstraint(machineId, s));
+                    }
+                }
+            }
+        }
+        // If the domain is empty, we don't perform any transformation.
+        return changed ? result.share() : this;
     }
 
     public Semantics computeCodomain(String machineId, Assembly assembly, String sourceState, String targetState) {
         Semantics codomain = new Semantics(assembly.getAssemblyId());
+        Set<String> constrained = projection().states.get(machineId);
+        if (constrained == null || !constrained.contains(sourceState)) {
+            // No configuration has { M:S }
+            return codomain;
+        }
         for (Configuration conf : this.configurations) {
-            if (conf.contains(machineId) && conf.getStateName(machineId).equals(sourceState)) {
+            if (sourceState.equals(conf.getStateName(machineId))) {
                 Configuration newConf = conf.replaceConstraint(machineId, targetState);
                 codomain.addConfiguration(newConf);
             }
         }
-        return codomain;
+        return codomain.share();
     }
 
+    /**
+     * Returns a copy of this Semantics without modifying it. Configurations are immutable, and the
+     * results of the algebra (AND, OR, NOT, DIFF, the relabellings, top, bottom and the covers) are
+     * built with a shared set, so their clones share it in constant time. Only a Semantics filled in
+     * place through the public constructor and addConfiguration is copied, once, into a set that
+     * the copy shares.
+     */
     @Override
     public Semantics clone() {
-        Semantics cloned = new Semantics(this.assemblyId);
-        for (Configuration config : this.configurations) {
-            // Get the list of basic state propositions from the original configuration.
-            List<BasicStateProposition> clonedProps = new ArrayList<>(config.getBasicStatePropositions());
-            // Create a new Configuration with the same assemblyId and propositions.
-            Configuration clonedConfig = Configuration.fromBasicStatePropositions(this.assemblyId, clonedProps);
-            // Add the cloned configuration to the new Semantics.
-            cloned.addConfiguration(clonedConfig);
-        }
-        return cloned;
+        Semantics copy = new Semantics(this.assemblyId,
+                shared ? this.configurations : new HashSet<>(this.configurations), true);
+        copy.projection = this.projection;
+        return copy;
     }
 
     // Some logic here
 
     public static Semantics top(String assemblyId, Assembly assembly) {
         // Return a Semantics that contains all fully-specified configurations
-        Semantics sem = new Semantics(assemblyId);
-        sem.getConfigurations().addAll(assembly.generateUniverse());
-        return sem;
+        // Distinct fully-specified configurations never imply each other: no subsumption to check.
+        Set<Configuration> universe = new HashSet<>();
+        assembly.universeSpliterator().forEachRemaining(universe::add);
+        return ofAntichain(assemblyId, universe);
     }
 
     public static Semantics bottom(String assemblyId) {
         // Return a Semantics that is empty.
-        return new Semantics(assemblyId);
+        return new Semantics(assemblyId, new HashSet<>(), true);
     }
 
     // Add the following methods to the Semantics class (e.g., after the existing top and bottom methods):
@@ -609,15 +882,24 @@ public class Semantics implements Serializable {
     }
 
     public Semantics OR(Semantics other) {
-        return this.unionTest(other);
+        long start = SemanticsMetrics.start();
+        Semantics result = this.unionTest(other);
+        SemanticsMetrics.stop(SemanticsMetrics.Operation.OR, start, result.configurations.size());
+        return result;
     }
 
     public Semantics AND(Semantics other) {
-        return this.intersectionTest(other);
+        long start = SemanticsMetrics.start();
+        Semantics result = this.intersectionTest(other);
+        SemanticsMetrics.stop(SemanticsMetrics.Operation.AND, start, result.configurations.size());
+        return result;
     }
 
     public Semantics NOT(Assembly assembly) {
-        return this.complementTest(assembly);
+        long start = SemanticsMetrics.start();
+        Semantics result = this.complementCubes(assembly);
+        SemanticsMetrics.stop(SemanticsMetrics.Operation.NOT, start, result.configurations.size());
+        return result;
     }
 
     public Semantics DIFF(Semantics other, Assembly assembly) {
@@ -627,7 +909,7 @@ public class Semantics implements Serializable {
     }
 
     public boolean LEQ(Semantics other, Assembly assembly) {
-        return this.impliesTestUniversal(other,assembly);
+        return this.impliesTestUniversal(other, assembly);
     }
 
     public boolean ISEMPTY() {
@@ -0,0 +1,392 @@
+package pws.editor.semantics;
+
+import pws.PWSTransition;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the metrics of the semantics computation: for each {@link Operation}, the number of
+ * calls, the time spent (inclusive of the nested operations: the time of a triggerable transition
+ * includes its AND and its transformations) and the sizes of the resulting configuration sets;
+ * the lookups of the transition and guard caches; the time of the last computation of each
+ * transition.
+ *
+ * <p>Collection is off by default, and with it off an instrumented operation costs one volatile
+ * read. The instrumented code brackets the operation with {@link #start()} and
+ * {@link #stop(Operation, long, int)}; neither allocates, and the counters are striped so the
+ * parallel rounds of the fixed point do not contend on them. The registry is exposed through JMX
+ * by {@link #registerMBean()}.
+ */
+public final class SemanticsMetrics {
+    private static final Logger logger = Logger.getLogger(SemanticsMetrics.class.getName());
+
+    public static final String OBJECT_NAME = "pws.editor.semantics:type=SemanticsMetrics";
+
+    /**
+     * Instrumented operations. The size recorded is the number of configurations of the result,
+     * except for {@link #EXIT_ZONES} where it is the number of exit zones.
+     */
+    public enum Operation {
+        STATE_EVALUATION("computeStateSemanticsOnce"),
+        TRIGGERABLE_TRANSITION("computeTriggerableSemantics"),
+        REACTIVE_TRANSITION("computeTransitionSemantics (reattiva)"),
+        EXIT_ZONES("computeReactiveSemantics"),
+        GUARD("toSemantics (guardia)"),
+        TRANSFORM_BY_EVENT("transformByMachineEvent"),
+        TRANSFORM_BY_TRANSITION("transformByMachineTransition"),
+        AND("AND"),
+        OR("OR"),
+        NOT("NOT");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** Counters of one operation, as read by {@link #snapshot(Operation)}. */
+    public static final class OperationStatistics {
+        private final Operation operation;
+        private final long calls;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long totalConfigurations;
+        private final long maxConfigurations;
+
+        OperationStatistics(Operation operation, long calls, long totalNanos, long maxNanos,
+                            long totalConfigurations, long maxConfigurations) {
+            this.operation = operation;
+            this.calls = calls;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.totalConfigurations = totalConfigurations;
+            this.maxConfigurations = maxConfigurations;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getAverageNanos() {
+            return calls == 0 ? 0 : totalNanos / calls;
+        }
+
+        /** Configurations of the results, summed over the calls. */
+        public long getTotalConfigurations() {
+            return totalConfigurations;
+        }
+
+        public long getMaxConfigurations() {
+            return maxConfigurations;
+        }
+
+        public double getAverageConfigurations() {
+            return calls == 0 ? 0 : (double) totalConfigurations / calls;
+        }
+    }
+
+    // Returned by start() when collection is off
+    private static final long OFF = Long.MIN_VALUE;
+    private static final int OPERATIONS = Operation.values().length;
+
+    private static volatile boolean enabled;
+    private static final LongAdder[] calls = adders(OPERATIONS);
+    private static final LongAdder[] nanos = adders(OPERATIONS);
+    private static final LongAccumulator[] maxNanos = maxima(OPERATIONS);
+    private static final LongAdder[] configurations = adders(OPERATIONS);
+    private static final LongAccumulator[] maxConfigurations = maxima(OPERATIONS);
+    private static final LongAdder transitionHits = new LongAdder();
+    private static final LongAdder transitionMisses = new LongAdder();
+    private static final LongAdder guardHits = new LongAdder();
+    private static final LongAdder guardMisses = new LongAdder();
+    // Weak keys: the transitions deleted from the model are dropped with them
+    private static final Map<PWSTransition, Long> transitionNanos = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private SemanticsMetrics() {
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static LongAccumulator[] maxima(int n) {
+        LongAccumulator[] maxima = new LongAccumulator[n];
+        for (int i = 0; i < n; i++) {
+            maxima[i] = new LongAccumulator(Math::max, 0);
+        }
+        return maxima;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches the collection on or off; the counters collected so far are kept.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Clears all the counters and the transition times.
+     */
+    public static void reset() {
+        for (int i = 0; i < OPERATIONS; i++) {
+            calls[i].reset();
+            nanos[i].reset();
+            maxNanos[i].reset();
+            configurations[i].reset();
+            maxConfigurations[i].reset();
+        }
+        transitionHits.reset();
+        transitionMisses.reset();
+        guardHits.reset();
+        guardMisses.reset();
+        transitionNanos.clear();
+    }
+
+    /**
+     * Marks the start of an operation: the value is passed back to {@link #stop}.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Records an operation started by {@link #start()}; nothing is recorded if collection was off
+     * when it started.
+     *
+     * @param resultConfigurations number of configurations of the result
+     */
+    public static void stop(Operation operation, long start, int resultConfigurations) {
+        if (start != OFF) {
+            record(operation, System.nanoTime() - start, resultConfigurations);
+        }
+    }
+
+    /**
+     * Records an operation timed by the caller, if collection is on.
+     */
+    public static void record(Operation operation, long elapsedNanos, int resultConfigurations) {
+        if (!enabled) {
+            return;
+        }
+        int i = operation.ordinal();
+        calls[i].increment();
+        nanos[i].add(elapsedNanos);
+        maxNanos[i].accumulate(elapsedNanos);
+        configurations[i].add(resultConfigurations);
+        maxConfigurations[i].accumulate(resultConfigurations);
+    }
+
+    /**
+     * Records the time of a computation of the semantics of a transition (cache hits are not
+     * computations, and leave the previous time in place).
+     */
+    public static void stopTransition(PWSTransition transition, long start) {
+        if (start != OFF) {
+            transitionNanos.put(transition, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the time of the last computation of the transition semantics, or -1 if none was
+     * recorded.
+     */
+    public static long getTransitionNanos(PWSTransition transition) {
+        Long elapsed = transitionNanos.get(transition);
+        return elapsed == null ? -1 : elapsed;
+    }
+
+    /** Records a lookup in the transition semantics cache. */
+    public static void transitionLookup(boolean hit) {
+        if (enabled) {
+            (hit ? transitionHits : transitionMisses).increment();
+        }
+    }
+
+    /** Records a lookup in the guard semantics cache. */
+    public static void guardLookup(boolean hit) {
+        if (enabled) {
+            (hit ? guardHits : guardMisses).increment();
+        }
+    }
+
+    public static OperationStatistics snapshot(Operation operation) {
+        int i = operation.ordinal();
+        return new OperationStatistics(operation, calls[i].sum(), nanos[i].sum(), maxNanos[i].get(),
+                configurations[i].sum(), maxConfigurations[i].get());
+    }
+
+    public static long getTransitionHits() {
+        return transitionHits.sum();
+    }
+
+    public static long getTransitionMisses() {
+        return transitionMisses.sum();
+    }
+
+    public static long getGuardHits() {
+        return guardHits.sum();
+    }
+
+    public static long getGuardMisses() {
+        return guardMisses.sum();
+    }
+
+    /** Fraction of the lookups that hit, 0 when there were none. */
+    public static double hitRate(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Registers the registry on the platform MBean server under {@link #OBJECT_NAME}; registering
+     * it again has no effect.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MBean(), name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered concurrently
+        } catch (JMException | SecurityException e) {
+            logger.log(Level.WARNING, "Could not register the semantics metrics MBean.", e);
+        }
+    }
+
+    /**
+     * JMX view of the registry. The maps are keyed by operation label.
+     */
+    public interface SemanticsMetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        void reset();
+
+        Map<String, Long> getCallCounts();
+
+        Map<String, Long> getTotalNanos();
+
+        Map<String, Long> getMaxNanos();
+
+        Map<String, Long> getMaxConfigurations();
+
+        double getTransitionCacheHitRate();
+
+        double getGuardCacheHitRate();
+
+        long getLastRunEvaluations();
+
+        long getLastRunElapsedNanos();
+    }
+
+    private static final class MBean implements SemanticsMetricsMXBean {
+        private interface Field {
+            long of(OperationStatistics statistics);
+        }
+
+        private static Map<String, Long> byOperation(Field field) {
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                values.put(operation.getLabel(), field.of(snapshot(operation)));
+            }
+            return values;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return SemanticsMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            SemanticsMetrics.setEnabled(on);
+        }
+
+        @Override
+        public void reset() {
+            SemanticsMetrics.reset();
+        }
+
+        @Override
+        public Map<String, Long> getCallCounts() {
+            return byOperation(OperationStatistics::getCalls);
+        }
+
+        @Override
+        public Map<String, Long> getTotalNanos() {
+            return byOperation(OperationStatistics::getTotalNanos);
+        }
+
+        @Override
+        public Map<String, Long> getMaxNanos() {
+            return byOperation(OperationStatistics::getMaxNanos);
+        }
+
+        @Override
+        public Map<String, Long> getMaxConfigurations() {
+            return byOperation(OperationStatistics::getMaxConfigurations);
+        }
+
+        @Override
+        public double getTransitionCacheHitRate() {
+            return hitRate(getTransitionHits(), getTransitionMisses());
+        }
+
+        @Override
+        public double getGuardCacheHitRate() {
+            return hitRate(getGuardHits(), getGuardMisses());
+        }
+
+        @Override
+        public long getLastRunEvaluations() {
+            SemanticsTrace.Statistics last = SemanticsTrace.lastRun();
+            return last == null ? 0 : last.getEvaluations();
+        }
+
+        @Override
+        public long getLastRunElapsedNanos() {
+            SemanticsTrace.Statistics last = SemanticsTrace.lastRun();
+            return last == null ? 0 : last.getElapsedNanos();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package pws.editor.semantics;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Progress reporting, cancellation and deadline of a semantics computation.
+ *
+ * <p>The computation calls {@link #checkpoint(int, int, int)} after every state evaluation: the
+ * progress is forwarded to the listener, and a {@link CancellationException} aborts the computation
+ * once {@link #cancel()} has been called or the deadline has passed. The monitor is shared between
+ * the thread running the computation and the thread that may cancel it.
+ */
+public final class SemanticsMonitor {
+    /** Monitor of computations that are neither observed nor cancelled. */
+    public static final SemanticsMonitor NONE = new SemanticsMonitor(0, null);
+
+    /**
+     * Snapshot of the progress of a computation.
+     */
+    public static final class Progress {
+        private final int evaluations;
+        private final int settledStates;
+        private final int totalStates;
+
+        public Progress(int evaluations, int settledStates, int totalStates) {
+            this.evaluations = evaluations;
+            this.settledStates = settledStates;
+            this.totalStates = totalStates;
+        }
+
+        /** Number of state evaluations performed so far. */
+        public int getEvaluations() {
+            return evaluations;
+        }
+
+        /** Number of states whose semantics is final. */
+        public int getSettledStates() {
+            return settledStates;
+        }
+
+        /** Number of states being computed. */
+        public int getTotalStates() {
+            return totalStates;
+        }
+
+        @Override
+        public String toString() {
+            return settledStates + "/" + totalStates + " stati, " + evaluations + " valutazioni";
+        }
+    }
+
+    // System.nanoTime() past which the computation is aborted; 0 for no deadline.
+    private final long deadline;
+    private final Consumer<Progress> listener;
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+
+    /**
+     * @param timeoutMillis maximum duration of the computation, 0 for no deadline
+     * @param listener      receives the progress on the computing thread, may be null
+     */
+    public SemanticsMonitor(long timeoutMillis, Consumer<Progress> listener) {
+        this.deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+        this.listener = listener;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns true if the computation was aborted because its deadline passed.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Reports the progress and aborts the computation if it was cancelled or ran out of time.
+     *
+     * @throws CancellationException if the computation must stop
+     */
+    public void checkpoint(int evaluations, int settledStates, int totalStates) {
+        if (this == NONE) {
+            return;
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            timedOut = true;
+            cancelled = true;
+        }
+        if (cancelled) {
+            throw new CancellationException(timedOut ? "Semantics computation timed out." : "Semantics computation cancelled.");
+        }
+        if (listener != null) {
+            listener.accept(new Progress(evaluations, settledStates, totalStates));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package pws.editor.semantics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instrumentation of the fixed-point computation of {@link SemanticsVisitor}.
+ *
+ * <p>Two surfaces are offered:
+ * <ul>
+ *   <li>the counters of the last computation ({@link #lastRun()}): state evaluations, iterations
+ *       (worklist components or parallel rounds), states whose semantics changed, largest number of
+ *       configurations of a state and time spent evaluating states. They are always collected, with
+ *       a few primitive additions per evaluation;</li>
+ *   <li>a bounded in-memory trace of the evaluations, off by default and switched on with
+ *       {@link #enable(int)}. The trace is a ring buffer of preallocated arrays: recording an
+ *       evaluation allocates nothing, and when tracing is off it is a single volatile read. The
+ *       entries are only materialised by {@link #entries()}.</li>
+ * </ul>
+ * Records come from the thread driving the computation, never from the pool workers.
+ */
+public final class SemanticsTrace {
+
+    /** Counters of one fixed-point computation. */
+    public static final class Statistics {
+        private final String machineName;
+        private final boolean parallel;
+        private final int evaluations;
+        private final int iterations;
+        private final int statesChanged;
+        private final int maxConfigurations;
+        private final long evaluationNanos;
+        private final long elapsedNanos;
+
+        Statistics(String machineName, boolean parallel, int evaluations, int iterations, int statesChanged,
+                   int maxConfigurations, long evaluationNanos, long elapsedNanos) {
+            this.machineName = machineName;
+            this.parallel = parallel;
+            this.evaluations = evaluations;
+            this.iterations = iterations;
+            this.statesChanged = statesChanged;
+            this.maxConfigurations = maxConfigurations;
+            this.evaluationNanos = evaluationNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getMachineName() {
+            return machineName;
+        }
+
+        public boolean isParallel() {
+            return parallel;
+        }
+
+        /** Number of state evaluations. */
+        public int getEvaluations() {
+            return evaluations;
+        }
+
+        /** Worklist components solved, or parallel rounds run. */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /** Number of evaluations that changed the semantics of their state. */
+        public int getStatesChanged() {
+            return statesChanged;
+        }
+
+        /** Largest number of configurations of a state semantics. */
+        public int getMaxConfigurations() {
+            return maxConfigurations;
+        }
+
+        /** Time spent evaluating states, summed over the threads. */
+        public long getEvaluationNanos() {
+            return evaluationNanos;
+        }
+
+        /** Duration of the whole computation. */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{machine='" + machineName + "', parallel=" + parallel + ", evaluations=" + evaluations
+                    + ", iterations=" + iterations + ", statesChanged=" + statesChanged
+                    + ", maxConfigurations=" + maxConfigurations + ", evaluationMs=" + evaluationNanos / 1_000_000
+                    + ", elapsedMs=" + elapsedNanos / 1_000_000 + "}";
+        }
+    }
+
+    /** One traced state evaluation. */
+    public static final class Entry {
+        private final String state;
+        private final int iteration;
+        private final int configurations;
+        private final boolean changed;
+        private final long nanos;
+
+        Entry(String state, int iteration, int configurations, boolean changed, long nanos) {
+            this.state = state;
+            this.iteration = iteration;
+            this.configurations = configurations;
+            this.changed = changed;
+            this.nanos = nanos;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        /** Component or round in which the evaluation happened. */
+        public int getIteration() {
+            return iteration;
+        }
+
+        public int getConfigurations() {
+            return configurations;
+        }
+
+        public boolean isChanged() {
+            return changed;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return iteration + " " + state + ": " + configurations + " configurazioni"
+                    + (changed ? ", cambiata" : "") + ", " + nanos / 1000 + " us";
+        }
+    }
+
+    /**
+     * Counters of a computation in progress, owned by the thread driving it.
+     */
+    static final class Run {
+        private final String machineName;
+        private final boolean parallel;
+        private final long start = System.nanoTime();
+        private int evaluations;
+        private int iterations;
+        private int statesChanged;
+        private int maxConfigurations;
+        private long evaluationNanos;
+
+        Run(String machineName, boolean parallel) {
+            this.machineName = machineName;
+            this.parallel = parallel;
+        }
+
+        void iteration() {
+            iterations++;
+        }
+
+        void evaluated(String state, int configurations, boolean changed, long nanos) {
+            evaluations++;
+            if (changed) {
+                statesChanged++;
+            }
+            maxConfigurations = Math.max(maxConfigurations, configurations);
+            evaluationNanos += nanos;
+            SemanticsMetrics.record(SemanticsMetrics.Operation.STATE_EVALUATION, nanos, configurations);
+            record(state, iterations, configurations, changed, nanos);
+        }
+
+        Statistics finish() {
+            Statistics statistics = new Statistics(machineName, parallel, evaluations, iterations, statesChanged,
+                    maxConfigurations, evaluationNanos, System.nanoTime() - start);
+            lastRun = statistics;
+            return statistics;
+        }
+    }
+
+    private static volatile Statistics lastRun;
+
+    private static volatile boolean enabled;
+    // Ring buffer: the next entry is written at (count % capacity)
+    private static String[] states = new String[0];
+    private static int[] iterations = new int[0];
+    private static int[] configurations = new int[0];
+    private static boolean[] changed = new boolean[0];
+    private static long[] nanos = new long[0];
+    private static long count;
+
+    private SemanticsTrace() {
+    }
+
+    /**
+     * Returns the counters of the last completed computation, or null if none completed yet.
+     */
+    public static Statistics lastRun() {
+        return lastRun;
+    }
+
+    /**
+     * Starts tracing the evaluations, keeping the last {@code capacity} ones; the trace is emptied.
+     */
+    public static synchronized void enable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The trace capacity must be positive.");
+        }
+        states = new String[capacity];
+        iterations = new int[capacity];
+        configurations = new int[capacity];
+        changed = new boolean[capacity];
+        nanos = new long[capacity];
+        count = 0;
+        enabled = true;
+    }
+
+    /**
+     * Stops tracing and releases the buffer.
+     */
+    public static synchronized void disable() {
+        enabled = false;
+        states = new String[0];
+        iterations = new int[0];
+        configurations = new int[0];
+        changed = new boolean[0];
+        nanos = new long[0];
+        count = 0;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the traced evaluations, oldest first.
+     */
+    public static synchronized List<Entry> entries() {
+        int capacity = states.length;
+        if (capacity == 0) {
+            return Collections.emptyList();
+        }
+        int size = (int) Math.min(count, capacity);
+        List<Entry> result = new ArrayList<>(size);
+        for (long i = count - size; i < count; i++) {
+            int slot = (int) (i % capacity);
+            result.add(new Entry(states[slot], iterations[slot], configurations[slot], changed[slot], nanos[slot]));
+        }
+        return result;
+    }
+
+    private static void record(String state, int iteration, int configurationCount, boolean stateChanged, long elapsed) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (SemanticsTrace.class) {
+            int capacity = states.length;
+            if (capacity == 0) {
+                return;
+            }
+            int slot = (int) (count++ % capacity);
+            states[slot] = state;
+            iterations[slot] = iteration;
+            configurations[slot] = configurationCount;
+            changed[slot] = stateChanged;
+            nanos[slot] = elapsed;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package pws.editor.semantics;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.ArrayList;
@@ -27,17 +30,66 @@ import pws.editor.semantics.Semantics;
  */
 public class SemanticsVisitor {
     private static final Logger logger = Logger.getLogger(SemanticsVisitor.class.getName());
+    // Cap on the re-evaluations of a state within its component, in case the iteration oscillates
+    private static final int MAX_EVALUATIONS_PER_STATE = 1000;
 
     /**
-     * Iteratively computes a semantics map for every PWSState until convergence.
+     * Computes a semantics map for every PWSState until convergence.
+     *
+     * <p>The states are grouped into the strongly connected components of the transition graph,
+     * which are solved in topological order: the semantics of a component only depends on its own
+     * states and on the components before it, which are already stable when it is reached. Within
+     * a component a worklist holds the states to recompute; a state is re-evaluated only when the
+     * semantics of one of its predecessors has actually changed. The incoming transitions of every
+     * state are indexed once, so an evaluation only visits the transitions entering that state.
      */
     public static Map<PWSState, Semantics> computeAllStateSemantics(PWSStateMachine machine) {
-        logger.info("Starting fixed-point semantics computation for machine '" + machine.getName() + "'.");
+        Map<PWSState, HashSet<ExitZone>> zones = new HashMap<>();
+        Map<PWSState, Semantics> semMap = computeAllStateSemantics(machine, zones, SemanticsMonitor.NONE);
+        for (Map.Entry<PWSState, HashSet<ExitZone>> entry : zones.entrySet()) {
+            if (!entry.getKey().isPseudoState()) {
+                entry.getKey().setReactiveSemantics(entry.getValue());
+            }
+        }
+        return semMap;
+    }
+
+    /**
+     * Computes a semantics map for every PWSState, as {@link #computeAllStateSemantics(PWSStateMachine)},
+     * without modifying the states: the exit zones of the resulting semantics are stored in
+     * {@code zones}. The computation reports to the monitor, which can abort it.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor aborts the computation
+     */
+    public static Map<PWSState, Semantics> computeAllStateSemantics(PWSStateMachine machine,
+                                                                   Map<PWSState, HashSet<ExitZone>> zones,
+                                                                   SemanticsMonitor monitor) {
+        return computeAllStateSemantics(machine, zones, monitor, null);
+    }
+
+    /**
+     * Computes a semantics map for every PWSState, as {@link #computeAllStateSemantics(PWSStateMachine, Map, SemanticsMonitor)}.
+     * When a pool is given the states are evaluated in parallel rounds on it (see {@link #solveParallel});
+     * with a null pool they are evaluated one at a time by the worklist.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor aborts the computation
+     */
+    public static Map<PWSState, Semantics> computeAllStateSemantics(PWSStateMachine machine,
+                                                                   Map<PWSState, HashSet<ExitZone>> zones,
+                                                                   SemanticsMonitor monitor,
+                                                                   ForkJoinPool pool) {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Starting fixed-point semantics computation for machine '" + machine.getName() + "'.");
+        }
 
         Assembly asm = machine.getAssembly();
-        Map<PWSState, Semantics> semMap = new HashMap<>();
+        // Kept in declaration order, so that the states are visited deterministically
+        Map<PWSState, Semantics> semMap = new LinkedHashMap<>();
+        Map<PWSState, HashSet<ExitZone>> zoneMap = new HashMap<>();
         for (StateInterface s : machine.getStates()) {
             semMap.put((PWSState) s, Semantics.bottom(asm.getAssemblyId()));
+            // No configuration, hence no exit zone
+            zoneMap.put((PWSState) s, new HashSet<>());
         }
         Semantics initSem = machine.getAssembly().calculateInitialStateSemantics();
         // Seed the actual pseudostate instance in semMap
@@ -47,43 +99,395 @@ public class SemanticsVisitor {
                 break;
             }
         }
-        boolean changed = true;
-        int iter = 0;
-        int maxIter = 1000; // example cap, adjust as necessary
-        while (changed && iter < maxIter) {
-            changed = false;
-            // Update each non-pseudostate’s reactive semantics before computing new state semantics
-            for (PWSState ps : new ArrayList<>(semMap.keySet())) {
-                if (!ps.isPseudoState()) {
-                    HashSet<ExitZone> zones = machine.computeReactiveSemantics(semMap.get(ps));
-                    ps.setReactiveSemantics(zones);
-                }
+
+        solve(machine, semMap, zoneMap, semMap.keySet(), monitor, pool);
+        zones.putAll(zoneMap);
+        return semMap;
+    }
+
+    /**
+     * Recomputes the semantics of the given region of states, keeping the semantics and the exit
+     * zones currently stored in the other states. The region must be closed under successors
+     * (as the states forward-reachable from the edited ones are), since the states outside it
+     * are not re-evaluated. The states are not modified: the exit zones of the new semantics of
+     * the region are stored in {@code zones}.
+     *
+     * @return the semantics of every state, stored ones outside the region and new ones inside it
+     * @throws java.util.concurrent.CancellationException if the monitor aborts the computation
+     */
+    public static Map<PWSState, Semantics> recomputeStateSemantics(PWSStateMachine machine,
+                                                                   Set<PWSState> region,
+                                                                   Map<PWSState, HashSet<ExitZone>> zones,
+                                                                   SemanticsMonitor monitor) {
+        return recomputeStateSemantics(machine, region, zones, monitor, null);
+    }
+
+    /**
+     * Recomputes the semantics of the given region of states, as
+     * {@link #recomputeStateSemantics(PWSStateMachine, Set, Map, SemanticsMonitor)}, in parallel
+     * rounds on the given pool, or with the worklist if the pool is null.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor aborts the computation
+     */
+    public static Map<PWSState, Semantics> recomputeStateSemantics(PWSStateMachine machine,
+                                                                   Set<PWSState> region,
+                                                                   Map<PWSState, HashSet<ExitZone>> zones,
+                                                                   SemanticsMonitor monitor,
+                                                                   ForkJoinPool pool) {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Starting incremental semantics computation of " + region.size() + " states for machine '" + machine.getName() + "'.");
+        }
+
+        Assembly asm = machine.getAssembly();
+        Map<PWSState, Semantics> semMap = new HashMap<>();
+        Map<PWSState, HashSet<ExitZone>> zoneMap = new HashMap<>();
+        for (StateInterface s : machine.getStates()) {
+            PWSState ps = (PWSState) s;
+            if (region.contains(ps) && !ps.isPseudoState()) {
+                semMap.put(ps, Semantics.bottom(asm.getAssemblyId()));
+                zoneMap.put(ps, new HashSet<>());
+            } else {
+                semMap.put(ps, ps.getStateSemantics());
+                zoneMap.put(ps, ps.getReactiveSemantics());
+            }
+        }
+        solve(machine, semMap, zoneMap, region, monitor, pool);
+        for (PWSState s : region) {
+            zones.put(s, zoneMap.get(s));
+        }
+        return semMap;
+    }
+
+    /**
+     * Solves the fixed point over the given region, reading the semantics of the other states
+     * from the maps. The states of the region are grouped into the strongly connected components
+     * of the transition graph, which are solved in topological order; within a component a
+     * worklist holds the states whose predecessors changed. With a pool the components are
+     * solved by {@link #solveParallel} instead. The counters of the computation are published
+     * by {@link SemanticsTrace}.
+     */
+    private static void solve(PWSStateMachine machine,
+                              Map<PWSState, Semantics> semMap,
+                              Map<PWSState, HashSet<ExitZone>> zoneMap,
+                              Set<PWSState> region,
+                              SemanticsMonitor monitor,
+                              ForkJoinPool pool) {
+        // Index the transitions by target, and the dependent states by source
+        Map<PWSState, List<PWSTransition>> incoming = new HashMap<>();
+        Map<PWSState, Set<PWSState>> successors = new HashMap<>();
+        for (PWSState s : region) {
+            incoming.put(s, new ArrayList<>());
+            successors.put(s, new LinkedHashSet<>());
+        }
+        for (TransitionInterface ti : machine.getTransitions()) {
+            if (!(ti instanceof PWSTransition)) continue;
+            PWSTransition t = (PWSTransition) ti;
+            PWSState source = (PWSState) t.getSource();
+            PWSState target = (PWSState) t.getTarget();
+            if (!semMap.containsKey(source) || !region.contains(target)) continue;
+            incoming.get(target).add(t);
+            if (region.contains(source)) {
+                successors.get(source).add(target);
             }
-            for (StateInterface s : machine.getStates()) {
+        }
+
+        List<List<PWSState>> components = stronglyConnectedComponents(region, successors);
+        if (pool != null) {
+            solveParallel(machine, semMap, zoneMap, region, monitor, pool, incoming, successors, components);
+            return;
+        }
+        SemanticsTrace.Run run = new SemanticsTrace.Run(machine.getName(), false);
+        int evaluations = 0;
+        int settled = 0;
+        boolean converged = true;
+        for (List<PWSState> component : components) {
+            run.iteration();
+            Set<PWSState> members = new HashSet<>(component);
+            Deque<PWSState> worklist = new ArrayDeque<>(component);
+            Set<PWSState> queued = new HashSet<>(component);
+            int maxEvaluations = MAX_EVALUATIONS_PER_STATE * component.size();
+            int componentEvaluations = 0;
+            while (!worklist.isEmpty()) {
+                if (componentEvaluations >= maxEvaluations) {
+                    converged = false;
+                    break;
+                }
+                PWSState s = worklist.poll();
+                queued.remove(s);
                 // skip pseudostate so we do not overwrite its initial semantics
-                if (s instanceof PWSState && ((PWSState) s).isPseudoState()) {
+                if (s.isPseudoState()) {
                     continue;
                 }
-                Semantics newSem = computeStateSemanticsOnce((PWSState) s, machine, semMap);
-                if (!newSem.equals(semMap.get(s))) {
-                    semMap.put((PWSState) s, newSem);
-                    changed = true;
+                componentEvaluations++;
+                monitor.checkpoint(evaluations + componentEvaluations, settled, region.size());
+                long start = System.nanoTime();
+                Semantics newSem = computeStateSemanticsOnce(s, machine, incoming.get(s), semMap, zoneMap);
+                long elapsed = System.nanoTime() - start;
+                boolean changed = !newSem.equals(semMap.get(s));
+                run.evaluated(s.getName(), newSem.configurationCount(), changed, elapsed);
+                if (!changed) {
+                    continue;
+                }
+                semMap.put(s, newSem);
+                zoneMap.put(s, machine.computeReactiveSemantics(newSem));
+                for (PWSState succ : successors.get(s)) {
+                    // Successors in later components are evaluated when their component is reached
+                    if (members.contains(succ) && queued.add(succ)) {
+                        worklist.add(succ);
+                    }
                 }
             }
-            iter++;
+            evaluations += componentEvaluations;
+            settled += component.size();
         }
-        if (iter >= maxIter) {
-            logger.warning("SemanticsVisitor reached iteration cap (" + maxIter + " iterations) for machine '" + machine.getName() + "'. Results may not have fully converged.");
+        if (!converged) {
+            logger.warning("SemanticsVisitor reached evaluation cap (" + MAX_EVALUATIONS_PER_STATE + " evaluations per state) for machine '" + machine.getName() + "'. Results may not have fully converged.");
         }
-        logger.info("Completed semantics computation in " + iter + " iterations for machine '" + machine.getName() + "'.");
 
-        return semMap;
+        SemanticsTrace.Statistics statistics = run.finish();
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Completed semantics computation in " + evaluations + " state evaluations over " + components.size() + " components for machine '" + machine.getName() + "': " + statistics);
+        }
     }
 
     /**
-     * Compute the semantics for a single target state in one iteration of the fixed-point algorithm.
+     * Jacobi-style variant of the worklist: the components are grouped into levels, a component
+     * being one level past the deepest component it depends on, so that the states of a level only
+     * depend on each other and on earlier levels. Each level is solved in rounds: every state whose
+     * predecessors changed in the previous round is evaluated in parallel on the pool against the
+     * maps as they were at the start of the round, and the new semantics are swapped in only when
+     * the whole round is done. The rounds of a level stop when no semantics changes.
+     */
+    private static void solveParallel(PWSStateMachine machine,
+                                      Map<PWSState, Semantics> semMap,
+                                      Map<PWSState, HashSet<ExitZone>> zoneMap,
+                                      Set<PWSState> region,
+                                      SemanticsMonitor monitor,
+                                      ForkJoinPool pool,
+                                      Map<PWSState, List<PWSTransition>> incoming,
+                                      Map<PWSState, Set<PWSState>> successors,
+                                      List<List<PWSState>> components) {
+        // Level of every state, from the topological order of the components
+        Map<PWSState, Integer> levelOf = new HashMap<>();
+        List<List<PWSState>> levels = new ArrayList<>();
+        for (List<PWSState> states : components) {
+            Set<PWSState> component = new HashSet<>(states);
+            int level = 0;
+            for (PWSState s : component) {
+                level = Math.max(level, levelOf.getOrDefault(s, 0));
+            }
+            if (level == levels.size()) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).addAll(states);
+            for (PWSState s : states) {
+                levelOf.put(s, level);
+            }
+            for (PWSState s : states) {
+                for (PWSState succ : successors.get(s)) {
+                    if (!component.contains(succ)) {
+                        levelOf.merge(succ, level + 1, Math::max);
+                    }
+                }
+            }
+        }
+
+        SemanticsTrace.Run run = new SemanticsTrace.Run(machine.getName(), true);
+        AtomicInteger evaluations = new AtomicInteger();
+        int settled = 0;
+        int rounds = 0;
+        boolean converged = true;
+        for (List<PWSState> level : levels) {
+            Set<PWSState> members = new HashSet<>(level);
+            // Kept in topological order, so that the rounds visit the states deterministically
+            List<PWSState> dirty = new ArrayList<>(level);
+            dirty.removeIf(PWSState::isPseudoState);
+            int levelRounds = 0;
+            while (!dirty.isEmpty()) {
+                if (levelRounds >= MAX_EVALUATIONS_PER_STATE) {
+                    converged = false;
+                    break;
+                }
+                levelRounds++;
+                run.iteration();
+                Semantics[] next = new Semantics[dirty.size()];
+                long[] nanos = new long[next.length];
+                pool.invoke(new RoundEvaluation(machine, dirty, incoming, semMap, zoneMap, next, nanos,
+                        monitor, evaluations, settled, region.size(), 0, next.length));
+
+                // Swap in the changed semantics, and collect the states depending on them
+                Set<PWSState> changed = new LinkedHashSet<>();
+                for (int i = 0; i < next.length; i++) {
+                    PWSState s = dirty.get(i);
+                    boolean stateChanged = !next[i].equals(semMap.get(s));
+                    // Recorded here rather than by the workers, so the counters need no synchronisation
+                    run.evaluated(s.getName(), next[i].configurationCount(), stateChanged, nanos[i]);
+                    if (stateChanged) {
+                        semMap.put(s, next[i]);
+                        zoneMap.put(s, machine.computeReactiveSemantics(next[i]));
+                        for (PWSState succ : successors.get(s)) {
+                            // Successors in later levels are evaluated when their level is reached
+                            if (members.contains(succ) && !succ.isPseudoState()) {
+                                changed.add(succ);
+                            }
+                        }
+                    }
+                }
+                dirty = new ArrayList<>();
+                for (PWSState s : level) {
+                    if (changed.contains(s)) {
+                        dirty.add(s);
+                    }
+                }
+            }
+            rounds += levelRounds;
+            settled += level.size();
+        }
+        if (!converged) {
+            logger.warning("SemanticsVisitor reached round cap (" + MAX_EVALUATIONS_PER_STATE + " rounds per level) for machine '" + machine.getName() + "'. Results may not have fully converged.");
+        }
+
+        SemanticsTrace.Statistics statistics = run.finish();
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Completed parallel semantics computation in " + evaluations.get() + " state evaluations over " + rounds + " rounds and " + levels.size() + " levels for machine '" + machine.getName() + "': " + statistics);
+        }
+    }
+
+    /**
+     * Fork/join evaluation of one round over a range of the states to evaluate: ranges of more than
+     * one state are split in two halves. The maps are only read; the new semantics of each state is
+     * stored at its index in the result array, and the time spent on it at the same index in the
+     * nanos array.
+     */
+    private static final class RoundEvaluation extends RecursiveAction {
+        private static final long serialVersionUID = -3659766953282344541L;
+
+        private final PWSStateMachine machine;
+        private final List<PWSState> states;
+        private final Map<PWSState, List<PWSTransition>> incoming;
+        private final Map<PWSState, Semantics> semMap;
+        private final Map<PWSState, HashSet<ExitZone>> zoneMap;
+        private final Semantics[] result;
+        private final long[] nanos;
+        private final SemanticsMonitor monitor;
+        private final AtomicInteger evaluations;
+        private final int settled;
+        private final int total;
+        private final int from;
+        private final int to;
+
+        RoundEvaluation(PWSStateMachine machine, List<PWSState> states, Map<PWSState, List<PWSTransition>> incoming,
+                        Map<PWSState, Semantics> semMap, Map<PWSState, HashSet<ExitZone>> zoneMap, Semantics[] result,
+                        long[] nanos, SemanticsMonitor monitor, AtomicInteger evaluations, int settled, int total, int from, int to) {
+            this.machine = machine;
+            this.states = states;
+            this.incoming = incoming;
+            this.semMap = semMap;
+            this.zoneMap = zoneMap;
+            this.result = result;
+            this.nanos = nanos;
+            this.monitor = monitor;
+            this.evaluations = evaluations;
+            this.settled = settled;
+            this.total = total;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(range(from, middle), range(middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                PWSState s = states.get(i);
+                monitor.checkpoint(evaluations.incrementAndGet(), settled, total);
+                long start = System.nanoTime();
+                result[i] = computeStateSemanticsOnce(s, machine, incoming.get(s), semMap, zoneMap);
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+
+        private RoundEvaluation range(int from, int to) {
+            return new RoundEvaluation(machine, states, incoming, semMap, zoneMap, result, nanos,
+                    monitor, evaluations, settled, total, from, to);
+        }
+    }
+
+    /**
+     * Tarjan's algorithm, iterative so that long chains of states do not exhaust the stack.
+     * Tarjan emits every component after all the components reachable from it, so the reversed
+     * emission order is a topological order of the condensation (sources first).
+     */
+    private static List<List<PWSState>> stronglyConnectedComponents(Set<PWSState> states,
+                                                                    Map<PWSState, Set<PWSState>> successors) {
+        Map<PWSState, Integer> index = new HashMap<>();
+        Map<PWSState, Integer> lowLink = new HashMap<>();
+        Deque<PWSState> stack = new ArrayDeque<>();
+        Set<PWSState> onStack = new HashSet<>();
+        List<List<PWSState>> components = new ArrayList<>();
+
+        for (PWSState root : states) {
+            if (index.containsKey(root)) continue;
+            Deque<PWSState> callStack = new ArrayDeque<>();
+            Deque<Iterator<PWSState>> iterators = new ArrayDeque<>();
+            visit(root, index, lowLink, stack, onStack, callStack, iterators, successors);
+            while (!callStack.isEmpty()) {
+                PWSState v = callStack.peek();
+                Iterator<PWSState> it = iterators.peek();
+                if (it.hasNext()) {
+                    PWSState w = it.next();
+                    if (!index.containsKey(w)) {
+                        visit(w, index, lowLink, stack, onStack, callStack, iterators, successors);
+                    } else if (onStack.contains(w)) {
+                        lowLink.put(v, Math.min(lowLink.get(v), index.get(w)));
+                    }
+                    continue;
+                }
+                callStack.pop();
+                iterators.pop();
+                if (!callStack.isEmpty()) {
+                    PWSState parent = callStack.peek();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(v)));
+                }
+                if (lowLink.get(v).equals(index.get(v))) {
+                    List<PWSState> component = new ArrayList<>();
+                    PWSState w;
+                    do {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        component.add(w);
+                    } while (w != v);
+                    components.add(component);
+                }
+            }
+        }
+        Collections.reverse(components);
+        return components;
+    }
+
+    private static void visit(PWSState v,
+                              Map<PWSState, Integer> index,
+                              Map<PWSState, Integer> lowLink,
+                              Deque<PWSState> stack,
+                              Set<PWSState> onStack,
+                              Deque<PWSState> callStack,
+                              Deque<Iterator<PWSState>> iterators,
+                              Map<PWSState, Set<PWSState>> successors) {
+        index.put(v, index.size());
+        lowLink.put(v, index.get(v));
+        stack.push(v);
+        onStack.add(v);
+        callStack.push(v);
+        iterators.push(successors.get(v).iterator());
+    }
+
+    /**
+     * Compute the semantics for a single target state in one step of the fixed-point algorithm.
      *
-     * <p>This method aggregates the contributions of all incoming transitions whose target is the specified state.
+     * <p>This method aggregates the contributions of the incoming transitions of the specified state.
      * It handles two kinds of transitions:
      * <ul>
      *   <li><b>Triggerable or initial transitions</b>: applies the guard proposition AND-ed with the source state's
@@ -94,42 +498,47 @@ public class SemanticsVisitor {
      *
      * <p>After processing all transitions, the aggregated semantics captures the new “stateSemantics” for the target.
      *
-     * @param target    the PWSState for which to compute updated semantics
-     * @param machine   the state machine containing the transitions and assembly context
-     * @param currentMap map of PWSState to their current semantics from the previous iteration
+     * @param target     the PWSState for which to compute updated semantics
+     * @param machine    the state machine containing the transitions and assembly context
+     * @param incoming   the transitions whose target is the given state
+     * @param currentMap map of PWSState to their current semantics
+     * @param zoneMap    map of PWSState to the exit zones of their current semantics
      * @return the newly computed Semantics for the target state
      */
     private static Semantics computeStateSemanticsOnce(
             PWSState target,
             PWSStateMachine machine,
-            Map<PWSState, Semantics> currentMap) {
+            List<PWSTransition> incoming,
+            Map<PWSState, Semantics> currentMap,
+            Map<PWSState, HashSet<ExitZone>> zoneMap) {
 
-        // Log entry into this method for the given target state
-        logger.info(">> computeStateSemanticsOnce START for target='" + target.getName() + "'");
+        // Per-state tracing is off unless FINEST is enabled: the messages are only built when logged
+        boolean finest = logger.isLoggable(Level.FINEST);
+        if (finest) {
+            logger.finest(">> computeStateSemanticsOnce START for target='" + target.getName() + "'");
+        }
 
         // Retrieve the assembly context for semantics conversions
         Assembly asm = machine.getAssembly();
         // Initialize accumulator to ⊥ (no configurations) for fixed-point aggregation
         Semantics agg = Semantics.bottom(asm.getAssemblyId());
 
-        // Log the number of transitions to evaluate for this state
-        logger.info("Processing " + machine.getTransitions().size() + " transitions for state '" + target.getName() + "'");
+        if (finest) {
+            logger.finest("Processing " + incoming.size() + " incoming transitions for state '" + target.getName() + "'");
+        }
 
-        // Iterate through all transitions in the machine
-        for (TransitionInterface ti : machine.getTransitions()) {
-            // Skip any non-PWS transitions
-            if (!(ti instanceof PWSTransition)) continue;
-            // Cast to PWS-specific transition type
-            PWSTransition t = (PWSTransition) ti;
-            // Only process transitions whose target matches the current state
-            if (t.getTarget() != target) continue;
-            // Delegate the semantics computation of this transition to the machine
-            Semantics contrib = machine.computeTransitionSemantics(t);
+        for (PWSTransition t : incoming) {
+            PWSState source = (PWSState) t.getSource();
+            // Delegate the semantics computation of this transition to the machine,
+            // on the current semantics of its source
+            Semantics contrib = machine.computeTransitionSemantics(t, currentMap.get(source), zoneMap.get(source));
             // OR-accumulate the contribution into the aggregate for target state
             agg = agg.OR(contrib);
         }
 
-        logger.info("<< computeStateSemanticsOnce END for target='" + target.getName() + "': result=" + agg);
+        if (finest) {
+            logger.finest("<< computeStateSemanticsOnce END for target='" + target.getName() + "': result=" + agg);
+        }
         return agg;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package pws.editor.semantics;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posting-list index over a set of configurations, answering subsumption queries with bitmap
+ * intersections instead of a scan of the whole set.
+ *
+ * <p>Every configuration gets a slot; for each machine m the index keeps the slots of the
+ * configurations constraining m and, for each state s of m, the slots of those constraining m to s
+ * (machines and states are the dense indices of {@link AssemblyIndex}). A configuration d is implied
+ * by c iff, on every machine d constrains, c has the same state: the candidates are found by
+ * removing, machine by machine, the slots that constrain the machine differently from c. The cost
+ * of a query is proportional to the number of machines times the number of slots divided by 64.
+ *
+ * <p>Slots of removed configurations are left empty and reclaimed when they outnumber the live ones.
+ * The index is not thread-safe.
+ */
+final class SubsumptionIndex {
+    private final List<Configuration> slots = new ArrayList<>();
+    private final Map<Configuration, Integer> slotOf = new HashMap<>();
+    private final BitSet alive = new BitSet();
+    // constrained.get(m): slots constraining machine m; postings.get(m).get(s): slots with m = s
+    private final List<BitSet> constrained = new ArrayList<>();
+    private final List<List<BitSet>> postings = new ArrayList<>();
+
+    SubsumptionIndex() {
+    }
+
+    SubsumptionIndex(Collection<Configuration> configurations) {
+        for (Configuration c : configurations) {
+            add(c);
+        }
+    }
+
+    int size() {
+        return slotOf.size();
+    }
+
+    void add(Configuration c) {
+        if (slotOf.containsKey(c)) {
+            return;
+        }
+        int slot = slots.size();
+        slots.add(c);
+        slotOf.put(c, slot);
+        alive.set(slot);
+        int[] states = c.stateVector();
+        for (int m = 0; m < states.length; m++) {
+            if (states[m] != AssemblyIndex.UNCONSTRAINED) {
+                constrained(m).set(slot);
+                posting(m, states[m]).set(slot);
+            }
+        }
+    }
+
+    void remove(Configuration c) {
+        Integer slot = slotOf.remove(c);
+        if (slot == null) {
+            return;
+        }
+        slots.set(slot, null);
+        alive.clear(slot);
+        int[] states = c.stateVector();
+        for (int m = 0; m < states.length; m++) {
+            if (states[m] != AssemblyIndex.UNCONSTRAINED) {
+                constrained.get(m).clear(slot);
+                postings.get(m).get(states[m]).clear(slot);
+            }
+        }
+        if (slots.size() > 64 && slots.size() > 2 * slotOf.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns true if c implies some configuration of the index (c is at least as specific).
+     */
+    boolean isSubsumed(Configuration c) {
+        BitSet candidates = (BitSet) alive.clone();
+        int[] states = c.stateVector();
+        for (int m = 0; m < constrained.size() && !candidates.isEmpty(); m++) {
+            BitSet onMachine = constrained.get(m);
+            if (onMachine.isEmpty()) {
+                continue;
+            }
+            int s = m < states.length ? states[m] : AssemblyIndex.UNCONSTRAINED;
+            retainAgreeing(candidates, onMachine, s == AssemblyIndex.UNCONSTRAINED ? null : existingPosting(m, s));
+        }
+        return !candidates.isEmpty();
+    }
+
+    /**
+     * Returns the configurations of the index that imply c (at least as specific as c).
+     */
+    List<Configuration> subsumedBy(Configuration c) {
+        BitSet candidates = (BitSet) alive.clone();
+        int[] states = c.stateVector();
+        for (int m = 0; m < states.length && !candidates.isEmpty(); m++) {
+            if (states[m] != AssemblyIndex.UNCONSTRAINED) {
+                BitSet posting = existingPosting(m, states[m]);
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+                candidates.and(posting);
+            }
+        }
+        return configurationsAt(candidates);
+    }
+
+    /**
+     * Returns the configurations of the index whose intersection with c is defined, i.e. that
+     * constrain no machine to a state different from the one c constrains it to.
+     */
+    List<Configuration> compatibleWith(Configuration c) {
+        BitSet candidates = (BitSet) alive.clone();
+        int[] states = c.stateVector();
+        for (int m = 0; m < states.length && m < constrained.size() && !candidates.isEmpty(); m++) {
+            if (states[m] != AssemblyIndex.UNCONSTRAINED) {
+                retainAgreeing(candidates, constrained.get(m), existingPosting(m, states[m]));
+            }
+        }
+        return configurationsAt(candidates);
+    }
+
+    // Keeps the candidates that do not constrain the machine, or constrain it as the posting does.
+    private static void retainAgreeing(BitSet candidates, BitSet onMachine, BitSet posting) {
+        BitSet agreeing = null;
+        if (posting != null) {
+            agreeing = (BitSet) posting.clone();
+            agreeing.and(candidates);
+        }
+        candidates.andNot(onMachine);
+        if (agreeing != null) {
+            candidates.or(agreeing);
+        }
+    }
+
+    private List<Configuration> configurationsAt(BitSet bits) {
+        List<Configuration> result = new ArrayList<>(bits.cardinality());
+        for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+
+    private BitSet constrained(int m) {
+        while (constrained.size() <= m) {
+            constrained.add(new BitSet());
+            postings.add(new ArrayList<>());
+        }
+        return constrained.get(m);
+    }
+
+    private BitSet posting(int m, int s) {
+        List<BitSet> byState = postings.get(m);
+        while (byState.size() <= s) {
+            byState.add(new BitSet());
+        }
+        return byState.get(s);
+    }
+
+    private BitSet existingPosting(int m, int s) {
+        if (m >= postings.size() || s >= postings.get(m).size()) {
+            return null;
+        }
+        return postings.get(m).get(s);
+    }
+
+    private void compact() {
+        List<Configuration> live = new ArrayList<>(slotOf.size());
+        for (Configuration c : slots) {
+            if (c != null) {
+                live.add(c);
+            }
+        }
+        slots.clear();
+        slotOf.clear();
+        alive.clear();
+        constrained.clear();
+        postings.clear();
+        for (Configuration c : live) {
+            add(c);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package pws.editor.semantics;
+
+import assembly.Assembly;
+import machinery.StateMachine;
+import machinery.Transition;
+import machinery.TransitionInterface;
+import smalgebra.BasicStateProposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Symbolic counterpart of {@link Semantics}: the set of configurations is held as a node of a
+ * {@link DecisionDiagram} instead of an explicit set of partial configurations.
+ *
+ * <p>Complement, implication and equivalence are computed on the diagram, so their cost is
+ * polynomial in the size of the diagrams rather than in the size of the universe of
+ * configurations. Conversion to and from the explicit form is lossless: {@link #toSemantics()}
+ * denotes exactly the same fully specified configurations as the Semantics the diagram was
+ * built from.
+ */
+public final class SymbolicSemantics {
+    private final DecisionDiagram dd;
+    private final int root;
+
+    private SymbolicSemantics(DecisionDiagram dd, int root) {
+        this.dd = dd;
+        this.root = root;
+    }
+
+    /**
+     * Builds the diagram of the given explicit Semantics.
+     * Constraints on machines or states outside the universe of the assembly match no configuration.
+     */
+    public static SymbolicSemantics of(Semantics semantics, Assembly assembly) {
+        if (!semantics.getAssemblyId().equals(assembly.getAssemblyId())) {
+            throw new IllegalArgumentException("Assembly ID mismatch.");
+        }
+        DecisionDiagram dd = DecisionDiagram.forAssembly(assembly);
+        List<Integer> cubes = new ArrayList<>();
+        int[] assignment = new int[dd.levelCount()];
+        for (Configuration config : semantics.getConfigurations()) {
+            Arrays.fill(assignment, -1);
+            boolean satisfiable = true;
+            for (BasicStateProposition bsp : config.getBasicStatePropositions()) {
+                int level = dd.levelOf(bsp.getMachineId());
+                int state = level < 0 ? -1 : dd.stateIndexOf(level, bsp.getStateName());
+                if (state < 0 || (assignment[level] >= 0 && assignment[level] != state)) {
+                    satisfiable = false;
+                    break;
+                }
+                assignment[level] = state;
+            }
+            if (satisfiable) {
+                cubes.add(dd.cube(assignment));
+            }
+        }
+        return new SymbolicSemantics(dd, disjunction(dd, cubes, 0, cubes.size()));
+    }
+
+    // Balanced OR keeps the intermediate diagrams small.
+    private static int disjunction(DecisionDiagram dd, List<Integer> nodes, int from, int to) {
+        if (from >= to) {
+            return DecisionDiagram.FALSE;
+        }
+        if (to - from == 1) {
+            return nodes.get(from);
+        }
+        int mid = (from + to) >>> 1;
+        return dd.or(disjunction(dd, nodes, from, mid), disjunction(dd, nodes, mid, to));
+    }
+
+    public static SymbolicSemantics top(Assembly assembly) {
+        return new SymbolicSemantics(DecisionDiagram.forAssembly(assembly), DecisionDiagram.TRUE);
+    }
+
+    public static SymbolicSemantics bottom(Assembly assembly) {
+        return new SymbolicSemantics(DecisionDiagram.forAssembly(assembly), DecisionDiagram.FALSE);
+    }
+
+    /**
+     * Converts the diagram back into an explicit Semantics made of pairwise disjoint configurations,
+     * one for each path of the diagram; machines not tested along a path are left unconstrained.
+     */
+    public Semantics toSemantics() {
+        String assemblyId = dd.getAssemblyId();
+        // The cubes of distinct paths are disjoint: none implies another
+        Set<Configuration> cubes = new HashSet<>();
+        dd.forEachCube(root, assignment -> {
+            List<BasicStateProposition> props = new ArrayList<>();
+            for (int level = 0; level < assignment.length; level++) {
+                if (assignment[level] >= 0) {
+                    props.add(new BasicStateProposition(dd.machineIdAt(level), dd.stateNameAt(level, assignment[level])));
+                }
+            }
+            cubes.add(Configuration.fromBasicStatePropositions(assemblyId, props));
+        });
+        return Semantics.ofAntichain(assemblyId, cubes);
+    }
+
+    private SymbolicSemantics with(int node) {
+        return node == root ? this : new SymbolicSemantics(dd, node);
+    }
+
+    private int rootOf(SymbolicSemantics other) {
+        if (other.dd != this.dd) {
+            throw new IllegalArgumentException("Both SymbolicSemantics must belong to the same decision diagram.");
+        }
+        return other.root;
+    }
+
+    public SymbolicSemantics AND(SymbolicSemantics other) {
+        return with(dd.and(root, rootOf(other)));
+    }
+
+    public SymbolicSemantics OR(SymbolicSemantics other) {
+        return with(dd.or(root, rootOf(other)));
+    }
+
+    public SymbolicSemantics NOT() {
+        return with(dd.not(root));
+    }
+
+    public SymbolicSemantics DIFF(SymbolicSemantics other) {
+        return with(dd.diff(root, rootOf(other)));
+    }
+
+    public boolean LEQ(SymbolicSemantics other) {
+        return dd.leq(root, rootOf(other));
+    }
+
+    /**
+     * Diagrams are canonical, so equivalence is a root comparison.
+     */
+    public boolean EQ(SymbolicSemantics other) {
+        return root == rootOf(other);
+    }
+
+    public boolean ISEMPTY() {
+        return root == DecisionDiagram.FALSE;
+    }
+
+    /**
+     * Symbolic version of {@link Semantics#transformByMachineEvent(String, String, Assembly)}:
+     * configurations in which machine {@code machineId} is in the source state of the first
+     * transition triggered by {@code eventName} are moved to its target state.
+     *
+     * @throws IllegalArgumentException if the machine or the corresponding transition is not found.
+     */
+    public SymbolicSemantics transformByMachineEvent(String machineId, String eventName, Assembly assembly) {
+        StateMachine machine = assembly.getStateMachines().get(machineId);
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine " + machineId + " not found in assembly.");
+        }
+        Transition transition = null;
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t.getTriggerEvent().equals(eventName)) {
+                transition = (Transition) t;
+                break;
+            }
+        }
+        if (transition == null) {
+            throw new IllegalArgumentException("No transition triggered by event " + eventName + " found in machine " + machineId);
+        }
+        int level = dd.levelOf(machineId);
+        if (level < 0) {
+            return this;
+        }
+        int source = dd.stateIndexOf(level, transition.getSource().getName());
+        int target = dd.stateIndexOf(level, transition.getTarget().getName());
+        if (source < 0 || target < 0) {
+            return this;
+        }
+        int[] targetOf = new int[dd.domainSize(level)];
+        Arrays.fill(targetOf, -1);
+        targetOf[source] = target;
+        return with(dd.relabel(root, level, targetOf));
+    }
+
+    /**
+     * Returns the number of fully specified configurations in this semantics.
+     */
+    public double countConfigurations() {
+        return dd.countConfigurations(root);
+    }
+
+    public DecisionDiagram getDiagram() {
+        return dd;
+    }
+
+    @Override
+    public String toString() {
+        return toSemantics().toString();
+    }
+}
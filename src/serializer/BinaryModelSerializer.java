@@ -1,20 +1,198 @@
 package serializer;
 
+import machinery.StateInterface;
+import machinery.TransitionInterface;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+
+import java.awt.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
+/**
+ * Saves and loads a PWSStateMachine, with its assembly, in a compact versioned binary format.
+ *
+ * <p>A file starts with the magic bytes {@code PWSM}, the format version and the flags of the
+ * optional sections, followed by the table of the strings of the model (each written once, in
+ * UTF-8) and by the body, where strings are indices into the table and integers are varints. The
+ * body holds, in order: the assembly and its component machines (a machine bound to several
+ * identifiers is written once), the table of the guards (structurally equal subformulas are
+ * written once), the PWS machine, and the optional sections: the computed semantics of states and
+ * transitions ({@link #FLAG_SEMANTICS}) and the bounds of the annotations on the canvas
+ * ({@link #FLAG_LAYOUT}). Transitions keep their identifiers.
+ *
+ * <p>Readers reject files of a later version; a new version must keep reading the earlier ones.
+ * Component machines must be plain {@link machinery.StateMachine}s. Files written with Java
+ * serialization by the earlier editors are still read by {@link #loadSerialized(Path)} and
+ * {@link #loadModel(String)}.
+ */
 public class BinaryModelSerializer {
+    static final byte[] MAGIC = "PWSM".getBytes(StandardCharsets.US_ASCII);
+    static final short VERSION = 1;
+
+    static final int FLAG_SEMANTICS = 1;
+    static final int FLAG_LAYOUT = 1 << 1;
+
+    // Flags of a transition; the kind is 0 for a plain Transition
+    static final int TRANSITION_PWS = 1;
+    static final int TRANSITION_AUTONOMOUS = 1 << 1;
+    static final int TRANSITION_CONTROL_POINT = 1 << 2;
+    static final int TRANSITION_TRIGGER_OFFSET = 1 << 3;
+    static final int TRANSITION_UUID = 1 << 4;
+
+    // Nodes of the guard table
+    static final int GUARD_TRUE = 0;
+    static final int GUARD_FALSE = 1;
+    static final int GUARD_BASIC = 2;
+    static final int GUARD_NOT = 3;
+    static final int GUARD_AND = 4;
+    static final int GUARD_OR = 5;
+
+    /**
+     * A loaded model: the machine, and the layout of its annotations if the file has one.
+     */
+    public static final class LoadedModel {
+        private final PWSStateMachine machine;
+        private final ModelLayout layout;
+
+        LoadedModel(PWSStateMachine machine, ModelLayout layout) {
+            this.machine = machine;
+            this.layout = layout;
+        }
+
+        public PWSStateMachine getMachine() {
+            return machine;
+        }
+
+        /** Returns the layout of the annotations, or null if it was not saved. */
+        public ModelLayout getLayout() {
+            return layout;
+        }
+    }
 
-    public static void saveModel(Serializable model, String filename) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(filename);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            oos.writeObject(model);
+    /**
+     * Saves the machine to the file, replacing it.
+     *
+     * @param layout           bounds of the annotations, or null to leave out the layout section
+     * @param includeSemantics whether to save the computed semantics, so that loading does not
+     *                         need to compute it again
+     */
+    public static void save(PWSStateMachine machine, ModelLayout layout, Path path, boolean includeSemantics)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new ModelWriter().write(machine, layout, includeSemantics, channel);
         }
     }
 
+    public static LoadedModel load(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Model file too large: " + size + " bytes.");
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole file
+            }
+        }
+        buffer.flip();
+        return new ModelReader(buffer).read();
+    }
+
+    /**
+     * Returns true if the file starts with the magic bytes of the binary format.
+     */
+    public static boolean isBinaryModel(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // read the magic bytes
+            }
+            return !magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC);
+        }
+    }
+
+    /**
+     * Loads a file written with Java serialization by the earlier editors: the machine, followed by
+     * the bounds of the annotations if the file was saved with "Salva Tutto" (the names of the states
+     * with their bounds up to {@code END_STATES}, then the identifiers of the transitions with the
+     * bounds of their guard, action and semantics annotations, up to the end of the file).
+     *
+     * @return the machine, with a null layout if the file holds the machine only
+     */
+    public static LoadedModel loadSerialized(Path path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+            Object model = ois.readObject();
+            if (!(model instanceof PWSStateMachine)) {
+                throw new InvalidObjectException("The file does not hold a PWS state machine.");
+            }
+            PWSStateMachine machine = (PWSStateMachine) model;
+            String stateName;
+            try {
+                stateName = ois.readUTF();
+            } catch (EOFException eof) {
+                return new LoadedModel(machine, null);
+            }
+            ModelLayout layout = new ModelLayout();
+            while (!"END_STATES".equals(stateName)) {
+                Rectangle bounds = (Rectangle) ois.readObject();
+                for (StateInterface s : machine.getStates()) {
+                    if (s instanceof PWSState && s.getName().equals(stateName)) {
+                        layout.setStateAnnotation((PWSState) s, bounds);
+                        break;
+                    }
+                }
+                stateName = ois.readUTF();
+            }
+            while (true) {
+                String transitionId;
+                try {
+                    transitionId = ois.readUTF();
+                } catch (EOFException eof) {
+                    break;
+                }
+                Rectangle guard = (Rectangle) ois.readObject();
+                Rectangle actions = (Rectangle) ois.readObject();
+                Rectangle semantics = (Rectangle) ois.readObject();
+                for (TransitionInterface t : machine.getTransitions()) {
+                    if (t instanceof PWSTransition && ((PWSTransition) t).getId().equals(transitionId)) {
+                        layout.setTransitionAnnotations((PWSTransition) t, guard, actions, semantics);
+                        break;
+                    }
+                }
+            }
+            return new LoadedModel(machine, layout);
+        }
+    }
+
+    /**
+     * Saves the machine with its semantics and without layout.
+     */
+    public static void saveModel(PWSStateMachine model, String filename) throws IOException {
+        save(model, null, Paths.get(filename), true);
+    }
+
+    /**
+     * Loads a machine saved by {@link #saveModel(PWSStateMachine, String)}, or written with Java
+     * serialization by the earlier editors.
+     */
     public static Object loadModel(String filename) throws IOException, ClassNotFoundException {
+        Path path = Paths.get(filename);
+        if (isBinaryModel(path)) {
+            return load(path).getMachine();
+        }
         try (FileInputStream fis = new FileInputStream(filename);
              ObjectInputStream ois = new ObjectInputStream(fis)) {
             return ois.readObject();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package serializer;
+
+import pws.PWSState;
+import pws.PWSTransition;
+
+import java.awt.*;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Bounds of the annotations drawn on the canvas of a PWSStateMachine: the semantics annotation
+ * of each state, and the guard, action and semantics annotations of each transition. Missing
+ * entries (and null bounds) are annotations that were never opened.
+ */
+public final class ModelLayout {
+    private final Map<PWSState, Rectangle> stateAnnotations = new IdentityHashMap<>();
+    private final Map<PWSTransition, Rectangle[]> transitionAnnotations = new IdentityHashMap<>();
+
+    public void setStateAnnotation(PWSState state, Rectangle bounds) {
+        stateAnnotations.put(state, bounds);
+    }
+
+    public Rectangle getStateAnnotation(PWSState state) {
+        return stateAnnotations.get(state);
+    }
+
+    public void setTransitionAnnotations(PWSTransition transition, Rectangle guard, Rectangle actions, Rectangle semantics) {
+        transitionAnnotations.put(transition, new Rectangle[]{guard, actions, semantics});
+    }
+
+    public Rectangle getGuardAnnotation(PWSTransition transition) {
+        return bounds(transition, 0);
+    }
+
+    public Rectangle getActionAnnotation(PWSTransition transition) {
+        return bounds(transition, 1);
+    }
+
+    public Rectangle getSemanticsAnnotation(PWSTransition transition) {
+        return bounds(transition, 2);
+    }
+
+    private Rectangle bounds(PWSTransition transition, int i) {
+        Rectangle[] bounds = transitionAnnotations.get(transition);
+        return bounds == null ? null : bounds[i];
+    }
+}
@@ -0,0 +1,372 @@
+package serializer;
+
+import assembly.Action;
+import assembly.ActionList;
+import assembly.Assembly;
+import machinery.State;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import machinery.Transition;
+import machinery.TransitionInterface;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.ExitZone;
+import pws.editor.semantics.Semantics;
+import smalgebra.AndProposition;
+import smalgebra.BasicStateProposition;
+import smalgebra.FalseProposition;
+import smalgebra.NotProposition;
+import smalgebra.OrProposition;
+import smalgebra.SMProposition;
+import smalgebra.TrueProposition;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Decodes a model in the format described by {@link BinaryModelSerializer} from a buffer holding
+ * the whole file.
+ */
+final class ModelReader {
+    private final ByteBuffer in;
+    private String[] strings;
+    private StateMachine[] machines;
+    private SMProposition[] guards;
+    private Assembly assembly;
+    // Constraints are shared by the configurations that repeat them
+    private final Map<Long, BasicStateProposition> constraints = new HashMap<>();
+
+    ModelReader(ByteBuffer in) {
+        this.in = in;
+    }
+
+    BinaryModelSerializer.LoadedModel read() throws IOException {
+        try {
+            byte[] magic = new byte[BinaryModelSerializer.MAGIC.length];
+            in.get(magic);
+            if (!Arrays.equals(magic, BinaryModelSerializer.MAGIC)) {
+                throw new IOException("Not a PWS model file.");
+            }
+            int version = in.getShort() & 0xFFFF;
+            if (version > BinaryModelSerializer.VERSION) {
+                throw new IOException("Unsupported model format version " + version
+                        + " (this editor reads up to version " + BinaryModelSerializer.VERSION + ").");
+            }
+            int flags = in.getShort() & 0xFFFF;
+            readStrings();
+            readAssembly();
+            readGuards();
+            PWSStateMachine machine = readPWSMachine();
+            if ((flags & BinaryModelSerializer.FLAG_SEMANTICS) != 0) {
+                readSemanticsSection(machine);
+            }
+            ModelLayout layout = null;
+            if ((flags & BinaryModelSerializer.FLAG_LAYOUT) != 0) {
+                layout = readLayoutSection(machine);
+            }
+            return new BinaryModelSerializer.LoadedModel(machine, layout);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | ClassCastException e) {
+            throw new IOException("Corrupted model file.", e);
+        }
+    }
+
+    private void readStrings() {
+        strings = new String[readVarint()];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < strings.length; i++) {
+            int length = readVarint();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            in.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    // -------------------- MODEL --------------------
+
+    private void readAssembly() {
+        assembly = new Assembly(readString());
+        machines = new StateMachine[readVarint()];
+        for (int i = 0; i < machines.length; i++) {
+            machines[i] = readComponentMachine();
+        }
+        int bindings = readVarint();
+        for (int i = 0; i < bindings; i++) {
+            String id = readString();
+            assembly.addStateMachine(id, machines[readVarint()]);
+        }
+    }
+
+    private StateMachine readComponentMachine() {
+        StateMachine machine = new StateMachine(readString());
+        List<StateInterface> states = readStates(null);
+        machine.setStates(states);
+        machine.setPseudoState(states.get(readVarint()));
+        int current = readVarint();
+        machine.setCurrentState(current == 0 ? null : states.get(current - 1));
+        int transitionCount = readVarint();
+        for (int i = 0; i < transitionCount; i++) {
+            machine.addTransition(readTransition(states, null));
+        }
+        machine.setEvents(readEvents());
+        return machine;
+    }
+
+    private PWSStateMachine readPWSMachine() {
+        PWSStateMachine machine = new PWSStateMachine(readString());
+        machine.setAssembly(assembly);
+        List<StateInterface> states = readStates(assembly);
+        machine.setStates(states);
+        machine.setPseudoState(states.get(readVarint()));
+        int transitionCount = readVarint();
+        for (int i = 0; i < transitionCount; i++) {
+            machine.addTransition(readTransition(states, assembly));
+        }
+        machine.setEvents(readEvents());
+        return machine;
+    }
+
+    // PWSStates if an assembly is given, plain States otherwise.
+    private List<StateInterface> readStates(Assembly pwsAssembly) {
+        int count = readVarint();
+        List<StateInterface> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = readString();
+            Point position = readPoint();
+            states.add(pwsAssembly == null ? new State(name, position) : new PWSState(name, position, pwsAssembly));
+        }
+        return states;
+    }
+
+    // A PWSTransition with its guard and actions if the flags say so and an assembly is given.
+    private Transition readTransition(List<StateInterface> states, Assembly pwsAssembly) {
+        int flags = readVarint();
+        StateInterface source = states.get(readVarint());
+        StateInterface target = states.get(readVarint());
+        String trigger = readString();
+        boolean autonomous = (flags & BinaryModelSerializer.TRANSITION_AUTONOMOUS) != 0;
+        boolean pws = (flags & BinaryModelSerializer.TRANSITION_PWS) != 0;
+        if (pws && pwsAssembly == null) {
+            throw new IllegalArgumentException("PWS transition in a component machine.");
+        }
+        Transition t = pws
+                ? new PWSTransition(source, target, autonomous, trigger, pwsAssembly)
+                : new Transition(source, target, autonomous, trigger);
+        // The constructor computes a default control point: the saved one replaces it, even if null
+        t.setControlPoint((flags & BinaryModelSerializer.TRANSITION_CONTROL_POINT) != 0
+                ? new Point(readSignedVarint(), readSignedVarint()) : null);
+        t.setTriggerOffset((flags & BinaryModelSerializer.TRANSITION_TRIGGER_OFFSET) != 0
+                ? new Point(readSignedVarint(), readSignedVarint()) : null);
+        if ((flags & BinaryModelSerializer.TRANSITION_UUID) != 0) {
+            t.setId(new UUID(in.getLong(), in.getLong()).toString());
+        } else {
+            t.setId(readString());
+        }
+        if (pws) {
+            PWSTransition pt = (PWSTransition) t;
+            int guard = readVarint();
+            pt.setGuardProposition(guard == 0 ? null : guards[guard - 1]);
+            int actionCount = readVarint();
+            ActionList actions = new ActionList();
+            for (int i = 0; i < actionCount; i++) {
+                String machineId = readString();
+                actions.add(new Action(machineId, readString()));
+            }
+            pt.setActionList(actions);
+        }
+        return t;
+    }
+
+    private Set<String> readEvents() {
+        int count = readVarint();
+        Set<String> events = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            events.add(readString());
+        }
+        return events;
+    }
+
+    // -------------------- GUARDS --------------------
+
+    private void readGuards() {
+        guards = new SMProposition[readVarint()];
+        for (int i = 0; i < guards.length; i++) {
+            int tag = readVarint();
+            switch (tag) {
+                case BinaryModelSerializer.GUARD_TRUE:
+                    guards[i] = new TrueProposition();
+                    break;
+                case BinaryModelSerializer.GUARD_FALSE:
+                    guards[i] = new FalseProposition();
+                    break;
+                case BinaryModelSerializer.GUARD_BASIC:
+                    String machineId = readString();
+                    guards[i] = new BasicStateProposition(machineId, readString());
+                    break;
+                case BinaryModelSerializer.GUARD_NOT:
+                    guards[i] = new NotProposition(guard(i));
+                    break;
+                case BinaryModelSerializer.GUARD_AND:
+                case BinaryModelSerializer.GUARD_OR:
+                    int count = readVarint();
+                    List<SMProposition> operands = new ArrayList<>(count);
+                    for (int k = 0; k < count; k++) {
+                        operands.add(guard(i));
+                    }
+                    guards[i] = tag == BinaryModelSerializer.GUARD_AND ? new AndProposition(operands) : new OrProposition(operands);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown guard node " + tag + ".");
+            }
+        }
+    }
+
+    // An operand of node i, which can only be an earlier node.
+    private SMProposition guard(int i) {
+        int operand = readVarint();
+        if (operand >= i) {
+            throw new IllegalArgumentException("Guard node " + i + " refers to node " + operand + ".");
+        }
+        return guards[operand];
+    }
+
+    // -------------------- OPTIONAL SECTIONS --------------------
+
+    private void readSemanticsSection(PWSStateMachine machine) {
+        for (StateInterface s : machine.getStates()) {
+            PWSState state = (PWSState) s;
+            state.setStateSemantics(readSemantics());
+            state.setConstraintsSemantics(readSemantics());
+            int zones = readVarint();
+            if (zones == 0) {
+                state.setReactiveSemantics(null);
+            } else {
+                HashSet<ExitZone> reactive = new HashSet<>();
+                for (int i = 1; i < zones; i++) {
+                    reactive.add(readExitZone());
+                }
+                state.setReactiveSemantics(reactive);
+            }
+        }
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition) {
+                ((PWSTransition) t).setTransitionSemantics(readSemantics());
+            }
+        }
+    }
+
+    private Semantics readSemantics() {
+        int count = readVarint();
+        if (count == 0) {
+            return null;
+        }
+        String assemblyId = readString();
+        // Written from a Semantics, the configurations do not imply each other
+        Set<Configuration> configurations = new HashSet<>();
+        for (int i = 1; i < count; i++) {
+            int constraintCount = readVarint();
+            List<BasicStateProposition> props = new ArrayList<>(constraintCount);
+            for (int k = 0; k < constraintCount; k++) {
+                props.add(readConstraint());
+            }
+            configurations.add(Configuration.fromBasicStatePropositions(assemblyId, props));
+        }
+        return Semantics.ofAntichain(assemblyId, configurations);
+    }
+
+    private BasicStateProposition readConstraint() {
+        int machineId = readVarint();
+        int stateName = readVarint();
+        long key = ((long) machineId << 32) | stateName;
+        BasicStateProposition p = constraints.get(key);
+        if (p == null) {
+            p = new BasicStateProposition(string(machineId), string(stateName));
+            constraints.put(key, p);
+        }
+        return p;
+    }
+
+    private ExitZone readExitZone() {
+        String machineId = readString();
+        StateMachine machine = machines[readVarint()];
+        Transition transition = (Transition) machine.getTransitions().get(readVarint());
+        BasicStateProposition source = readConstraint();
+        BasicStateProposition target = readConstraint();
+        return new ExitZone(machineId, transition, source, target);
+    }
+
+    private ModelLayout readLayoutSection(PWSStateMachine machine) {
+        ModelLayout layout = new ModelLayout();
+        for (StateInterface s : machine.getStates()) {
+            Rectangle bounds = readRectangle();
+            if (bounds != null) {
+                layout.setStateAnnotation((PWSState) s, bounds);
+            }
+        }
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition) {
+                Rectangle guard = readRectangle();
+                Rectangle actions = readRectangle();
+                Rectangle semantics = readRectangle();
+                layout.setTransitionAnnotations((PWSTransition) t, guard, actions, semantics);
+            }
+        }
+        return layout;
+    }
+
+    // -------------------- PRIMITIVES --------------------
+
+    private Point readPoint() {
+        if (readVarint() == 0) {
+            return null;
+        }
+        return new Point(readSignedVarint(), readSignedVarint());
+    }
+
+    private Rectangle readRectangle() {
+        if (readVarint() == 0) {
+            return null;
+        }
+        return new Rectangle(readSignedVarint(), readSignedVarint(), readSignedVarint(), readSignedVarint());
+    }
+
+    private String readString() {
+        return string(readVarint());
+    }
+
+    // Index in the string table plus one, 0 for null.
+    private String string(int index) {
+        return index == 0 ? null : strings[index - 1];
+    }
+
+    private int readSignedVarint() {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+}
@@ -0,0 +1,429 @@
+package serializer;
+
+import assembly.Action;
+import assembly.Assembly;
+import machinery.State;
+import machinery.StateInterface;
+import machinery.StateMachine;
+import machinery.Transition;
+import machinery.TransitionInterface;
+import pws.PWSState;
+import pws.PWSStateMachine;
+import pws.PWSTransition;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.ExitZone;
+import pws.editor.semantics.Semantics;
+import smalgebra.AndProposition;
+import smalgebra.BasicStateProposition;
+import smalgebra.FalseProposition;
+import smalgebra.NotProposition;
+import smalgebra.OrProposition;
+import smalgebra.SMProposition;
+import smalgebra.TrueProposition;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodes a PWSStateMachine in the format described by {@link BinaryModelSerializer}. The body is
+ * encoded in memory while the strings are interned, then the header, the string table and the
+ * body are written to the channel.
+ */
+final class ModelWriter {
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final Map<StateMachine, Integer> machines = new IdentityHashMap<>();
+    // Machine and position of every transition of the component machines, for the exit zones
+    private final Map<TransitionInterface, int[]> componentTransitions = new IdentityHashMap<>();
+    // Structurally equal guards and subformulas are written once
+    private final Map<SMProposition, Integer> guards = new HashMap<>();
+    private ByteBuffer body = ByteBuffer.allocate(1 << 16);
+
+    void write(PWSStateMachine model, ModelLayout layout, boolean includeSemantics, WritableByteChannel channel)
+            throws IOException {
+        writeAssembly(model.getAssembly());
+        writeGuards(model);
+        writePWSMachine(model);
+        if (includeSemantics) {
+            writeSemanticsSection(model);
+        }
+        if (layout != null) {
+            writeLayoutSection(model, layout);
+        }
+
+        ByteBuffer table = ByteBuffer.allocate(1 << 12);
+        table.put(BinaryModelSerializer.MAGIC);
+        table.putShort(BinaryModelSerializer.VERSION);
+        table.putShort((short) ((includeSemantics ? BinaryModelSerializer.FLAG_SEMANTICS : 0)
+                | (layout != null ? BinaryModelSerializer.FLAG_LAYOUT : 0)));
+        table = putVarint(table, strings.size());
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            table = putVarint(table, bytes.length);
+            table = ensure(table, bytes.length);
+            table.put(bytes);
+        }
+        table.flip();
+        body.flip();
+        while (table.hasRemaining()) {
+            channel.write(table);
+        }
+        while (body.hasRemaining()) {
+            channel.write(body);
+        }
+    }
+
+    // -------------------- MODEL --------------------
+
+    private void writeAssembly(Assembly assembly) throws IOException {
+        writeString(assembly.getAssemblyId());
+        // The same machine may be bound to several identifiers: machines are written once
+        List<StateMachine> distinct = new ArrayList<>();
+        for (StateMachine machine : assembly.getStateMachines().values()) {
+            if (machines.putIfAbsent(machine, distinct.size()) == null) {
+                distinct.add(machine);
+            }
+        }
+        writeVarint(distinct.size());
+        for (StateMachine machine : distinct) {
+            writeComponentMachine(machine);
+        }
+        writeVarint(assembly.getStateMachines().size());
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            writeString(entry.getKey());
+            writeVarint(machines.get(entry.getValue()));
+        }
+    }
+
+    private void writeComponentMachine(StateMachine machine) throws IOException {
+        if (machine.getClass() != StateMachine.class) {
+            throw new IOException("Unsupported component machine class " + machine.getClass().getName()
+                    + " for machine '" + machine.getName() + "'.");
+        }
+        writeString(machine.getName());
+        Map<StateInterface, Integer> states = indexStates(machine);
+        writeVarint(states.size());
+        for (StateInterface s : states.keySet()) {
+            if (s.getClass() != State.class) {
+                throw new IOException("Unsupported state class " + s.getClass().getName() + " in machine '" + machine.getName() + "'.");
+            }
+            writeString(s.getName());
+            writePoint(s.getPosition());
+        }
+        writePseudoState(machine, states);
+        writeVarint(machine.getCurrentState() == null ? 0 : states.get(machine.getCurrentState()) + 1);
+        int machineIndex = machines.get(machine);
+        int position = 0;
+        writeVarint(machine.getTransitions().size());
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t.getClass() != Transition.class) {
+                throw new IOException("Unsupported transition class " + t.getClass().getName() + " in machine '" + machine.getName() + "'.");
+            }
+            componentTransitions.put(t, new int[]{machineIndex, position++});
+            writeTransition((Transition) t, states, 0);
+        }
+        writeEvents(machine.getEvents());
+    }
+
+    private void writePWSMachine(PWSStateMachine machine) throws IOException {
+        writeString(machine.getName());
+        Map<StateInterface, Integer> states = indexStates(machine);
+        writeVarint(states.size());
+        for (StateInterface s : states.keySet()) {
+            if (!(s instanceof PWSState)) {
+                throw new IOException("Unsupported state class " + s.getClass().getName() + " in machine '" + machine.getName() + "'.");
+            }
+            writeString(s.getName());
+            writePoint(s.getPosition());
+        }
+        writePseudoState(machine, states);
+        writeVarint(machine.getTransitions().size());
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition) {
+                PWSTransition pt = (PWSTransition) t;
+                writeTransition(pt, states, BinaryModelSerializer.TRANSITION_PWS);
+                writeVarint(pt.getGuardProposition() == null ? 0 : guards.get(pt.getGuardProposition()) + 1);
+                List<Action> actions = pt.getActionList();
+                writeVarint(actions.size());
+                for (Action a : actions) {
+                    writeString(a.getMachineId());
+                    writeString(a.getEvent());
+                }
+            } else if (t.getClass() == Transition.class) {
+                writeTransition((Transition) t, states, 0);
+            } else {
+                throw new IOException("Unsupported transition class " + t.getClass().getName() + " in machine '" + machine.getName() + "'.");
+            }
+        }
+        writeEvents(machine.getEvents());
+    }
+
+    private static Map<StateInterface, Integer> indexStates(StateMachine machine) {
+        Map<StateInterface, Integer> states = new LinkedHashMap<>();
+        for (StateInterface s : machine.getStates()) {
+            states.put(s, states.size());
+        }
+        return states;
+    }
+
+    private void writePseudoState(StateMachine machine, Map<StateInterface, Integer> states) throws IOException {
+        Integer pseudo = states.get(machine.getPseudoState());
+        if (pseudo == null) {
+            throw new IOException("The pseudostate of machine '" + machine.getName() + "' is not one of its states.");
+        }
+        writeVarint(pseudo);
+    }
+
+    private void writeTransition(Transition t, Map<StateInterface, Integer> states, int kind) throws IOException {
+        Point controlPoint = t.getControlPoint();
+        Point triggerOffset = t.getTriggerOffset();
+        String id = t.getId();
+        UUID uuid = parseUuid(id);
+        int flags = kind
+                | (t.isAutonomous() ? BinaryModelSerializer.TRANSITION_AUTONOMOUS : 0)
+                | (controlPoint != null ? BinaryModelSerializer.TRANSITION_CONTROL_POINT : 0)
+                | (triggerOffset != null ? BinaryModelSerializer.TRANSITION_TRIGGER_OFFSET : 0)
+                | (uuid != null ? BinaryModelSerializer.TRANSITION_UUID : 0);
+        writeVarint(flags);
+        writeVarint(states.get(t.getSource()));
+        writeVarint(states.get(t.getTarget()));
+        writeString(t.getTriggerEvent());
+        if (controlPoint != null) {
+            writeSignedVarint(controlPoint.x);
+            writeSignedVarint(controlPoint.y);
+        }
+        if (triggerOffset != null) {
+            writeSignedVarint(triggerOffset.x);
+            writeSignedVarint(triggerOffset.y);
+        }
+        if (uuid != null) {
+            ensure(16);
+            body.putLong(uuid.getMostSignificantBits());
+            body.putLong(uuid.getLeastSignificantBits());
+        } else {
+            writeString(id);
+        }
+    }
+
+    // The UUID, if the identifier is the canonical form of one.
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void writeEvents(Set<String> events) throws IOException {
+        writeVarint(events.size());
+        for (String event : events) {
+            writeString(event);
+        }
+    }
+
+    // -------------------- GUARDS --------------------
+
+    private void writeGuards(PWSStateMachine machine) throws IOException {
+        // The nodes are numbered children first, so that a node only refers to earlier ones
+        List<SMProposition> nodes = new ArrayList<>();
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition && ((PWSTransition) t).getGuardProposition() != null) {
+                number(((PWSTransition) t).getGuardProposition(), nodes);
+            }
+        }
+        writeVarint(nodes.size());
+        for (SMProposition p : nodes) {
+            if (p instanceof TrueProposition) {
+                writeVarint(BinaryModelSerializer.GUARD_TRUE);
+            } else if (p instanceof FalseProposition) {
+                writeVarint(BinaryModelSerializer.GUARD_FALSE);
+            } else if (p instanceof BasicStateProposition) {
+                writeVarint(BinaryModelSerializer.GUARD_BASIC);
+                writeString(((BasicStateProposition) p).getMachineId());
+                writeString(((BasicStateProposition) p).getStateName());
+            } else if (p instanceof NotProposition) {
+                writeVarint(BinaryModelSerializer.GUARD_NOT);
+                writeVarint(guards.get(((NotProposition) p).getProposition()));
+            } else {
+                List<SMProposition> operands = p instanceof AndProposition
+                        ? ((AndProposition) p).getOperands() : ((OrProposition) p).getOperands();
+                writeVarint(p instanceof AndProposition ? BinaryModelSerializer.GUARD_AND : BinaryModelSerializer.GUARD_OR);
+                writeVarint(operands.size());
+                for (SMProposition operand : operands) {
+                    writeVarint(guards.get(operand));
+                }
+            }
+        }
+    }
+
+    private void number(SMProposition p, List<SMProposition> nodes) throws IOException {
+        if (guards.containsKey(p)) {
+            return;
+        }
+        if (p instanceof NotProposition) {
+            number(((NotProposition) p).getProposition(), nodes);
+        } else if (p instanceof AndProposition) {
+            for (SMProposition operand : ((AndProposition) p).getOperands()) {
+                number(operand, nodes);
+            }
+        } else if (p instanceof OrProposition) {
+            for (SMProposition operand : ((OrProposition) p).getOperands()) {
+                number(operand, nodes);
+            }
+        } else if (!(p instanceof TrueProposition || p instanceof FalseProposition || p instanceof BasicStateProposition)) {
+            throw new IOException("Unsupported guard class " + p.getClass().getName() + ".");
+        }
+        guards.put(p, nodes.size());
+        nodes.add(p);
+    }
+
+    // -------------------- OPTIONAL SECTIONS --------------------
+
+    private void writeSemanticsSection(PWSStateMachine machine) throws IOException {
+        for (StateInterface s : machine.getStates()) {
+            PWSState state = (PWSState) s;
+            writeSemantics(state.getStateSemantics());
+            writeSemantics(state.getConstraintsSemantics());
+            Set<ExitZone> zones = state.getReactiveSemantics();
+            writeVarint(zones == null ? 0 : zones.size() + 1);
+            if (zones != null) {
+                for (ExitZone zone : zones) {
+                    writeExitZone(zone);
+                }
+            }
+        }
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition) {
+                writeSemantics(((PWSTransition) t).getTransitionSemantics());
+            }
+        }
+    }
+
+    private void writeSemantics(Semantics semantics) throws IOException {
+        if (semantics == null) {
+            writeVarint(0);
+            return;
+        }
+        Set<Configuration> configurations = semantics.getConfigurations();
+        writeVarint(configurations.size() + 1);
+        writeString(semantics.getAssemblyId());
+        for (Configuration c : configurations) {
+            List<BasicStateProposition> constraints = c.getBasicStatePropositions();
+            writeVarint(constraints.size());
+            for (BasicStateProposition p : constraints) {
+                writeString(p.getMachineId());
+                writeString(p.getStateName());
+            }
+        }
+    }
+
+    private void writeExitZone(ExitZone zone) throws IOException {
+        writeString(zone.getStateMachineId());
+        // The transition is the one of a component machine, written as its machine and position
+        int[] transition = componentTransitions.get(zone.getTransition());
+        if (transition == null) {
+            throw new IOException("Exit zone of machine '" + zone.getStateMachineId() + "' refers to a transition outside the assembly.");
+        }
+        writeVarint(transition[0]);
+        writeVarint(transition[1]);
+        writeString(zone.getSource().getMachineId());
+        writeString(zone.getSource().getStateName());
+        writeString(zone.getTarget().getMachineId());
+        writeString(zone.getTarget().getStateName());
+    }
+
+    private void writeLayoutSection(PWSStateMachine machine, ModelLayout layout) throws IOException {
+        for (StateInterface s : machine.getStates()) {
+            writeRectangle(layout.getStateAnnotation((PWSState) s));
+        }
+        for (TransitionInterface t : machine.getTransitions()) {
+            if (t instanceof PWSTransition) {
+                PWSTransition pt = (PWSTransition) t;
+                writeRectangle(layout.getGuardAnnotation(pt));
+                writeRectangle(layout.getActionAnnotation(pt));
+                writeRectangle(layout.getSemanticsAnnotation(pt));
+            }
+        }
+    }
+
+    // -------------------- PRIMITIVES --------------------
+
+    private void writePoint(Point p) throws IOException {
+        writeVarint(p == null ? 0 : 1);
+        if (p != null) {
+            writeSignedVarint(p.x);
+            writeSignedVarint(p.y);
+        }
+    }
+
+    private void writeRectangle(Rectangle r) throws IOException {
+        writeVarint(r == null ? 0 : 1);
+        if (r != null) {
+            writeSignedVarint(r.x);
+            writeSignedVarint(r.y);
+            writeSignedVarint(r.width);
+            writeSignedVarint(r.height);
+        }
+    }
+
+    // Index in the string table plus one, 0 for null.
+    private void writeString(String s) {
+        if (s == null) {
+            writeVarint(0);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.put(s, index);
+        }
+        writeVarint(index + 1);
+    }
+
+    private void writeSignedVarint(int value) {
+        // Zig-zag: small negative values stay short
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarint(int value) {
+        body = putVarint(body, value);
+    }
+
+    private void ensure(int bytes) {
+        body = ensure(body, bytes);
+    }
+
+    static ByteBuffer putVarint(ByteBuffer buffer, int value) {
+        buffer = ensure(buffer, 5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        return buffer;
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
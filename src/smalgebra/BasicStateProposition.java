@@ -7,13 +7,17 @@ import pws.editor.semantics.Configuration;
 import pws.editor.semantics.Semantics;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Rappresenta una proposizione di stato elementare del tipo "machineId.stateName".
  */
 public class BasicStateProposition implements SMProposition {
+    private static final long serialVersionUID = -7488951318359685194L;
+
     private final String machineId;
     private final String stateName;
 
@@ -87,8 +91,8 @@ public class BasicStateProposition implements SMProposition {
      * @return A Semantics containing the configuration derived from this BasicStateProposition.
      */
     public Semantics toSemantics(Assembly assembly) {
-        Semantics sem = new Semantics(assembly.getAssemblyId());
-        sem.addConfiguration(this.toConf(assembly));
-        return sem;
+        Set<Configuration> configurations = new HashSet<>();
+        configurations.add(this.toConf(assembly));
+        return Semantics.ofAntichain(assembly.getAssemblyId(), configurations);
     }
 }
\ No newline at end of file
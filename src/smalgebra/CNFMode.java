@@ -0,0 +1,18 @@
+package smalgebra;
+
+/**
+ * Strategy used by {@link SMProposition#toCNF(CNFMode)} to reach conjunctive normal form.
+ */
+public enum CNFMode {
+    /**
+     * Distributes disjunctions over conjunctions. The result is equivalent to the proposition,
+     * but its size can grow exponentially: suitable for small formulas only.
+     */
+    DISTRIBUTIVE,
+
+    /**
+     * Tseitin encoding: every compound subformula is named by an auxiliary variable defined by a
+     * few clauses. The result is linear in the size of the proposition and equisatisfiable with it.
+     */
+    DEFINITIONAL
+}
@@ -0,0 +1,211 @@
+package smalgebra;
+
+import assembly.Assembly;
+import assembly.UniverseSpliterator;
+
+import java.util.Arrays;
+
+/**
+ * An SMProposition compiled against the universe of an Assembly into a flat postfix program.
+ *
+ * <p>Every BasicStateProposition is resolved once, at compile time, to a pair
+ * (machine position, state index) of the state vectors of the universe (see
+ * {@link UniverseSpliterator#tryAdvanceStates}); the connectives become single opcodes.
+ * {@link #test(int[])} then runs the program over a state vector with no map lookup, no string
+ * comparison, no virtual dispatch and no allocation: the operand stack is a {@code long} used as
+ * a stack of bits, which covers propositions nested up to 64 levels.
+ *
+ * <p>The source proposition stays the reference for {@code toString} and for the normal-form
+ * conversions; a CompiledProposition only evaluates.
+ */
+public final class CompiledProposition {
+    private static final int LEAF = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int NOT = 3;
+    private static final int AND = 4;
+    private static final int OR = 5;
+
+    // Maximum depth of the operand stack held in a long.
+    private static final int BIT_STACK_DEPTH = Long.SIZE;
+
+    private final SMProposition source;
+    // Opcodes; LEAF is followed by its two operands (machine position, state index).
+    private final int[] code;
+    private final int maxDepth;
+
+    private CompiledProposition(SMProposition source, int[] code, int maxDepth) {
+        this.source = source;
+        this.code = code;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Compiles the proposition against the state vectors of the universe of the given Assembly.
+     */
+    public static CompiledProposition compile(SMProposition proposition, Assembly assembly) {
+        return compile(proposition, new UniverseSpliterator(assembly));
+    }
+
+    /**
+     * Compiles the proposition against the state vectors handed out by the given universe.
+     * A BasicStateProposition on a machine or state outside the universe compiles to FALSE.
+     */
+    public static CompiledProposition compile(SMProposition proposition, UniverseSpliterator universe) {
+        Emitter emitter = new Emitter(universe);
+        emitter.emit(proposition);
+        return new CompiledProposition(proposition, Arrays.copyOf(emitter.code, emitter.size), emitter.maxDepth);
+    }
+
+    private static final class Emitter {
+        final UniverseSpliterator universe;
+        int[] code = new int[16];
+        int size;
+        int depth;
+        int maxDepth;
+
+        Emitter(UniverseSpliterator universe) {
+            this.universe = universe;
+        }
+
+        void emit(SMProposition p) {
+            if (p instanceof BasicStateProposition) {
+                BasicStateProposition bsp = (BasicStateProposition) p;
+                int level = universe.levelOf(bsp.getMachineId());
+                int state = level < 0 ? -1 : universe.stateIndexOf(level, bsp.getStateName());
+                if (state < 0) {
+                    push(FALSE);
+                } else {
+                    append(LEAF);
+                    append(level);
+                    append(state);
+                    grow(1);
+                }
+            } else if (p instanceof AndProposition) {
+                AndProposition ap = (AndProposition) p;
+                emit(ap.getOperand(0));
+                for (int i = 1; i < ap.getOperandCount(); i++) {
+                    emit(ap.getOperand(i));
+                    append(AND);
+                    depth--;
+                }
+            } else if (p instanceof OrProposition) {
+                OrProposition op = (OrProposition) p;
+                emit(op.getOperand(0));
+                for (int i = 1; i < op.getOperandCount(); i++) {
+                    emit(op.getOperand(i));
+                    append(OR);
+                    depth--;
+                }
+            } else if (p instanceof NotProposition) {
+                emit(((NotProposition) p).getProposition());
+                append(NOT);
+            } else if (p instanceof TrueProposition) {
+                push(TRUE);
+            } else if (p instanceof FalseProposition) {
+                push(FALSE);
+            } else {
+                throw new UnsupportedOperationException("Cannot compile " + p.getClass().getSimpleName());
+            }
+        }
+
+        private void push(int op) {
+            append(op);
+            grow(1);
+        }
+
+        private void grow(int n) {
+            depth += n;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private void append(int word) {
+            if (size == code.length) {
+                code = Arrays.copyOf(code, size * 2);
+            }
+            code[size++] = word;
+        }
+    }
+
+    /**
+     * Evaluates the proposition on the configuration denoted by the given state vector.
+     * The method is thread-safe and does not allocate (unless the proposition is nested
+     * deeper than 64 levels).
+     */
+    public boolean test(int[] states) {
+        if (maxDepth > BIT_STACK_DEPTH) {
+            return testDeep(states);
+        }
+        final int[] code = this.code;
+        // Bit 0 is the top of the stack.
+        long stack = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case LEAF:
+                    stack = (stack << 1) | (states[code[pc + 1]] == code[pc + 2] ? 1L : 0L);
+                    pc += 3;
+                    continue;
+                case TRUE:
+                    stack = (stack << 1) | 1L;
+                    break;
+                case FALSE:
+                    stack <<= 1;
+                    break;
+                case NOT:
+                    stack ^= 1L;
+                    break;
+                case AND:
+                    stack = ((stack >>> 2) << 1) | (stack & (stack >>> 1) & 1L);
+                    break;
+                default: // OR
+                    stack = ((stack >>> 2) << 1) | ((stack | (stack >>> 1)) & 1L);
+                    break;
+            }
+            pc++;
+        }
+        return (stack & 1L) != 0;
+    }
+
+    private boolean testDeep(int[] states) {
+        boolean[] stack = new boolean[maxDepth];
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case LEAF:
+                    stack[++top] = states[code[pc + 1]] == code[pc + 2];
+                    pc += 3;
+                    continue;
+                case TRUE:
+                    stack[++top] = true;
+                    break;
+                case FALSE:
+                    stack[++top] = false;
+                    break;
+                case NOT:
+                    stack[top] = !stack[top];
+                    break;
+                case AND:
+                    top--;
+                    stack[top] = stack[top] & stack[top + 1];
+                    break;
+                default: // OR
+                    top--;
+                    stack[top] = stack[top] | stack[top + 1];
+                    break;
+            }
+            pc++;
+        }
+        return stack[0];
+    }
+
+    public SMProposition getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+}
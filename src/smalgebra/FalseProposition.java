@@ -3,6 +3,7 @@ package smalgebra;
 import assembly.AssemblyInterface;
 
 public class FalseProposition implements SMProposition {
+    private static final long serialVersionUID = 8163292228361961554L;
 
     @Override
     public boolean evaluate(AssemblyInterface assembly) {
@@ -14,6 +15,16 @@ public class FalseProposition implements SMProposition {
         return "FALSE";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FalseProposition;
+    }
+
+    @Override
+    public int hashCode() {
+        return "FALSE".hashCode();
+    }
+
     @Override
     public SMProposition clone() {
         return new FalseProposition();
@@ -0,0 +1,12 @@
+package smalgebra;
+
+/**
+ * Normal forms of a canonical composite proposition (see PropositionFactory), computed on first
+ * use and held by the node itself: they live exactly as long as the node. A race computes a form
+ * twice, with the same canonical result.
+ */
+final class NormalForms {
+    volatile SMProposition nnf;
+    volatile SMProposition cnf;
+    volatile SMProposition dnf;
+}
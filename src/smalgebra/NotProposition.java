@@ -2,14 +2,24 @@ package smalgebra;
 
 import assembly.AssemblyInterface;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 /**
  * Rappresenta la negazione logica (NOT) di una SMProposition.
  */
 public class NotProposition implements SMProposition {
+    private static final long serialVersionUID = -3617491694763930059L;
+
     private final SMProposition proposition;
+    // Propositions are immutable: the structural hash is computed once.
+    private transient int hash;
+    // Normal forms memoised on the canonical node (see PropositionFactory).
+    transient NormalForms normalForms = new NormalForms();
 
     public NotProposition(SMProposition proposition) {
         this.proposition = proposition;
+        this.hash = PropositionFactory.hash("NOT".hashCode(), proposition.hashCode(), 0);
     }
 
     @Override
@@ -26,8 +36,27 @@ public class NotProposition implements SMProposition {
         return "(NOT " + proposition + ")";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NotProposition)) return false;
+        NotProposition that = (NotProposition) o;
+        return hash == that.hash && proposition.equals(that.proposition);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     @Override
     public SMProposition clone() {
         return new NotProposition(this.proposition.clone());
     }
-}
\ No newline at end of file
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.hash = PropositionFactory.hash("NOT".hashCode(), proposition.hashCode(), 0);
+        this.normalForms = new NormalForms();
+    }
+}
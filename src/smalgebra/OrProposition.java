@@ -2,38 +2,146 @@ package smalgebra;
 
 import assembly.AssemblyInterface;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
 /**
- * Rappresenta la disgiunzione logica (OR) di due SMProposition.
+ * Rappresenta la disgiunzione logica (OR) di due o più SMProposition.
+ * La vista binaria getLeft()/getRight() resta disponibile: getLeft() è il primo operando,
+ * getRight() è la disgiunzione dei restanti.
  */
 public class OrProposition implements SMProposition {
-    private final SMProposition left;
-    private final SMProposition right;
+    private static final long serialVersionUID = 8535690856482434901L;
+    // Il formato serializzato resta quello binario (left, right), compatibile con i file esistenti.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("left", SMProposition.class),
+            new ObjectStreamField("right", SMProposition.class)
+    };
+
+    private transient SMProposition[] operands;
+    // Propositions are immutable: the structural hash is computed once.
+    private transient int hash;
+    // Binary view of the operands after the first one, built on demand.
+    private transient SMProposition rest;
+    // Normal forms memoised on the canonical node (see PropositionFactory).
+    transient NormalForms normalForms = new NormalForms();
 
     public OrProposition(SMProposition left, SMProposition right) {
-        this.left = left;
-        this.right = right;
+        this(new SMProposition[]{left, right});
+    }
+
+    /**
+     * Builds the n-ary disgiunzione of the given operands (at least two), kept in the given order.
+     */
+    public OrProposition(List<? extends SMProposition> operands) {
+        this(operands.toArray(new SMProposition[0]));
+    }
+
+    private OrProposition(SMProposition[] operands) {
+        if (operands.length < 2) {
+            throw new IllegalArgumentException("OrProposition needs at least two operands.");
+        }
+        this.operands = operands;
+        this.hash = structuralHash(operands);
+    }
+
+    private static int structuralHash(SMProposition[] operands) {
+        int h = operands[0].hashCode();
+        for (int i = 1; i < operands.length; i++) {
+            h = PropositionFactory.hash("OR".hashCode(), h, operands[i].hashCode());
+        }
+        return h;
     }
 
     @Override
     public boolean evaluate(AssemblyInterface assembly) {
-        return left.evaluate(assembly) || right.evaluate(assembly);
+        for (SMProposition operand : operands) {
+            if (operand.evaluate(assembly)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<SMProposition> getOperands() {
+        return Collections.unmodifiableList(Arrays.asList(operands));
+    }
+
+    public int getOperandCount() {
+        return operands.length;
+    }
+
+    public SMProposition getOperand(int i) {
+        return operands[i];
     }
 
     public SMProposition getLeft() {
-        return left;
+        return operands[0];
     }
 
     public SMProposition getRight() {
-        return right;
+        if (operands.length == 2) {
+            return operands[1];
+        }
+        SMProposition r = rest;
+        if (r == null) {
+            r = new OrProposition(Arrays.copyOfRange(operands, 1, operands.length));
+            rest = r;
+        }
+        return r;
     }
 
     @Override
     public String toString() {
-        return "(" + left + " OR " + right + ")";
+        StringJoiner joiner = new StringJoiner(" OR ", "(", ")");
+        for (SMProposition operand : operands) {
+            joiner.add(String.valueOf(operand));
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrProposition)) return false;
+        OrProposition that = (OrProposition) o;
+        return hash == that.hash && Arrays.equals(operands, that.operands);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
 
     @Override
     public SMProposition clone() {
-        return new OrProposition(this.left.clone(), this.right.clone());
+        SMProposition[] copy = new SMProposition[operands.length];
+        for (int i = 0; i < operands.length; i++) {
+            copy[i] = operands[i].clone();
+        }
+        return new OrProposition(copy);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("left", getLeft());
+        fields.put("right", getRight());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.operands = new SMProposition[]{
+                (SMProposition) fields.get("left", null),
+                (SMProposition) fields.get("right", null)
+        };
+        this.hash = structuralHash(operands);
+        this.normalForms = new NormalForms();
     }
-}
\ No newline at end of file
+}
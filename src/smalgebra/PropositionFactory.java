@@ -0,0 +1,222 @@
+package smalgebra;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Hash-consing factory for SMProposition.
+ *
+ * <p>Every proposition built through the factory is canonical: structurally equal propositions
+ * are represented by a single shared instance, so that formulas built from them form a DAG in
+ * which equal subformulas are stored once, and comparing two canonical propositions only takes
+ * a reference comparison (equals short-circuits on identity, hash codes are cached).
+ * Conjunctions and disjunctions are kept flat: {@code and(and(a, b), c)} is the single n-ary
+ * node {@code (a AND b AND c)}, so chains built one operand at a time do not grow deep.
+ *
+ * <p>The normal forms computed by {@link SMProposition#toNNF()}, {@link SMProposition#toCNF()} and
+ * {@link SMProposition#toDNF()} are memoised on each canonical node (see NormalForms), so rewriting
+ * the same guard again reuses the formulas already built instead of allocating new trees. A node
+ * holds its normal forms strongly for as long as it lives; atoms are their own normal forms.
+ *
+ * <p>The table of the canonical instances holds its entries weakly: canonical propositions no
+ * longer referenced by the editor are reclaimed by the garbage collector together with their
+ * normal forms.
+ */
+public final class PropositionFactory {
+    private static final TrueProposition TRUE = new TrueProposition();
+    private static final FalseProposition FALSE = new FalseProposition();
+
+    private static final Map<SMProposition, WeakReference<SMProposition>> canonical = new WeakHashMap<>();
+
+    private PropositionFactory() {
+    }
+
+    public static SMProposition and(SMProposition left, SMProposition right) {
+        return and(Arrays.asList(left, right));
+    }
+
+    public static SMProposition or(SMProposition left, SMProposition right) {
+        return or(Arrays.asList(left, right));
+    }
+
+    /**
+     * Canonical n-ary conjunction of the given operands. Nested conjunctions are flattened into
+     * a single node, TRUE operands are dropped and a FALSE operand absorbs the whole conjunction;
+     * no operand yields TRUE and a single operand is returned as it is.
+     */
+    public static SMProposition and(List<? extends SMProposition> operands) {
+        List<SMProposition> flat = new ArrayList<>(operands.size());
+        for (SMProposition operand : operands) {
+            SMProposition p = intern(operand);
+            if (p instanceof FalseProposition) {
+                return FALSE;
+            } else if (p instanceof AndProposition) {
+                flat.addAll(((AndProposition) p).getOperands());
+            } else if (!(p instanceof TrueProposition)) {
+                flat.add(p);
+            }
+        }
+        if (flat.isEmpty()) {
+            return TRUE;
+        } else if (flat.size() == 1) {
+            return flat.get(0);
+        }
+        return lookup(new AndProposition(flat));
+    }
+
+    /**
+     * Canonical n-ary disjunction of the given operands. Nested disjunctions are flattened into
+     * a single node, FALSE operands are dropped and a TRUE operand absorbs the whole disjunction;
+     * no operand yields FALSE and a single operand is returned as it is.
+     */
+    public static SMProposition or(List<? extends SMProposition> operands) {
+        List<SMProposition> flat = new ArrayList<>(operands.size());
+        for (SMProposition operand : operands) {
+            SMProposition p = intern(operand);
+            if (p instanceof TrueProposition) {
+                return TRUE;
+            } else if (p instanceof OrProposition) {
+                flat.addAll(((OrProposition) p).getOperands());
+            } else if (!(p instanceof FalseProposition)) {
+                flat.add(p);
+            }
+        }
+        if (flat.isEmpty()) {
+            return FALSE;
+        } else if (flat.size() == 1) {
+            return flat.get(0);
+        }
+        return lookup(new OrProposition(flat));
+    }
+
+    public static SMProposition not(SMProposition proposition) {
+        return lookup(new NotProposition(intern(proposition)));
+    }
+
+    public static BasicStateProposition basic(String machineId, String stateName) {
+        return (BasicStateProposition) lookup(new BasicStateProposition(machineId, stateName));
+    }
+
+    public static SMProposition trueProposition() {
+        return TRUE;
+    }
+
+    public static SMProposition falseProposition() {
+        return FALSE;
+    }
+
+    /**
+     * Returns the canonical instance structurally equal to the given proposition, registering
+     * the proposition (and, recursively, its subformulas) if it is not known yet.
+     */
+    public static SMProposition intern(SMProposition proposition) {
+        if (proposition instanceof TrueProposition) {
+            return TRUE;
+        } else if (proposition instanceof FalseProposition) {
+            return FALSE;
+        }
+        synchronized (canonical) {
+            SMProposition existing = get(canonical, proposition);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        if (proposition instanceof AndProposition) {
+            return and(((AndProposition) proposition).getOperands());
+        } else if (proposition instanceof OrProposition) {
+            return or(((OrProposition) proposition).getOperands());
+        } else if (proposition instanceof NotProposition) {
+            return not(((NotProposition) proposition).getProposition());
+        }
+        return lookup(proposition);
+    }
+
+    // The children of the node are already canonical.
+    private static SMProposition lookup(SMProposition node) {
+        synchronized (canonical) {
+            SMProposition existing = get(canonical, node);
+            if (existing != null) {
+                return existing;
+            }
+            canonical.put(node, new WeakReference<>(node));
+            return node;
+        }
+    }
+
+    static SMProposition nnf(SMProposition proposition, Function<SMProposition, SMProposition> compute) {
+        SMProposition node = intern(proposition);
+        NormalForms forms = normalForms(node);
+        if (forms == null) {
+            return intern(compute.apply(node));
+        }
+        SMProposition result = forms.nnf;
+        if (result == null) {
+            // Computed without a lock: the computation recurses into the operands.
+            result = intern(compute.apply(node));
+            forms.nnf = result;
+        }
+        return result;
+    }
+
+    static SMProposition cnf(SMProposition proposition, Function<SMProposition, SMProposition> compute) {
+        SMProposition node = intern(proposition);
+        NormalForms forms = normalForms(node);
+        if (forms == null) {
+            return intern(compute.apply(node));
+        }
+        SMProposition result = forms.cnf;
+        if (result == null) {
+            result = intern(compute.apply(node));
+            forms.cnf = result;
+        }
+        return result;
+    }
+
+    static SMProposition dnf(SMProposition proposition, Function<SMProposition, SMProposition> compute) {
+        SMProposition node = intern(proposition);
+        NormalForms forms = normalForms(node);
+        if (forms == null) {
+            return intern(compute.apply(node));
+        }
+        SMProposition result = forms.dnf;
+        if (result == null) {
+            result = intern(compute.apply(node));
+            forms.dnf = result;
+        }
+        return result;
+    }
+
+    // The memo of a composite node; atoms have none.
+    private static NormalForms normalForms(SMProposition node) {
+        if (node instanceof AndProposition) {
+            return ((AndProposition) node).normalForms;
+        } else if (node instanceof OrProposition) {
+            return ((OrProposition) node).normalForms;
+        } else if (node instanceof NotProposition) {
+            return ((NotProposition) node).normalForms;
+        }
+        return null;
+    }
+
+    /**
+     * Structural hash of a composite node from the hashes of its children. The bits are mixed
+     * thoroughly: with the plain polynomial hash, the many similar nodes produced by the
+     * normal-form conversions collide and every lookup degenerates into deep comparisons.
+     */
+    static int hash(int seed, int first, int second) {
+        long h = seed * 0x9E3779B97F4A7C15L + first;
+        h = (h ^ (h >>> 32)) * 0xBF58476D1CE4E5B9L + second;
+        h = (h ^ (h >>> 31)) * 0x94D049BB133111EBL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private static SMProposition get(Map<SMProposition, WeakReference<SMProposition>> table, SMProposition key) {
+        WeakReference<SMProposition> ref = table.get(key);
+        return ref == null ? null : ref.get();
+    }
+}
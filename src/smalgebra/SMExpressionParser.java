@@ -57,7 +57,7 @@ public class SMExpressionParser {
             skipWhitespace();
             if (match("OR")) {
                 SMProposition right = parseTerm();
-                left = new OrProposition(left, right);
+                left = PropositionFactory.or(left, right);
             } else {
                 break;
             }
@@ -72,7 +72,7 @@ public class SMExpressionParser {
             skipWhitespace();
             if (match("AND")) {
                 SMProposition right = parseFactor();
-                left = new AndProposition(left, right);
+                left = PropositionFactory.and(left, right);
             } else {
                 break;
             }
@@ -85,7 +85,7 @@ public class SMExpressionParser {
         skipWhitespace();
         if (match("NOT")) {
             SMProposition proposition = parseFactor();
-            return new NotProposition(proposition);
+            return PropositionFactory.not(proposition);
         } else {
             return parsePrimary();
         }
@@ -96,11 +96,11 @@ public class SMExpressionParser {
         skipWhitespace();
         // Se troviamo "TRUE", restituiamo una TrueProposition
         if (match("TRUE")) {
-            return new TrueProposition();
+            return PropositionFactory.trueProposition();
         }
         // Se troviamo "FALSE", restituiamo una FalseProposition
         if (match("FALSE")) {
-            return new FalseProposition();
+            return PropositionFactory.falseProposition();
         }
         if (match("(")) {
             SMProposition proposition = parseExpression();
@@ -128,7 +128,7 @@ public class SMExpressionParser {
         }
         skipWhitespace();
         String stateName = parseIdentifier();
-        return new BasicStateProposition(machineId, stateName);
+        return PropositionFactory.basic(machineId, stateName);
     }
 
     // Parse an identifier (machine id or state name); assume alphanumeric characters.
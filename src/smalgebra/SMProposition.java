@@ -2,11 +2,15 @@ package smalgebra;
 
 import assembly.Assembly;
 import assembly.AssemblyInterface;
+import assembly.UniverseSpliterator;
 import pws.editor.semantics.Configuration;
 import pws.editor.semantics.Semantics;
 
 import java.io.Serializable;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public interface SMProposition extends Cloneable, Serializable {
 
@@ -18,44 +22,59 @@ public interface SMProposition extends Cloneable, Serializable {
     /**
      * Trasforma l'espressione sostituendo, per la macchina data, lo stato fromState con toState.
      * (Non viene più controllata l'ontologica validità dell'espressione.)
+     * I sottotermini non interessati dalla sostituzione vengono riusati così come sono.
      */
     default SMProposition transform(String machineId, String fromState, String toState, AssemblyInterface assembly) {
         if (this instanceof BasicStateProposition) {
             BasicStateProposition bsp = (BasicStateProposition) this;
             if (bsp.getMachineId().equals(machineId) && bsp.getStateName().equals(fromState)) {
-                return new BasicStateProposition(machineId, toState);
+                return PropositionFactory.basic(machineId, toState);
             } else {
                 return bsp;
             }
         } else if (this instanceof AndProposition) {
-            AndProposition ap = (AndProposition) this;
-            SMProposition newLeft = ap.getLeft().transform(machineId, fromState, toState, assembly);
-            SMProposition newRight = ap.getRight().transform(machineId, fromState, toState, assembly);
-            return new AndProposition(newLeft, newRight);
+            List<SMProposition> operands = ((AndProposition) this).getOperands();
+            List<SMProposition> transformed = transformAll(operands, machineId, fromState, toState, assembly);
+            return transformed == operands ? this : PropositionFactory.and(transformed);
         } else if (this instanceof OrProposition) {
-            OrProposition op = (OrProposition) this;
-            SMProposition newLeft = op.getLeft().transform(machineId, fromState, toState, assembly);
-            SMProposition newRight = op.getRight().transform(machineId, fromState, toState, assembly);
-            return new OrProposition(newLeft, newRight);
+            List<SMProposition> operands = ((OrProposition) this).getOperands();
+            List<SMProposition> transformed = transformAll(operands, machineId, fromState, toState, assembly);
+            return transformed == operands ? this : PropositionFactory.or(transformed);
         } else if (this instanceof NotProposition) {
             NotProposition np = (NotProposition) this;
             SMProposition newProp = np.getProposition().transform(machineId, fromState, toState, assembly);
-            return new NotProposition(newProp);
+            if (newProp == np.getProposition()) {
+                return this;
+            }
+            return PropositionFactory.not(newProp);
         } else {
             return this;
         }
     }
 
+    // Returns the given list itself when no operand is affected by the substitution.
+    private static List<SMProposition> transformAll(List<SMProposition> operands, String machineId, String fromState,
+                                                    String toState, AssemblyInterface assembly) {
+        List<SMProposition> transformed = null;
+        for (int i = 0; i < operands.size(); i++) {
+            SMProposition operand = operands.get(i);
+            SMProposition newOperand = operand.transform(machineId, fromState, toState, assembly);
+            if (newOperand != operand && transformed == null) {
+                transformed = new ArrayList<>(operands.subList(0, i));
+            }
+            if (transformed != null) {
+                transformed.add(newOperand);
+            }
+        }
+        return transformed == null ? operands : transformed;
+    }
+
     /**
      * A livello ontologico, A ontoImplies B se per ogni configurazione in cui A è vera, B è vera.
+     * La verifica è affidata al SatisfiabilityChecker (A ∧ ¬B insoddisfacibile), senza enumerare l'universo.
      */
     default boolean ontoImplies(SMProposition other, AssemblyInterface assembly) {
-        for (AssemblyInterface conf : assembly.getAllConcreteAssemblies()) {
-            if (this.evaluate(conf) && !other.evaluate(conf)) {
-                return false;
-            }
-        }
-        return true;
+        return new SatisfiabilityChecker(assembly).implies(this, other);
     }
 
     /**
@@ -66,11 +85,11 @@ public interface SMProposition extends Cloneable, Serializable {
     }
 
     default SMProposition andBSP(BasicStateProposition bsp) {
-        return new AndProposition(bsp, this);
+        return PropositionFactory.and(bsp, this);
     }
 
     default SMProposition negate() {
-        return new NotProposition(this);
+        return PropositionFactory.not(this);
     }
 
     /**
@@ -83,48 +102,83 @@ public interface SMProposition extends Cloneable, Serializable {
     /**
      * Converte l'espressione nella forma normale negativa (NNF)
      * in cui le negazioni appaiono solo direttamente davanti agli atomi.
+     * Il risultato è canonico e memorizzato per nodo (vedi PropositionFactory).
      */
     default SMProposition toNNF() {
-        if (this instanceof BasicStateProposition) {
-            return this;
-        } else if (this instanceof NotProposition) {
-            SMProposition inner = ((NotProposition) this).getProposition();
+        return PropositionFactory.nnf(this, SMProposition::computeNNF);
+    }
+
+    private static SMProposition computeNNF(SMProposition expr) {
+        if (expr instanceof BasicStateProposition) {
+            return expr;
+        } else if (expr instanceof NotProposition) {
+            SMProposition inner = ((NotProposition) expr).getProposition();
             if (inner instanceof NotProposition) {
                 // doppia negazione: ¬(¬A) = A
                 return ((NotProposition) inner).getProposition().toNNF();
             } else if (inner instanceof AndProposition) {
-                // ¬(A ∧ B) = ¬A ∨ ¬B
-                SMProposition left = new NotProposition(((AndProposition) inner).getLeft()).toNNF();
-                SMProposition right = new NotProposition(((AndProposition) inner).getRight()).toNNF();
-                return new OrProposition(left, right);
+                // ¬(A1 ∧ ... ∧ An) = ¬A1 ∨ ... ∨ ¬An
+                return PropositionFactory.or(negatedNNF(((AndProposition) inner).getOperands()));
             } else if (inner instanceof OrProposition) {
-                // ¬(A ∨ B) = ¬A ∧ ¬B
-                SMProposition left = new NotProposition(((OrProposition) inner).getLeft()).toNNF();
-                SMProposition right = new NotProposition(((OrProposition) inner).getRight()).toNNF();
-                return new AndProposition(left, right);
+                // ¬(A1 ∨ ... ∨ An) = ¬A1 ∧ ... ∧ ¬An
+                return PropositionFactory.and(negatedNNF(((OrProposition) inner).getOperands()));
+            } else if (inner instanceof TrueProposition) {
+                return PropositionFactory.falseProposition();
+            } else if (inner instanceof FalseProposition) {
+                return PropositionFactory.trueProposition();
             } else {
-                return new NotProposition(inner.toNNF());
+                return PropositionFactory.not(inner.toNNF());
             }
-        } else if (this instanceof AndProposition) {
-            SMProposition left = ((AndProposition) this).getLeft().toNNF();
-            SMProposition right = ((AndProposition) this).getRight().toNNF();
-            return new AndProposition(left, right);
-        } else if (this instanceof OrProposition) {
-            SMProposition left = ((OrProposition) this).getLeft().toNNF();
-            SMProposition right = ((OrProposition) this).getRight().toNNF();
-            return new OrProposition(left, right);
+        } else if (expr instanceof AndProposition) {
+            return PropositionFactory.and(nnf(((AndProposition) expr).getOperands()));
+        } else if (expr instanceof OrProposition) {
+            return PropositionFactory.or(nnf(((OrProposition) expr).getOperands()));
         }
-        return this; // default
+        return expr; // default
+    }
+
+    private static List<SMProposition> nnf(List<SMProposition> operands) {
+        List<SMProposition> result = new ArrayList<>(operands.size());
+        for (SMProposition operand : operands) {
+            result.add(operand.toNNF());
+        }
+        return result;
+    }
+
+    private static List<SMProposition> negatedNNF(List<SMProposition> operands) {
+        List<SMProposition> result = new ArrayList<>(operands.size());
+        for (SMProposition operand : operands) {
+            result.add(PropositionFactory.not(operand).toNNF());
+        }
+        return result;
     }
 
     /**
-     * Converte l'espressione in forma normale congiuntiva (CNF).
+     * Converte l'espressione in forma normale congiuntiva (CNF) per distribuzione.
+     * Il risultato è equivalente all'espressione ma può crescere esponenzialmente:
+     * per le formule grandi si veda {@link #toCNF(CNFMode)} con {@link CNFMode#DEFINITIONAL}.
      */
     default SMProposition toCNF() {
         SMProposition nnf = this.toNNF();
         return distributeOrOverAnd(nnf);
     }
 
+    /**
+     * Converte l'espressione in forma normale congiuntiva (CNF) con la strategia indicata.
+     * In modalità DEFINITIONAL il risultato (vedi {@link TseitinEncoding}) ha dimensione lineare
+     * ma è soltanto equisoddisfacibile all'espressione, perché introduce variabili ausiliarie.
+     */
+    default SMProposition toCNF(CNFMode mode) {
+        switch (mode) {
+            case DISTRIBUTIVE:
+                return toCNF();
+            case DEFINITIONAL:
+                return TseitinEncoding.encode(this).toSMProposition();
+            default:
+                throw new IllegalArgumentException("Unknown CNF mode: " + mode);
+        }
+    }
+
     /**
      * Converte l'espressione in forma normale disgiuntiva (DNF).
      */
@@ -135,34 +189,38 @@ public interface SMProposition extends Cloneable, Serializable {
 
     /**
      * Distribuisce l'OR sull'AND per ottenere la CNF.
-     * Implementa la regola: A ∨ (B ∧ C) = (A ∨ B) ∧ (A ∨ C)
+     * Implementa la regola: A ∨ (B1 ∧ ... ∧ Bn) = (A ∨ B1) ∧ ... ∧ (A ∨ Bn)
+     * I sottotermini duplicati dalla distribuzione sono condivisi e distribuiti una volta sola.
      */
     static SMProposition distributeOrOverAnd(SMProposition expr) {
+        return PropositionFactory.cnf(expr, SMProposition::computeDistributeOrOverAnd);
+    }
+
+    private static SMProposition computeDistributeOrOverAnd(SMProposition expr) {
         if (expr instanceof OrProposition) {
-            SMProposition left = distributeOrOverAnd(((OrProposition) expr).getLeft());
-            SMProposition right = distributeOrOverAnd(((OrProposition) expr).getRight());
-            // Se uno dei due lati è una congiunzione, applica la distribuzione.
-            if (left instanceof AndProposition) {
-                SMProposition a = ((AndProposition) left).getLeft();
-                SMProposition b = ((AndProposition) left).getRight();
-                return new AndProposition(
-                        distributeOrOverAnd(new OrProposition(a, right)),
-                        distributeOrOverAnd(new OrProposition(b, right))
-                );
-            } else if (right instanceof AndProposition) {
-                SMProposition a = ((AndProposition) right).getLeft();
-                SMProposition b = ((AndProposition) right).getRight();
-                return new AndProposition(
-                        distributeOrOverAnd(new OrProposition(left, a)),
-                        distributeOrOverAnd(new OrProposition(left, b))
-                );
-            } else {
-                return new OrProposition(left, right);
+            // Le clausole della disgiunzione sono il prodotto delle clausole degli operandi.
+            List<SMProposition> clauses = Collections.singletonList(PropositionFactory.falseProposition());
+            for (SMProposition operand : ((OrProposition) expr).getOperands()) {
+                SMProposition cnf = distributeOrOverAnd(operand);
+                List<SMProposition> operandClauses = cnf instanceof AndProposition
+                        ? ((AndProposition) cnf).getOperands()
+                        : Collections.singletonList(cnf);
+                List<SMProposition> product = new ArrayList<>(clauses.size() * operandClauses.size());
+                for (SMProposition clause : clauses) {
+                    for (SMProposition operandClause : operandClauses) {
+                        product.add(PropositionFactory.or(clause, operandClause));
+                    }
+                }
+                clauses = product;
             }
+            return PropositionFactory.and(clauses);
         } else if (expr instanceof AndProposition) {
-            SMProposition left = distributeOrOverAnd(((AndProposition) expr).getLeft());
-            SMProposition right = distributeOrOverAnd(((AndProposition) expr).getRight());
-            return new AndProposition(left, right);
+            List<SMProposition> operands = ((AndProposition) expr).getOperands();
+            List<SMProposition> result = new ArrayList<>(operands.size());
+            for (SMProposition operand : operands) {
+                result.add(distributeOrOverAnd(operand));
+            }
+            return PropositionFactory.and(result);
         }
         // Per NotProposition e BasicStateProposition, la distribuzione non cambia nulla.
         return expr;
@@ -170,34 +228,38 @@ public interface SMProposition extends Cloneable, Serializable {
 
     /**
      * Distribuisce l'AND sull'OR per ottenere la DNF.
-     * Implementa la regola: A ∧ (B ∨ C) = (A ∧ B) ∨ (A ∧ C)
+     * Implementa la regola: A ∧ (B1 ∨ ... ∨ Bn) = (A ∧ B1) ∨ ... ∨ (A ∧ Bn)
+     * I sottotermini duplicati dalla distribuzione sono condivisi e distribuiti una volta sola.
      */
     static SMProposition distributeAndOverOr(SMProposition expr) {
+        return PropositionFactory.dnf(expr, SMProposition::computeDistributeAndOverOr);
+    }
+
+    private static SMProposition computeDistributeAndOverOr(SMProposition expr) {
         if (expr instanceof AndProposition) {
-            SMProposition left = distributeAndOverOr(((AndProposition) expr).getLeft());
-            SMProposition right = distributeAndOverOr(((AndProposition) expr).getRight());
-            // Se uno dei due lati è una disgiunzione, applica la distribuzione.
-            if (left instanceof OrProposition) {
-                SMProposition a = ((OrProposition) left).getLeft();
-                SMProposition b = ((OrProposition) left).getRight();
-                return new OrProposition(
-                        distributeAndOverOr(new AndProposition(a, right)),
-                        distributeAndOverOr(new AndProposition(b, right))
-                );
-            } else if (right instanceof OrProposition) {
-                SMProposition a = ((OrProposition) right).getLeft();
-                SMProposition b = ((OrProposition) right).getRight();
-                return new OrProposition(
-                        distributeAndOverOr(new AndProposition(left, a)),
-                        distributeAndOverOr(new AndProposition(left, b))
-                );
-            } else {
-                return new AndProposition(left, right);
+            // I termini della congiunzione sono il prodotto dei termini degli operandi.
+            List<SMProposition> terms = Collections.singletonList(PropositionFactory.trueProposition());
+            for (SMProposition operand : ((AndProposition) expr).getOperands()) {
+                SMProposition dnf = distributeAndOverOr(operand);
+                List<SMProposition> operandTerms = dnf instanceof OrProposition
+                        ? ((OrProposition) dnf).getOperands()
+                        : Collections.singletonList(dnf);
+                List<SMProposition> product = new ArrayList<>(terms.size() * operandTerms.size());
+                for (SMProposition term : terms) {
+                    for (SMProposition operandTerm : operandTerms) {
+                        product.add(PropositionFactory.and(term, operandTerm));
+                    }
+                }
+                terms = product;
             }
+            return PropositionFactory.or(terms);
         } else if (expr instanceof OrProposition) {
-            SMProposition left = distributeAndOverOr(((OrProposition) expr).getLeft());
-            SMProposition right = distributeAndOverOr(((OrProposition) expr).getRight());
-            return new OrProposition(left, right);
+            List<SMProposition> operands = ((OrProposition) expr).getOperands();
+            List<SMProposition> result = new ArrayList<>(operands.size());
+            for (SMProposition operand : operands) {
+                result.add(distributeAndOverOr(operand));
+            }
+            return PropositionFactory.or(result);
         }
         // Per NotProposition e BasicStateProposition, la distribuzione non cambia nulla.
         return expr;
@@ -233,24 +295,78 @@ public interface SMProposition extends Cloneable, Serializable {
         return evaluate(adHocAssembly);
     }
 
+    /**
+     * Evaluates the SMProposition on a fully-specified configuration given as a state vector of the
+     * universe (see {@link UniverseSpliterator#tryAdvanceStates}). Unlike evaluateConfiguration, the
+     * current states of the machines are neither read nor modified, so the method is thread-safe.
+     * A BasicStateProposition on a machine or state outside the universe evaluates to false.
+     */
+    default boolean evaluateStates(int[] states, UniverseSpliterator universe) {
+        if (this instanceof BasicStateProposition) {
+            BasicStateProposition bsp = (BasicStateProposition) this;
+            int level = universe.levelOf(bsp.getMachineId());
+            return level >= 0 && states[level] == universe.stateIndexOf(level, bsp.getStateName());
+        } else if (this instanceof AndProposition) {
+            AndProposition ap = (AndProposition) this;
+            for (int i = 0; i < ap.getOperandCount(); i++) {
+                if (!ap.getOperand(i).evaluateStates(states, universe)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (this instanceof OrProposition) {
+            OrProposition op = (OrProposition) this;
+            for (int i = 0; i < op.getOperandCount(); i++) {
+                if (op.getOperand(i).evaluateStates(states, universe)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (this instanceof NotProposition) {
+            return !((NotProposition) this).getProposition().evaluateStates(states, universe);
+        } else if (this instanceof TrueProposition) {
+            return true;
+        } else if (this instanceof FalseProposition) {
+            return false;
+        }
+        throw new UnsupportedOperationException("Cannot evaluate " + getClass().getSimpleName() + " on a state vector.");
+    }
+
+    /**
+     * Compiles this SMProposition into a flat program over the state vectors of the universe of the
+     * given Assembly, for repeated evaluation (see {@link CompiledProposition}).
+     */
+    default CompiledProposition compile(Assembly assembly) {
+        return CompiledProposition.compile(this, assembly);
+    }
+
     /**
      * Converts this SMProposition into a Semantics object by evaluating it over
      * the universe of fully-specified configurations generated from the provided Assembly.
      * Only those configurations for which the proposition evaluates to true are included.
+     * The universe is evaluated in parallel on the common ForkJoinPool (see toSemanticsParallel).
      *
      * @param assembly the Assembly instance used to generate the universe of configurations.
      * @return a Semantics object representing the set of configurations where this proposition holds.
      */
     default Semantics toSemantics(Assembly assembly) {
-        Semantics result = new Semantics(assembly.getAssemblyId());
-        // Generate the full universe of configurations from the Assembly.
-        Set<Configuration> universe = assembly.generateUniverse();
-        for (Configuration config : universe) {
-            // Evaluate the proposition on the configuration using evaluateConfiguration.
-            if (this.evaluateConfiguration(config, assembly)) {
-                result.addConfiguration(config);
-            }
-        }
-        return result;
+        return toSemanticsParallel(assembly, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates this SMProposition over the universe of the provided Assembly on the given pool.
+     * The proposition is compiled once; the universe is split into ranges of configurations, each
+     * worker evaluates its range on its own state vector, and the partial Semantics are merged at the end.
+     * The Assembly is only read, so the current states of its machines are left untouched.
+     *
+     * @param assembly the Assembly instance used to generate the universe of configurations.
+     * @param pool the pool running the evaluation.
+     * @return a Semantics object representing the set of configurations where this proposition holds.
+     */
+    default Semantics toSemanticsParallel(Assembly assembly, ForkJoinPool pool) {
+        UniverseSpliterator universe = new UniverseSpliterator(assembly);
+        long threshold = UniverseEvaluation.threshold(universe.estimateSize(), pool.getParallelism());
+        CompiledProposition compiled = CompiledProposition.compile(this, universe);
+        return pool.invoke(new UniverseEvaluation(compiled, assembly.getAssemblyId(), universe, threshold));
     }
 }
\ No newline at end of file
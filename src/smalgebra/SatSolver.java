@@ -0,0 +1,398 @@
+package smalgebra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A small CDCL satisfiability solver over clauses in DIMACS form.
+ *
+ * <p>Variables are numbered from 1 (see {@link #newVariable()}); a literal is {@code +v} or
+ * {@code -v}. Besides ordinary clauses the solver supports exactly-one constraints natively
+ * ({@link #addExactlyOne(int...)}): the at-least-one half is an ordinary clause, while the
+ * at-most-one half is propagated directly from the group instead of being expanded into the
+ * quadratic set of binary clauses. This is the shape of the "one current state per machine"
+ * constraint of an assembly.
+ *
+ * <p>The search uses two watched literals per clause, first-UIP conflict learning with
+ * non-chronological backjumping, activity-based decisions with phase saving and geometric
+ * restarts. Learned clauses are kept for the whole run: the formulas checked by the editor are
+ * small enough that clause-database reduction is not worth its bookkeeping.
+ *
+ * <p>A solver is not thread-safe. Clauses may be added before and between calls to {@link #solve()}.
+ */
+public final class SatSolver {
+    private static final int UNDEF = -1;
+    private static final double ACTIVITY_DECAY = 0.95;
+    private static final int FIRST_RESTART = 100;
+    private static final double RESTART_GROWTH = 1.5;
+
+    // Internal literals: 2 * v for +v, 2 * v + 1 for -v.
+    private int variableCount;
+    private byte[] values = new byte[16];          // per variable: 0 unassigned, 1 true, -1 false
+    private int[] levels = new int[16];
+    private int[][] reasons = new int[16][];
+    private double[] activity = new double[16];
+    private boolean[] phase = new boolean[16];
+    private boolean[] seen = new boolean[16];
+    private int[][] groupsOf = new int[16][];      // exactly-one groups each variable belongs to
+    private List<List<int[]>> watches = new ArrayList<>();
+
+    private final List<int[]> groups = new ArrayList<>();
+    private int[] trail = new int[16];
+    private int trailSize;
+    private int[] trailLimits = new int[16];
+    private int decisionLevel;
+    private int propagationHead;
+    private double activityIncrement = 1.0;
+    private boolean unsatisfiable;
+    private boolean[] model;
+
+    public SatSolver() {
+        watches.add(new ArrayList<>());
+        watches.add(new ArrayList<>());
+    }
+
+    /**
+     * Allocates a fresh variable and returns its (positive) number.
+     */
+    public int newVariable() {
+        int v = ++variableCount;
+        if (v >= values.length) {
+            int n = values.length * 2;
+            values = Arrays.copyOf(values, n);
+            levels = Arrays.copyOf(levels, n);
+            reasons = Arrays.copyOf(reasons, n);
+            activity = Arrays.copyOf(activity, n);
+            phase = Arrays.copyOf(phase, n);
+            seen = Arrays.copyOf(seen, n);
+            groupsOf = Arrays.copyOf(groupsOf, n);
+            trail = Arrays.copyOf(trail, n);
+        }
+        watches.add(new ArrayList<>());
+        watches.add(new ArrayList<>());
+        return v;
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Adds the clause (l1 ∨ ... ∨ ln). Duplicate literals are merged and tautologies ignored;
+     * the empty clause makes the problem unsatisfiable.
+     */
+    public void addClause(int... literals) {
+        if (unsatisfiable) {
+            return;
+        }
+        int[] clause = new int[literals.length];
+        int size = 0;
+        for (int literal : literals) {
+            int lit = toInternal(literal);
+            int value = valueOf(lit);
+            if (value > 0 || contains(clause, size, lit ^ 1)) {
+                return; // satisfied at level 0, or tautology
+            }
+            if (value == 0 && !contains(clause, size, lit)) {
+                clause[size++] = lit;
+            }
+        }
+        if (size == 0) {
+            unsatisfiable = true;
+        } else if (size == 1) {
+            assign(clause[0], null);
+        } else {
+            attach(Arrays.copyOf(clause, size));
+        }
+    }
+
+    /**
+     * Adds the constraint "exactly one of the given variables is true".
+     */
+    public void addExactlyOne(int... variables) {
+        addClause(variables);
+        if (unsatisfiable || variables.length < 2) {
+            return;
+        }
+        int[] group = variables.clone();
+        int id = groups.size();
+        groups.add(group);
+        for (int v : group) {
+            checkVariable(v);
+            int[] old = groupsOf[v];
+            int[] updated = old == null ? new int[1] : Arrays.copyOf(old, old.length + 1);
+            updated[updated.length - 1] = id;
+            groupsOf[v] = updated;
+        }
+    }
+
+    /**
+     * Decides the satisfiability of the clauses added so far.
+     * When the answer is true, {@link #value(int)} reads the satisfying assignment found.
+     */
+    public boolean solve() {
+        model = null;
+        if (unsatisfiable) {
+            return false;
+        }
+        // Level-0 facts may predate the exactly-one groups they trigger: propagate them again.
+        propagationHead = 0;
+        int conflicts = 0;
+        int restartLimit = FIRST_RESTART;
+        while (true) {
+            int[] conflict = propagate();
+            if (conflict != null) {
+                if (decisionLevel == 0) {
+                    unsatisfiable = true;
+                    return false;
+                }
+                learn(conflict);
+                decayActivities();
+                if (++conflicts >= restartLimit) {
+                    conflicts = 0;
+                    restartLimit = (int) (restartLimit * RESTART_GROWTH);
+                    backtrack(0);
+                }
+            } else {
+                int v = pickBranchVariable();
+                if (v == UNDEF) {
+                    model = new boolean[variableCount + 1];
+                    for (int i = 1; i <= variableCount; i++) {
+                        model[i] = values[i] > 0;
+                    }
+                    backtrack(0);
+                    return true;
+                }
+                newDecisionLevel();
+                assign(2 * v + (phase[v] ? 0 : 1), null);
+            }
+        }
+    }
+
+    /**
+     * Value of the given variable in the model found by the last successful {@link #solve()}.
+     */
+    public boolean value(int variable) {
+        if (model == null) {
+            throw new IllegalStateException("No model available: the last call to solve() did not succeed.");
+        }
+        return model[variable];
+    }
+
+    private int[] propagate() {
+        while (propagationHead < trailSize) {
+            int p = trail[propagationHead++];
+            int v = p >> 1;
+            // At-most-one: a true member of a group falsifies all the others.
+            if ((p & 1) == 0 && groupsOf[v] != null) {
+                for (int id : groupsOf[v]) {
+                    for (int w : groups.get(id)) {
+                        if (w == v) {
+                            continue;
+                        }
+                        int notW = 2 * w + 1;
+                        int value = valueOf(notW);
+                        if (value < 0) {
+                            return new int[]{notW, p ^ 1};
+                        } else if (value == 0) {
+                            assign(notW, new int[]{notW, p ^ 1});
+                        }
+                    }
+                }
+            }
+            int[] conflict = propagateClauses(p ^ 1);
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    // Visits the clauses watching the literal that has just become false.
+    private int[] propagateClauses(int falseLit) {
+        List<int[]> list = watches.get(falseLit);
+        int kept = 0;
+        int i = 0;
+        int[] conflict = null;
+        while (i < list.size()) {
+            int[] c = list.get(i++);
+            if (c[0] == falseLit) {
+                c[0] = c[1];
+                c[1] = falseLit;
+            }
+            if (valueOf(c[0]) > 0) {
+                list.set(kept++, c);
+                continue;
+            }
+            boolean moved = false;
+            for (int k = 2; k < c.length; k++) {
+                if (valueOf(c[k]) >= 0) {
+                    c[1] = c[k];
+                    c[k] = falseLit;
+                    watches.get(c[1]).add(c);
+                    moved = true;
+                    break;
+                }
+            }
+            if (moved) {
+                continue;
+            }
+            list.set(kept++, c);
+            if (valueOf(c[0]) < 0) {
+                conflict = c;
+                while (i < list.size()) {
+                    list.set(kept++, list.get(i++));
+                }
+            } else {
+                assign(c[0], c);
+            }
+        }
+        list.subList(kept, list.size()).clear();
+        return conflict;
+    }
+
+    // First-UIP analysis; the reason of an implied literal always holds it at position 0.
+    private void learn(int[] conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        learnt.add(UNDEF);
+        int pending = 0;
+        int p = UNDEF;
+        int index = trailSize - 1;
+        int[] clause = conflict;
+        do {
+            for (int j = p == UNDEF ? 0 : 1; j < clause.length; j++) {
+                int q = clause[j];
+                int v = q >> 1;
+                if (!seen[v] && levels[v] > 0) {
+                    seen[v] = true;
+                    bumpActivity(v);
+                    if (levels[v] >= decisionLevel) {
+                        pending++;
+                    } else {
+                        learnt.add(q);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            p = trail[index--];
+            clause = reasons[p >> 1];
+            seen[p >> 1] = false;
+            pending--;
+        } while (pending > 0);
+
+        int[] learned = new int[learnt.size()];
+        learned[0] = p ^ 1;
+        int backjump = 0;
+        for (int j = 1; j < learned.length; j++) {
+            learned[j] = learnt.get(j);
+            seen[learned[j] >> 1] = false;
+            // Keep the literal of the highest remaining level second, so it is watched.
+            int level = levels[learned[j] >> 1];
+            if (level > backjump) {
+                backjump = level;
+                int tmp = learned[1];
+                learned[1] = learned[j];
+                learned[j] = tmp;
+            }
+        }
+        backtrack(backjump);
+        if (learned.length == 1) {
+            assign(learned[0], null);
+        } else {
+            attach(learned);
+            assign(learned[0], learned);
+        }
+    }
+
+    private int pickBranchVariable() {
+        int best = UNDEF;
+        double bestActivity = -1;
+        for (int v = 1; v <= variableCount; v++) {
+            if (values[v] == 0 && activity[v] > bestActivity) {
+                best = v;
+                bestActivity = activity[v];
+            }
+        }
+        return best;
+    }
+
+    private void bumpActivity(int v) {
+        activity[v] += activityIncrement;
+        if (activity[v] > 1e100) {
+            for (int i = 1; i <= variableCount; i++) {
+                activity[i] *= 1e-100;
+            }
+            activityIncrement *= 1e-100;
+        }
+    }
+
+    private void decayActivities() {
+        activityIncrement /= ACTIVITY_DECAY;
+    }
+
+    private void attach(int[] clause) {
+        watches.get(clause[0]).add(clause);
+        watches.get(clause[1]).add(clause);
+    }
+
+    private void assign(int lit, int[] reason) {
+        int v = lit >> 1;
+        values[v] = (byte) ((lit & 1) == 0 ? 1 : -1);
+        levels[v] = decisionLevel;
+        reasons[v] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    private void newDecisionLevel() {
+        if (decisionLevel + 1 >= trailLimits.length) {
+            trailLimits = Arrays.copyOf(trailLimits, trailLimits.length * 2);
+        }
+        trailLimits[++decisionLevel] = trailSize;
+    }
+
+    private void backtrack(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        int limit = trailLimits[level + 1];
+        for (int i = trailSize - 1; i >= limit; i--) {
+            int v = trail[i] >> 1;
+            phase[v] = values[v] > 0;
+            values[v] = 0;
+            reasons[v] = null;
+        }
+        trailSize = limit;
+        propagationHead = limit;
+        decisionLevel = level;
+    }
+
+    // 1 if the internal literal is true, -1 if false, 0 if unassigned.
+    private int valueOf(int lit) {
+        int value = values[lit >> 1];
+        return (lit & 1) == 0 ? value : -value;
+    }
+
+    private int toInternal(int literal) {
+        int v = Math.abs(literal);
+        checkVariable(v);
+        return literal > 0 ? 2 * v : 2 * v + 1;
+    }
+
+    private void checkVariable(int v) {
+        if (v < 1 || v > variableCount) {
+            throw new IllegalArgumentException("Unknown variable: " + v);
+        }
+    }
+
+    private static boolean contains(int[] clause, int size, int lit) {
+        for (int i = 0; i < size; i++) {
+            if (clause[i] == lit) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+package smalgebra;
+
+import assembly.AssemblyInterface;
+import machinery.StateInterface;
+import machinery.StateMachine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides satisfiability, implication and equivalence of SMPropositions over the universe of an
+ * assembly with a {@link SatSolver}, without enumerating the universe.
+ *
+ * <p>Every state of every machine is a variable, and each machine contributes one exactly-one
+ * constraint over its states; the proposition is added in definitional form (see
+ * {@link TseitinEncoding}). The universe is the one of {@link assembly.UniverseSpliterator}:
+ * pseudostates are not part of it, machines without states are skipped, and a
+ * BasicStateProposition on a machine or state outside the universe is false.
+ *
+ * <p>The checker only reads the machines and states of the assembly when it is built; every query
+ * runs on a fresh solver, so a checker can be reused for many queries (but not concurrently).
+ */
+public final class SatisfiabilityChecker {
+    private final List<List<String>> stateNames = new ArrayList<>();
+    // Solver variable of each (machine, state) pair of the universe.
+    private final Map<String, Map<String, Integer>> variables = new HashMap<>();
+    private int universeVariables;
+
+    public SatisfiabilityChecker(AssemblyInterface assembly) {
+        for (Map.Entry<String, StateMachine> entry : assembly.getStateMachines().entrySet()) {
+            List<String> names = new ArrayList<>();
+            Map<String, Integer> byName = new HashMap<>();
+            for (StateInterface s : entry.getValue().getStates()) {
+                if (!s.getName().equals("PseudoState") && !byName.containsKey(s.getName())) {
+                    names.add(s.getName());
+                    byName.put(s.getName(), ++universeVariables);
+                }
+            }
+            // If a machine has no states, skip it.
+            if (!names.isEmpty()) {
+                stateNames.add(names);
+                variables.put(entry.getKey(), byName);
+            }
+        }
+    }
+
+    /**
+     * Returns true if some configuration of the universe satisfies the proposition.
+     */
+    public boolean isSatisfiable(SMProposition proposition) {
+        return solve(proposition);
+    }
+
+    /**
+     * Returns true if no configuration of the universe satisfies the proposition.
+     */
+    public boolean isEmpty(SMProposition proposition) {
+        return !isSatisfiable(proposition);
+    }
+
+    /**
+     * Returns true if every configuration satisfying a also satisfies b, i.e. if a ∧ ¬b is unsatisfiable.
+     */
+    public boolean implies(SMProposition a, SMProposition b) {
+        return !isSatisfiable(PropositionFactory.and(a, PropositionFactory.not(b)));
+    }
+
+    public boolean equivalent(SMProposition a, SMProposition b) {
+        return implies(a, b) && implies(b, a);
+    }
+
+    private boolean solve(SMProposition proposition) {
+        SatSolver solver = new SatSolver();
+        for (int v = 0; v < universeVariables; v++) {
+            solver.newVariable();
+        }
+        int first = 1;
+        for (List<String> names : stateNames) {
+            int[] group = new int[names.size()];
+            for (int i = 0; i < group.length; i++) {
+                group[i] = first + i;
+            }
+            solver.addExactlyOne(group);
+            first += group.length;
+        }
+
+        TseitinEncoding encoding = TseitinEncoding.encode(proposition);
+        int[] mapping = new int[encoding.getVariableCount() + 1];
+        for (int v = 1; v <= encoding.getVariableCount(); v++) {
+            BasicStateProposition atom = encoding.getAtom(v);
+            Integer variable = atom == null ? null : variableOf(atom);
+            if (variable != null) {
+                mapping[v] = variable;
+            } else {
+                mapping[v] = solver.newVariable();
+                if (atom != null) {
+                    // Outside the universe: the atom is false.
+                    solver.addClause(-mapping[v]);
+                }
+            }
+        }
+        for (int[] clause : encoding.getClauses()) {
+            int[] literals = new int[clause.length];
+            for (int i = 0; i < clause.length; i++) {
+                int v = mapping[Math.abs(clause[i])];
+                literals[i] = clause[i] > 0 ? v : -v;
+            }
+            solver.addClause(literals);
+        }
+        return solver.solve();
+    }
+
+    private Integer variableOf(BasicStateProposition atom) {
+        Map<String, Integer> byName = variables.get(atom.getMachineId());
+        return byName == null ? null : byName.get(atom.getStateName());
+    }
+}
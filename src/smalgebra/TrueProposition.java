@@ -3,6 +3,7 @@ package smalgebra;
 import assembly.AssemblyInterface;
 
 public class TrueProposition implements SMProposition {
+    private static final long serialVersionUID = 2012011666062047432L;
 
     @Override
     public boolean evaluate(AssemblyInterface assembly) {
@@ -14,6 +15,16 @@ public class TrueProposition implements SMProposition {
         return "TRUE";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TrueProposition;
+    }
+
+    @Override
+    public int hashCode() {
+        return "TRUE".hashCode();
+    }
+
     @Override
     public SMProposition clone() {
         return new TrueProposition();
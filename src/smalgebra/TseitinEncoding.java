@@ -0,0 +1,165 @@
+package smalgebra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definitional (Tseitin) CNF of an SMProposition.
+ *
+ * <p>Variables are numbered from 1; a literal is {@code +v} or {@code -v}, as in the DIMACS format.
+ * Every BasicStateProposition of the source gets a variable, and so does every compound subformula:
+ * an auxiliary variable {@code x} naming {@code A1 ∧ ... ∧ An} is defined by the clauses
+ * {@code (¬x ∨ Ai)} and {@code (x ∨ ¬A1 ∨ ... ∨ ¬An)}, dually for disjunctions, while negations
+ * only flip the sign of a literal. The source is hash-consed (see {@link PropositionFactory}), so a
+ * subformula shared in the DAG is named once: the number of clauses is linear in the number of
+ * distinct nodes. The clauses are satisfiable exactly when the source proposition is.
+ *
+ * <p>The encoding is immutable once built.
+ */
+public final class TseitinEncoding {
+    /**
+     * Machine id of the BasicStatePropositions standing for auxiliary variables in
+     * {@link #toSMProposition()}; it is not a valid machine identifier of the editor.
+     */
+    public static final String AUXILIARY_MACHINE_ID = "$tseitin";
+
+    private final SMProposition source;
+    // variables.get(v - 1) is the atom of variable v, or null when v is auxiliary.
+    private final List<BasicStateProposition> variables;
+    private final List<int[]> clauses;
+
+    private TseitinEncoding(SMProposition source, List<BasicStateProposition> variables, List<int[]> clauses) {
+        this.source = source;
+        this.variables = variables;
+        this.clauses = clauses;
+    }
+
+    /**
+     * Builds the definitional CNF of the given proposition.
+     */
+    public static TseitinEncoding encode(SMProposition proposition) {
+        SMProposition source = PropositionFactory.intern(proposition);
+        Encoder encoder = new Encoder();
+        encoder.clauses.add(new int[]{encoder.literal(source)});
+        return new TseitinEncoding(source, encoder.variables, encoder.clauses);
+    }
+
+    private static final class Encoder {
+        final List<BasicStateProposition> variables = new ArrayList<>();
+        final List<int[]> clauses = new ArrayList<>();
+        final Map<BasicStateProposition, Integer> atoms = new HashMap<>();
+        // Canonical nodes are compared by identity.
+        final Map<SMProposition, Integer> names = new IdentityHashMap<>();
+
+        int literal(SMProposition p) {
+            if (p instanceof NotProposition) {
+                return -literal(((NotProposition) p).getProposition());
+            } else if (p instanceof BasicStateProposition) {
+                return atoms.computeIfAbsent((BasicStateProposition) p, this::newVariable);
+            }
+            Integer name = names.get(p);
+            if (name != null) {
+                return name;
+            }
+            int x;
+            if (p instanceof AndProposition) {
+                x = define(((AndProposition) p).getOperands(), 1);
+            } else if (p instanceof OrProposition) {
+                x = define(((OrProposition) p).getOperands(), -1);
+            } else if (p instanceof TrueProposition) {
+                x = newVariable(null);
+                clauses.add(new int[]{x});
+            } else if (p instanceof FalseProposition) {
+                x = newVariable(null);
+                clauses.add(new int[]{-x});
+            } else {
+                throw new UnsupportedOperationException("Cannot encode " + p.getClass().getSimpleName());
+            }
+            names.put(p, x);
+            return x;
+        }
+
+        /**
+         * Names a conjunction (sign 1) or, by De Morgan, a disjunction (sign -1) of the operands:
+         * x ↔ (l1 ∧ ... ∧ ln) for conjunctions, ¬x ↔ (¬l1 ∧ ... ∧ ¬ln) for disjunctions.
+         */
+        private int define(List<SMProposition> operands, int sign) {
+            int[] literals = new int[operands.size()];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = sign * literal(operands.get(i));
+            }
+            int x = sign * newVariable(null);
+            int[] closing = new int[literals.length + 1];
+            closing[0] = x;
+            for (int i = 0; i < literals.length; i++) {
+                clauses.add(new int[]{-x, literals[i]});
+                closing[i + 1] = -literals[i];
+            }
+            clauses.add(closing);
+            return sign * x;
+        }
+
+        private int newVariable(BasicStateProposition atom) {
+            variables.add(atom);
+            return variables.size();
+        }
+    }
+
+    public SMProposition getSource() {
+        return source;
+    }
+
+    /**
+     * Number of variables, atoms and auxiliary variables together.
+     */
+    public int getVariableCount() {
+        return variables.size();
+    }
+
+    public boolean isAuxiliary(int variable) {
+        return variables.get(variable - 1) == null;
+    }
+
+    /**
+     * The atom of the given variable, or null if the variable is auxiliary.
+     */
+    public BasicStateProposition getAtom(int variable) {
+        return variables.get(variable - 1);
+    }
+
+    /**
+     * The clauses, each an array of literals. The arrays must not be modified.
+     */
+    public List<int[]> getClauses() {
+        return Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * The clauses as a conjunction of disjunctions of literals. Auxiliary variable v is rendered as
+     * the BasicStateProposition {@code $tseitin.xv} (see {@link #AUXILIARY_MACHINE_ID}).
+     */
+    public SMProposition toSMProposition() {
+        List<SMProposition> conjuncts = new ArrayList<>(clauses.size());
+        for (int[] clause : clauses) {
+            List<SMProposition> disjuncts = new ArrayList<>(clause.length);
+            for (int literal : clause) {
+                int v = Math.abs(literal);
+                SMProposition atom = isAuxiliary(v)
+                        ? PropositionFactory.basic(AUXILIARY_MACHINE_ID, "x" + v)
+                        : getAtom(v);
+                disjuncts.add(literal > 0 ? atom : PropositionFactory.not(atom));
+            }
+            conjuncts.add(PropositionFactory.or(disjuncts));
+        }
+        return PropositionFactory.and(conjuncts);
+    }
+
+    @Override
+    public String toString() {
+        return toSMProposition().toString();
+    }
+}
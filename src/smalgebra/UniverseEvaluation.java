@@ -0,0 +1,64 @@
+package smalgebra;
+
+import assembly.UniverseSpliterator;
+import pws.editor.semantics.Configuration;
+import pws.editor.semantics.Semantics;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join evaluation of a compiled SMProposition over a range of the universe of configurations.
+ * Ranges larger than the threshold are split in two halves; smaller ranges are visited as
+ * state vectors and only the configurations satisfying the proposition are materialised.
+ */
+final class UniverseEvaluation extends RecursiveTask<Semantics> {
+    private static final long serialVersionUID = 662918738880621615L;
+
+    // Below this many configurations splitting costs more than it saves.
+    private static final long MIN_THRESHOLD = 1024;
+
+    private final CompiledProposition proposition;
+    private final String assemblyId;
+    private final UniverseSpliterator range;
+    private final long threshold;
+
+    UniverseEvaluation(CompiledProposition proposition, String assemblyId, UniverseSpliterator range, long threshold) {
+        this.proposition = proposition;
+        this.assemblyId = assemblyId;
+        this.range = range;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Size of the ranges evaluated sequentially: a few ranges per worker, to balance the load.
+     */
+    static long threshold(long size, int parallelism) {
+        return Math.max(MIN_THRESHOLD, size / (4L * Math.max(1, parallelism)));
+    }
+
+    @Override
+    protected Semantics compute() {
+        if (range.estimateSize() > threshold) {
+            UniverseSpliterator prefix = range.trySplit();
+            if (prefix != null) {
+                UniverseEvaluation prefixTask = new UniverseEvaluation(proposition, assemblyId, prefix, threshold);
+                prefixTask.fork();
+                Semantics right = new UniverseEvaluation(proposition, assemblyId, range, threshold).compute();
+                Semantics left = prefixTask.join();
+                // Distinct fully-specified configurations never imply each other: no subsumption to check.
+                Set<Configuration> merged = new HashSet<>(left.getConfigurations());
+                merged.addAll(right.getConfigurations());
+                return Semantics.ofAntichain(assemblyId, merged);
+            }
+        }
+        Set<Configuration> result = new HashSet<>();
+        range.forEachRemainingStates(states -> {
+            if (proposition.test(states)) {
+                result.add(range.toConfiguration(states));
+            }
+        });
+        return Semantics.ofAntichain(assemblyId, result);
+    }
+}
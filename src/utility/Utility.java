@@ -24,7 +24,7 @@ public class Utility {
      * @param machineId   l'identificatore della macchina interessata
      * @param fromState   lo stato da sostituire
      * @param toState     lo stato sostitutivo
-     * @return una nuova SMProposition con la sostituzione applicata
+     * @return una nuova SMProposition con la sostituzione applicata (o proposition stessa, se nulla cambia)
      */
     public static SMProposition transformByMachineIdAndState(SMProposition proposition, String machineId, String fromState, String toState) {
         if (proposition instanceof BasicStateProposition) {
@@ -32,7 +32,7 @@ public class Utility {
             // Se la proposizione elementare riguarda la macchina e lo stato da sostituire,
             // restituisce una nuova proposizione elementare con il nuovo stato.
             if (bsp.getMachineId().equals(machineId) && bsp.getStateName().equals(fromState)) {
-                return new BasicStateProposition(machineId, toState);
+                return PropositionFactory.basic(machineId, toState);
             } else {
                 return proposition;
             }
@@ -40,16 +40,25 @@ public class Utility {
             AndProposition ap = (AndProposition) proposition;
             SMProposition newLeft = transformByMachineIdAndState(ap.getLeft(), machineId, fromState, toState);
             SMProposition newRight = transformByMachineIdAndState(ap.getRight(), machineId, fromState, toState);
-            return new AndProposition(newLeft, newRight);
+            if (newLeft == ap.getLeft() && newRight == ap.getRight()) {
+                return proposition;
+            }
+            return PropositionFactory.and(newLeft, newRight);
         } else if (proposition instanceof OrProposition) {
             OrProposition op = (OrProposition) proposition;
             SMProposition newLeft = transformByMachineIdAndState(op.getLeft(), machineId, fromState, toState);
             SMProposition newRight = transformByMachineIdAndState(op.getRight(), machineId, fromState, toState);
-            return new OrProposition(newLeft, newRight);
+            if (newLeft == op.getLeft() && newRight == op.getRight()) {
+                return proposition;
+            }
+            return PropositionFactory.or(newLeft, newRight);
         } else if (proposition instanceof NotProposition) {
             NotProposition np = (NotProposition) proposition;
             SMProposition newProp = transformByMachineIdAndState(np.getProposition(), machineId, fromState, toState);
-            return new NotProposition(newProp);
+            if (newProp == np.getProposition()) {
+                return proposition;
+            }
+            return PropositionFactory.not(newProp);
         } else {
             // Se la SMProposition non è riconosciuta, restituiscila invariata.
             return proposition;